@@ -0,0 +1,58 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.Random;
+
+/**
+ * Generator powtarzalnych tekstów wejściowych dla benchmarków.
+ */
+final class BenchmarkTexts {
+
+    private static final String[] ASCII_WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "and", "so", "on",
+            "for", "example", "42", "7", "3.14", "100", "&", "50%", "#tag", "{set}", "a_b", "x^2", "~"
+    };
+
+    private static final String[] POLISH_WORDS = {
+            "zażółć", "gęślą", "jaźń", "źdźbło", "łódź", "pięć", "ćma", "na przykład", "między innymi",
+            "i tak dalej", "np.", "m.in.", "itd.", "13", "40", "99.5", "&", "{zbiór}", "#", "słowo słowo"
+    };
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * Rozmiar tekstu wejściowego: krótki, 10 KB lub 10 MB znaków.
+     */
+    static int sizeOf(String size) {
+        switch (size) {
+            case "short":
+                return 64;
+            case "10KB":
+                return 10 * 1024;
+            case "10MB":
+                return 10 * 1024 * 1024;
+            default:
+                throw new IllegalArgumentException("Nieznany rozmiar: " + size);
+        }
+    }
+
+    /**
+     * Tworzy tekst o zadanej długości ze słów ASCII albo polskich (z diakrytykami).
+     *
+     * @param size    Nazwa rozmiaru ({@code short}, {@code 10KB}, {@code 10MB}).
+     * @param charset {@code ascii} lub {@code polish}.
+     * @return Wygenerowany tekst.
+     */
+    static String generate(String size, String charset) {
+        String[] words = "polish".equals(charset) ? POLISH_WORDS : ASCII_WORDS;
+        int length = sizeOf(size);
+        Random random = new Random(length);
+        StringBuilder text = new StringBuilder(length + 32);
+        while (text.length() < length) {
+            text.append(words[random.nextInt(words.length)]);
+            text.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
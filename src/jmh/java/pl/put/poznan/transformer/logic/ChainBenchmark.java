@@ -0,0 +1,66 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Przepustowość typowych łańcuchów transformacji budowanych przez {@link TransformerFactory}:
+ * łańcuch dekoratorów w porównaniu z łańcuchem skompilowanym oraz koszt pobrania łańcucha z cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+
+    @Param({"upper,latex", "lower,toggle", "lower,abbreviate,expand", "capitalize,numbertotext,latex", "upper,lower,upper,latex",
+            "removeduplicates,abbreviate,upper"})
+    public String chain;
+
+    @Param({"short", "10KB", "10MB"})
+    public String size;
+
+    @Param({"ascii", "polish"})
+    public String charset;
+
+    private String[] transforms;
+    private TextTransformerInterface decorators;
+    private TextTransformerInterface compiled;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        transforms = chain.split(",");
+        decorators = TransformerFactory.createTransformer(transforms);
+        compiled = TransformerFactory.compile(transforms);
+        text = BenchmarkTexts.generate(size, charset);
+    }
+
+    @Benchmark
+    public String decorators() {
+        return decorators.transform(text);
+    }
+
+    @Benchmark
+    public String compiled() {
+        return compiled.transform(text);
+    }
+
+    @Benchmark
+    public String cachedLookupAndTransform() {
+        return TransformerFactory.getTransformer(transforms).transform(text);
+    }
+}
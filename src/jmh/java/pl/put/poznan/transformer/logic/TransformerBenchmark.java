@@ -0,0 +1,51 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Przepustowość pojedynczych transformacji dla różnych rozmiarów i rodzajów tekstu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+    @Param({"upper", "lower", "capitalize", "abbreviate", "expand", "inverse", "removeduplicates", "latex",
+            "numbertotext", "toggle", "title", "sentence"})
+    public String transform;
+
+    @Param({"short", "10KB", "10MB"})
+    public String size;
+
+    @Param({"ascii", "polish"})
+    public String charset;
+
+    private TextTransformerInterface transformer;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        transformer = TransformType.fromName(transform).decorate(new BaseTransformer());
+        text = BenchmarkTexts.generate(size, charset);
+    }
+
+    @Benchmark
+    public String transform() {
+        return transformer.transform(text);
+    }
+}
@@ -0,0 +1,435 @@
+package pl.put.poznan.transformer.app;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Generator obciążenia dla punktów końcowych {@code /classic} i {@code /formated/transform}.
+ * <p>
+ * Uruchamia {@link TextTransformerApplication} na losowym porcie, rozgrzewa serwer, a następnie
+ * przez zadany czas wysyła żądania z kilku wątków. Endpoint, rozmiar tekstu i łańcuch
+ * transformacji każdego żądania losowane są z wagami podanymi w opcjach. Opóźnienia zapisywane są
+ * w histogramach HDR (osobno dla każdego endpointu), a na koniec wypisywane są percentyle
+ * i przepustowość. Rozkłady percentyli zapisywane są do plików {@code .hgrm} w katalogu raportu.
+ * <p>
+ * Uruchomienie: {@code mvn -P loadtest test-compile exec:exec -Dload.args="duration=60s budget.formated=20ms"}.
+ * Opcje (w postaci {@code klucz=wartość}, w nawiasach wartości domyślne):
+ * <ul>
+ *     <li>{@code duration} (30s), {@code warmup} (10s) - czas pomiaru i rozgrzewania,</li>
+ *     <li>{@code concurrency} (16) - liczba wątków wysyłających żądania,</li>
+ *     <li>{@code rate} (0) - docelowa liczba żądań na sekundę; 0 oznacza pętlę zamkniętą
+ *     (kolejne żądanie zaraz po odpowiedzi). Przy zadanej liczbie opóźnienie liczone jest od
+ *     planowanego momentu wysłania, więc kolejkowanie po stronie klienta nie ukrywa przestojów serwera,</li>
+ *     <li>{@code endpoints} (classic:1,formated:1) - wagi endpointów,</li>
+ *     <li>{@code sizes} (64:60,1024:30,16384:10) - wagi długości tekstów w znakach; {@code /classic}
+ *     przenosi tekst w adresie URL, więc dostaje teksty najwyżej {@value #CLASSIC_MAX_LENGTH}-znakowe,</li>
+ *     <li>{@code chains} (upper:3,capitalize+inverse:2,...) - wagi łańcuchów transformacji
+ *     (nazwy transformacji rozdzielone znakiem {@code +}),</li>
+ *     <li>{@code budget.classic}, {@code budget.formated} (0 - brak) - budżet p99 opóźnienia,</li>
+ *     <li>{@code max-error-rate} (0.001) - dopuszczalny odsetek odpowiedzi innych niż 200,</li>
+ *     <li>{@code report} (target/loadtest) - katalog raportu, {@code seed} (42) - ziarno generatora tekstów,</li>
+ *     <li>{@code app.*} - właściwości przekazywane aplikacji, np. {@code app.transformer.execution.mode=inline}.</li>
+ * </ul>
+ * Przekroczenie budżetu p99 lub odsetka błędów kończy program kodem 1, co przerywa budowanie Mavena.
+ * Program nie korzysta z sieci poza interfejsem lokalnym.
+ */
+public final class LoadTest {
+
+    /** Najdłuższy tekst wysyłany w ścieżce URL do {@code /classic}. */
+    static final int CLASSIC_MAX_LENGTH = 512;
+
+    /** Liczba przygotowanych żądań, z których losowane są kolejne wysyłane. */
+    private static final int REQUEST_POOL_SIZE = 1024;
+
+    /** Najdłuższe rejestrowane opóźnienie w mikrosekundach. */
+    private static final long HIGHEST_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+
+    private static final String[] WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "42", "7", "3.14", "100",
+            "&", "50%", "#tag", "{set}", "x^2", "zażółć", "gęślą", "jaźń", "źdźbło", "łódź", "pięć",
+            "na przykład", "między innymi", "np.", "m.in.", "itd.", "13", "słowo słowo"
+    };
+
+    private static final String[] ENDPOINTS = {"classic", "formated"};
+
+    private LoadTest() {
+    }
+
+    /**
+     * Przygotowane żądanie wraz z endpointem, do którego jest kierowane.
+     */
+    private static final class Call {
+        final int endpoint;
+        final HttpRequest request;
+
+        Call(int endpoint, HttpRequest request) {
+            this.endpoint = endpoint;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Wyniki jednego wątku: histogramy opóźnień (w mikrosekundach) i liczby błędów dla endpointów.
+     */
+    private static final class WorkerResult {
+        final Histogram[] latencies = new Histogram[ENDPOINTS.length];
+        final long[] errors = new long[ENDPOINTS.length];
+
+        WorkerResult() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+            }
+        }
+    }
+
+    /**
+     * Uruchamia test obciążeniowy.
+     *
+     * @param args Opcje w postaci {@code klucz=wartość}.
+     * @throws Exception jeśli nie udało się uruchomić aplikacji lub zapisać raportu.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Duration duration = parseDuration(options.getOrDefault("duration", "30s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        double maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "0.001"));
+        Path report = Path.of(options.getOrDefault("report", "target/loadtest"));
+        long[] budgets = new long[ENDPOINTS.length];
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            budgets[i] = parseDuration(options.getOrDefault("budget." + ENDPOINTS[i], "0s")).toNanos() / 1000;
+        }
+
+        // Argumenty wiersza poleceń mają pierwszeństwo przed application.properties
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--server.port=0");
+        arguments.add("--logging.level.pl.put.poznan.transformer=WARN");
+        options.forEach((key, value) -> {
+            if (key.startsWith("app.")) {
+                arguments.add("--" + key.substring(4) + "=" + value);
+            }
+        });
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TextTransformerApplication.class)
+                .run(arguments.toArray(new String[0]));
+        boolean passed;
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Call> calls = prepareCalls("http://localhost:" + port, options);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            System.out.printf(Locale.ROOT, "Rozgrzewanie: %ds, wątki: %d%n", warmup.toSeconds(), concurrency);
+            run(client, calls, concurrency, rate, warmup);
+            System.out.printf(Locale.ROOT, "Pomiar: %ds, wątki: %d, żądania/s: %s%n",
+                    duration.toSeconds(), concurrency, rate > 0 ? rate : "bez limitu");
+            long start = System.nanoTime();
+            List<WorkerResult> results = run(client, calls, concurrency, rate, duration);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            passed = report(results, seconds, budgets, maxErrorRate, report);
+        } finally {
+            context.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Przygotowuje pulę żądań wylosowanych z wag endpointów, rozmiarów tekstów i łańcuchów.
+     */
+    private static List<Call> prepareCalls(String baseUrl, Map<String, String> options) {
+        Map<String, Integer> endpoints = parseWeights(options.getOrDefault("endpoints", "classic:1,formated:1"));
+        Map<String, Integer> sizes = parseWeights(options.getOrDefault("sizes", "64:60,1024:30,16384:10"));
+        Map<String, Integer> chains = parseWeights(options.getOrDefault("chains",
+                "upper:3,capitalize+inverse:2,lower+expand+latex:2,abbreviate+numbertotext+removeduplicates:1"));
+        for (String endpoint : endpoints.keySet()) {
+            endpointIndex(endpoint);
+        }
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+
+        List<Call> calls = new ArrayList<>(REQUEST_POOL_SIZE);
+        for (int i = 0; i < REQUEST_POOL_SIZE; i++) {
+            int endpoint = endpointIndex(pick(endpoints, random));
+            int size = Integer.parseInt(pick(sizes, random));
+            if (size <= 0) {
+                throw new IllegalArgumentException("Rozmiar tekstu musi być dodatni: " + size);
+            }
+            String[] transforms = pick(chains, random).split("\\+");
+            if (endpoint == 0) {
+                String text = generateText(Math.min(size, CLASSIC_MAX_LENGTH), random);
+                String query = URLEncoder.encode(String.join(",", transforms), StandardCharsets.UTF_8);
+                URI uri = URI.create(baseUrl + "/classic/" + encodePath(text) + "?transforms=" + query);
+                calls.add(new Call(endpoint, HttpRequest.newBuilder(uri).GET().build()));
+            } else {
+                String body = "{\"text\":" + jsonString(generateText(size, random))
+                        + ",\"transforms\":[" + jsonStrings(transforms) + "]}";
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/formated/transform"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                        .build();
+                calls.add(new Call(endpoint, request));
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Wysyła żądania z podanej liczby wątków przez zadany czas.
+     *
+     * @return Wyniki poszczególnych wątków.
+     */
+    private static List<WorkerResult> run(HttpClient client, List<Call> calls, int concurrency, double rate,
+                                          Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+        AtomicLong ticket = new AtomicLong();
+        List<WorkerResult> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < concurrency; t++) {
+            WorkerResult result = new WorkerResult();
+            results.add(result);
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    long sent = System.nanoTime();
+                    if (interval > 0) {
+                        // Opóźnienie liczone od planowanego momentu wysłania, a nie od faktycznego
+                        long intended = start + ticket.getAndIncrement() * interval;
+                        if (intended >= end) {
+                            return;
+                        }
+                        sleepUntil(intended);
+                        sent = intended;
+                    } else if (sent >= end) {
+                        return;
+                    }
+                    Call call = calls.get(random.nextInt(calls.size()));
+                    try {
+                        HttpResponse<Void> response = client.send(call.request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            result.errors[call.endpoint]++;
+                            continue;
+                        }
+                    } catch (IOException e) {
+                        result.errors[call.endpoint]++;
+                        continue;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long micros = (System.nanoTime() - sent) / 1000;
+                    result.latencies[call.endpoint].recordValue(Math.min(micros, HIGHEST_LATENCY_MICROS));
+                }
+            }, "load-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    /**
+     * Wypisuje percentyle i przepustowość, zapisuje rozkłady do plików i sprawdza budżety.
+     *
+     * @return {@code true}, jeśli żaden budżet ani limit błędów nie został przekroczony.
+     */
+    private static boolean report(List<WorkerResult> results, double seconds, long[] budgets, double maxErrorRate,
+                                  Path directory) throws IOException {
+        Files.createDirectories(directory);
+        boolean passed = true;
+        long total = 0;
+        System.out.printf(Locale.ROOT, "%-10s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "żądania", "błędy", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (int e = 0; e < ENDPOINTS.length; e++) {
+            Histogram histogram = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+            long errors = 0;
+            for (WorkerResult result : results) {
+                histogram.add(result.latencies[e]);
+                errors += result.errors[e];
+            }
+            long count = histogram.getTotalCount() + errors;
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            System.out.printf(Locale.ROOT, "%-10s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    ENDPOINTS[e], count, errors, count / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(ENDPOINTS[e] + ".hgrm")),
+                    false, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+
+            long p99 = histogram.getValueAtPercentile(99);
+            if (budgets[e] > 0 && p99 > budgets[e]) {
+                System.out.printf(Locale.ROOT, "PRZEKROCZONY budżet p99 dla %s: %.2f ms > %.2f ms%n",
+                        ENDPOINTS[e], millis(p99), millis(budgets[e]));
+                passed = false;
+            }
+            if (errors > maxErrorRate * count) {
+                System.out.printf(Locale.ROOT, "PRZEKROCZONY odsetek błędów dla %s: %d z %d%n",
+                        ENDPOINTS[e], errors, count);
+                passed = false;
+            }
+        }
+        System.out.printf(Locale.ROOT, "Razem: %d żądań, %.1f req/s, raport: %s%n", total, total / seconds,
+                directory.toAbsolutePath());
+        return passed;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Opcja musi mieć postać klucz=wartość: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * @param text Czas z jednostką {@code ms}, {@code s} lub {@code m}, np. {@code 250ms}.
+     */
+    private static Duration parseDuration(String text) {
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        throw new IllegalArgumentException("Czas musi mieć jednostkę ms, s lub m: " + text);
+    }
+
+    /**
+     * @param text Lista {@code wartość:waga} rozdzielona przecinkami; brak wagi oznacza 1.
+     */
+    private static Map<String, Integer> parseWeights(String text) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : text.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            String value = separator < 0 ? entry.trim() : entry.substring(0, separator).trim();
+            int weight = separator < 0 ? 1 : Integer.parseInt(entry.substring(separator + 1).trim());
+            if (weight > 0) {
+                weights.put(value, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Brak wartości o dodatniej wadze: " + text);
+        }
+        return weights;
+    }
+
+    private static String pick(Map<String, Integer> weights, Random random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int target = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            target -= entry.getValue();
+            if (target < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static int endpointIndex(String endpoint) {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (ENDPOINTS[i].equals(endpoint)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Nieznany endpoint: " + endpoint);
+    }
+
+    private static String generateText(int length, Random random) {
+        StringBuilder text = new StringBuilder(length + 32);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        text.setLength(length);
+        // Tekst w ścieżce URL nie może kończyć się spacją ani kropką (obcinane przez klientów i serwery)
+        text.setCharAt(length - 1, 'x');
+        return text.toString();
+    }
+
+    private static String encodePath(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String jsonStrings(String[] values) {
+        StringBuilder json = new StringBuilder();
+        for (String value : values) {
+            if (json.length() > 0) {
+                json.append(',');
+            }
+            json.append(jsonString(value));
+        }
+        return json.toString();
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,169 @@
+package pl.put.poznan.transformer.app;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.MappedFileReader;
+import pl.put.poznan.transformer.logic.PhraseDictionaries;
+import pl.put.poznan.transformer.logic.StreamingPipeline;
+import pl.put.poznan.transformer.logic.TransformerFactory;
+
+/**
+ * Tryb wiersza poleceń przekształcający pliki lokalne bez uruchamiania serwera WWW ani kontekstu Springa.
+ * <p>
+ * Użycie: {@code java -jar text-transformer.jar transform --transforms=latex,numbertotext wejście wyjście}.
+ * Wejście czytane jest przez odwzorowane w pamięci fragmenty pliku ({@link MappedFileReader}),
+ * przetwarzane strumieniowo łańcuchem z {@link TransformerFactory#createStreaming(String[], int)},
+ * a wynik zapisywany przez buforowany kanał.
+ * <p>
+ * Etapy przechowują tekst od ostatniej granicy przetwarzania (np. białego znaku, końca zdania albo
+ * końca ciągu powtórzonych słów), więc zużycie sterty zależy od najdłuższego fragmentu bez granicy,
+ * a nie od rozmiaru pliku. Fragment dłuższy niż {@code --max-pending} znaków (domyślnie
+ * {@link StreamingPipeline#DEFAULT_MAX_PENDING}) przerywa przetwarzanie z błędem, a plik wynikowy
+ * zawiera wtedy tylko wynik tekstu przed tym fragmentem. Transformacja {@code inverse} potrzebuje
+ * całego tekstu, więc plik większy niż jedna ósma maksymalnej sterty ({@code -Xmx}) jest odrzucany przed
+ * rozpoczęciem przetwarzania zamiast wyczerpać pamięć.
+ * <p>
+ * Wyjście {@code -} oznacza standardowe wyjście. Opcje {@code --abbreviations} i {@code --expansions}
+ * wskazują pliki słowników (domyślnie słowniki wbudowane).
+ */
+public final class FileTransformCommand {
+
+    /** Pierwszy argument programu wybierający ten tryb. */
+    public static final String NAME = "transform";
+
+    /** Rozmiar bufora kanału wyjściowego w bajtach. */
+    static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final String USAGE = "Użycie: transform --transforms=nazwa[,nazwa...] "
+            + "[--abbreviations=plik] [--expansions=plik] [--max-pending=znaki] wejście wyjście|-";
+
+    private FileTransformCommand() {
+    }
+
+    /**
+     * Wykonuje polecenie.
+     *
+     * @param args Argumenty po nazwie polecenia.
+     * @param err  Strumień komunikatów o błędach.
+     * @return Kod wyjścia: 0 - sukces, 1 - błąd przetwarzania, 2 - niepoprawne argumenty.
+     */
+    public static int run(String[] args, PrintStream err) {
+        String transforms = null;
+        String abbreviations = null;
+        String expansions = null;
+        String maxPending = null;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--transforms=")) {
+                transforms = arg.substring("--transforms=".length());
+            } else if (arg.startsWith("--abbreviations=")) {
+                abbreviations = arg.substring("--abbreviations=".length());
+            } else if (arg.startsWith("--expansions=")) {
+                expansions = arg.substring("--expansions=".length());
+            } else if (arg.startsWith("--max-pending=")) {
+                maxPending = arg.substring("--max-pending=".length());
+            } else if (arg.startsWith("--")) {
+                err.println("Nieznana opcja: " + arg);
+                err.println(USAGE);
+                return 2;
+            } else {
+                files.add(arg);
+            }
+        }
+        if (transforms == null || files.size() != 2) {
+            err.println(USAGE);
+            return 2;
+        }
+
+        int limit = StreamingPipeline.DEFAULT_MAX_PENDING;
+        if (maxPending != null) {
+            try {
+                limit = Integer.parseInt(maxPending);
+            } catch (NumberFormatException e) {
+                limit = 0;
+            }
+            if (limit <= 0) {
+                err.println("Niepoprawna wartość --max-pending: " + maxPending);
+                return 2;
+            }
+        }
+
+        StreamingPipeline pipeline;
+        try {
+            pipeline = TransformerFactory.createStreaming(transforms.split(","), limit);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+
+        try {
+            if (abbreviations != null) {
+                PhraseDictionaries.publishAbbreviations(PhraseDictionaries.load(Path.of(abbreviations)));
+            }
+            if (expansions != null) {
+                PhraseDictionaries.publishExpansions(PhraseDictionaries.load(Path.of(expansions)));
+            }
+            Path input = Path.of(files.get(0));
+            long size = Files.size(input);
+            if (pipeline.buffersInput() && size > maxBufferedBytes()) {
+                err.println("Błąd: plik " + input + " ma " + size + " bajtów, a transformacja "
+                        + "buforująca cały tekst (np. inverse) przyjmuje najwyżej " + maxBufferedBytes()
+                        + " bajtów przy obecnym rozmiarze sterty (-Xmx)");
+                return 1;
+            }
+            transform(pipeline, input, files.get(1));
+            return 0;
+        } catch (AdmissionControl.LimitExceededException e) {
+            err.println("Błąd: " + e.getMessage() + "; zwiększ limit opcją --max-pending");
+            return 1;
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Błąd: " + e);
+            return 1;
+        }
+    }
+
+    /**
+     * Największy rozmiar pliku, który można w całości zbuforować w pamięci. Znaków nie jest więcej niż
+     * bajtów UTF-8, a bufor, jego kopia przy powiększaniu i wynik zajmują do 2 bajtów na znak każdy,
+     * więc plik może zająć najwyżej jedną ósmą sterty. Ogranicza go też największa długość tekstu w Javie.
+     *
+     * @return Rozmiar w bajtach.
+     */
+    static long maxBufferedBytes() {
+        return Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Przekształca plik wejściowy, zapisując wynik do pliku albo na standardowe wyjście.
+     *
+     * @param pipeline Łańcuch transformacji.
+     * @param input    Plik wejściowy w UTF-8.
+     * @param output   Ścieżka pliku wynikowego albo {@code -} dla standardowego wyjścia.
+     * @throws IOException jeśli wystąpił błąd odczytu, dekodowania lub zapisu.
+     */
+    static void transform(StreamingPipeline pipeline, Path input, String output) throws IOException {
+        try (Reader reader = new MappedFileReader(input);
+             WritableByteChannel channel = "-".equals(output)
+                     ? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+                     : FileChannel.open(Path.of(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), OUTPUT_BUFFER_SIZE)) {
+            pipeline.transform(reader, writer);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package pl.put.poznan.transformer.app;
 
+import java.util.Arrays;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,6 +9,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * Główna klasa aplikacji Spring Boot.
  * <p>
  * Odpowiada za uruchomienie aplikacji i skanowanie pakietów w celu automatycznej konfiguracji komponentów.
+ * Uruchomiona z pierwszym argumentem {@code transform} przekształca pliki lokalne w trybie wiersza
+ * poleceń ({@link FileTransformCommand}), bez uruchamiania kontekstu Springa.
  */
 @SpringBootApplication(scanBasePackages = {"pl.put.poznan.transformer.rest"})
 public class TextTransformerApplication {
@@ -16,6 +20,9 @@ public class TextTransformerApplication {
      * @param args parametry wejściowe aplikacji
      */
     public static void main(String[] args) {
+        if (args.length > 0 && FileTransformCommand.NAME.equals(args[0])) {
+            System.exit(FileTransformCommand.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+        }
         SpringApplication.run(TextTransformerApplication.class, args);
 
     }
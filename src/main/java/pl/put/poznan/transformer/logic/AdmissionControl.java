@@ -0,0 +1,488 @@
+package pl.put.poznan.transformer.logic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Ograniczenia rozmiaru zapytań i sterowanie dopuszczaniem kosztownych transformacji.
+ * <p>
+ * {@link #checkLimits(String[], int)} odrzuca zapytania o zbyt długim łańcuchu, zbyt długim tekście
+ * albo zbyt wysokim koszcie szacowanym przez {@link TransformerFactory#estimateCost(String[], long)}.
+ * Dla zapytań, których długość poznaje się dopiero podczas czytania, {@link #checkStream(String[], long)}
+ * przekłada limit kosztu na największą długość tekstu, a {@link #checkStreamLength(long, long)}
+ * i {@link #checkBody(long, long)} sprawdzają liczbę przeczytanych znaków lub bajtów.
+ * <p>
+ * {@link #admit(long)} przepuszcza od razu zapytania tańsze niż {@code cheapCost}. Kosztowne zapytania
+ * są odrzucane, gdy zajętość sterty po ostatnim odśmiecaniu przekracza {@code heapThreshold},
+ * a w pozostałych przypadkach wykonywane co najwyżej po {@code maxConcurrent} naraz - albo
+ * pojedynczo, gdy obciążenie procesora przekracza {@code cpuThreshold}. Zapytanie, które nie mieści
+ * się w limicie, czeka w kolejce co najwyżej {@code maxWait}; pełna kolejka albo przekroczony czas
+ * oczekiwania kończą się odrzuceniem. Każde odrzucenie jest liczone według przyczyny.
+ * <p>
+ * Klasa jest bezpieczna wątkowo.
+ */
+public final class AdmissionControl {
+
+    /**
+     * Przyczyna odrzucenia zapytania.
+     */
+    public enum Reason {
+        /** Treść żądania przekracza dopuszczalny rozmiar. */
+        BODY,
+        /** Łańcuch zawiera zbyt wiele transformacji. */
+        CHAIN,
+        /** Tekst jest zbyt długi. */
+        TEXT,
+        /** Szacowany koszt przekracza limit. */
+        COST,
+        /** Obciążenie procesora nie spadło w czasie oczekiwania. */
+        CPU,
+        /** Zajętość sterty przekracza próg. */
+        HEAP,
+        /** Kolejka oczekujących jest pełna albo czas oczekiwania minął. */
+        QUEUE
+    }
+
+    /**
+     * Zapytanie przekraczające skonfigurowany limit rozmiaru lub kosztu.
+     */
+    public static final class LimitExceededException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final Reason reason;
+
+        LimitExceededException(Reason reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+
+        /**
+         * @return Przekroczony limit.
+         */
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * Zgoda na wykonanie zapytania. Zamknięcie zwalnia miejsce dla kolejnych zapytań.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Czas, po którym oczekujące zapytanie ponownie sprawdza sygnały obciążenia. */
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** Czas, przez który odczyt obciążenia procesora i sterty jest używany ponownie. */
+    private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final Permit CHEAP = () -> {
+    };
+
+    /** Długość tekstu, dla której szacowany jest koszt znaku łańcucha. */
+    private static final long COST_UNIT = 1 << 20;
+
+    private final int maxTransforms;
+    private final int maxTextLength;
+    private final long maxCost;
+    private final long cheapCost;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final double cpuThreshold;
+    private final double heapThreshold;
+    private final DoubleSupplier cpuLoad;
+    private final DoubleSupplier heapUsage;
+
+    // Wątki wirtualne czekające na Condition nie blokują wątku nośnego, w przeciwieństwie do Object.wait()
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int running;
+    private int waiting;
+
+    private final Map<Reason, AtomicLong> rejected = new EnumMap<>(Reason.class);
+    private final AtomicLong admittedCheap = new AtomicLong();
+    private final AtomicLong admittedExpensive = new AtomicLong();
+
+    /**
+     * Tworzy sterowanie dopuszczaniem korzystające z obciążenia procesora i sterty bieżącej JVM.
+     *
+     * @param maxTransforms Największa liczba transformacji w łańcuchu.
+     * @param maxTextLength Największa długość tekstu w znakach.
+     * @param maxCost       Największy szacowany koszt zapytania.
+     * @param cheapCost     Koszt, poniżej którego zapytanie jest dopuszczane bez sprawdzania obciążenia.
+     * @param maxConcurrent Największa liczba jednocześnie wykonywanych kosztownych zapytań; 0 oznacza liczbę procesorów.
+     * @param maxQueue      Największa liczba kosztownych zapytań oczekujących na dopuszczenie.
+     * @param maxWait       Najdłuższy czas oczekiwania na dopuszczenie.
+     * @param cpuThreshold  Obciążenie procesora (0-1), od którego kosztowne zapytania wykonywane są pojedynczo.
+     * @param heapThreshold Zajętość sterty (0-1), od której kosztowne zapytania są odrzucane.
+     */
+    public AdmissionControl(int maxTransforms, int maxTextLength, long maxCost, long cheapCost, int maxConcurrent,
+                            int maxQueue, Duration maxWait, double cpuThreshold, double heapThreshold) {
+        this(maxTransforms, maxTextLength, maxCost, cheapCost, maxConcurrent, maxQueue, maxWait,
+                cpuThreshold, heapThreshold, sampled(AdmissionControl::systemCpuLoad),
+                sampled(AdmissionControl::heapUsageAfterGc));
+    }
+
+    AdmissionControl(int maxTransforms, int maxTextLength, long maxCost, long cheapCost, int maxConcurrent,
+                     int maxQueue, Duration maxWait, double cpuThreshold, double heapThreshold,
+                     DoubleSupplier cpuLoad, DoubleSupplier heapUsage) {
+        this.maxTransforms = maxTransforms;
+        this.maxTextLength = maxTextLength;
+        this.maxCost = maxCost;
+        this.cheapCost = cheapCost;
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.cpuThreshold = cpuThreshold;
+        this.heapThreshold = heapThreshold;
+        this.cpuLoad = cpuLoad;
+        this.heapUsage = heapUsage;
+        for (Reason reason : Reason.values()) {
+            rejected.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * Sprawdza limity długości łańcucha, długości tekstu i szacowanego kosztu.
+     *
+     * @param transforms Tablica nazw transformacji (może być {@code null}).
+     * @param length     Długość tekstu w znakach.
+     * @return Szacowany koszt zapytania.
+     * @throws LimitExceededException   jeśli zapytanie przekracza limit.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public long checkLimits(String[] transforms, int length) {
+        checkChain(transforms);
+        checkText(length);
+        return checkCost(TransformerFactory.estimateCost(transforms, length));
+    }
+
+    /**
+     * Sprawdza limity dla wielu tekstów przetwarzanych tym samym łańcuchem. Limit długości dotyczy
+     * każdego tekstu osobno, a limit kosztu - łącznej długości tekstów.
+     *
+     * @param transforms Tablica nazw transformacji (może być {@code null}).
+     * @param texts      Teksty wejściowe; wartości {@code null} są pomijane.
+     * @return Szacowany łączny koszt zapytania.
+     * @throws LimitExceededException   jeśli zapytanie przekracza limit.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public long checkLimits(String[] transforms, List<String> texts) {
+        checkChain(transforms);
+        long total = 0;
+        for (String text : texts) {
+            if (text != null) {
+                checkText(text.length());
+                total += text.length();
+            }
+        }
+        return checkCost(TransformerFactory.estimateCost(transforms, total));
+    }
+
+    /**
+     * Sprawdza limity zapytania strumieniowego, którego tekst nie jest wczytywany w całości do pamięci
+     * i którego długość poznaje się dopiero podczas czytania. Koszt rośnie z długością tekstu, więc limit
+     * kosztu przekłada się na największą długość, jaką łańcuch może przetworzyć.
+     *
+     * @param transforms Tablica nazw transformacji (może być {@code null}).
+     * @param maxLength  Największa długość tekstu w znakach, niezależnie od kosztu.
+     * @return Największa dopuszczalna długość tekstu w znakach.
+     * @throws LimitExceededException   jeśli łańcuch jest zbyt długi.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public long checkStream(String[] transforms, long maxLength) {
+        checkChain(transforms);
+        long unitCost = TransformerFactory.estimateCost(transforms, COST_UNIT);
+        if (unitCost == 0) {
+            return maxLength;
+        }
+        return Math.min(maxLength, (long) ((double) maxCost / unitCost * COST_UNIT));
+    }
+
+    /**
+     * Sprawdza liczbę znaków przeczytanych dotąd ze strumienia.
+     *
+     * @param length    Liczba przeczytanych znaków.
+     * @param maxLength Największa dopuszczalna długość z {@link #checkStream(String[], long)}.
+     * @throws LimitExceededException jeśli tekst przekracza limit.
+     */
+    public void checkStreamLength(long length, long maxLength) {
+        if (length > maxLength) {
+            throw reject(Reason.TEXT, "Tekst przekracza " + maxLength + " znaków");
+        }
+    }
+
+    /**
+     * Sprawdza liczbę bajtów przeczytanych dotąd z treści żądania, np. po dekompresji.
+     *
+     * @param bytes    Liczba przeczytanych bajtów.
+     * @param maxBytes Największy dopuszczalny rozmiar treści w bajtach.
+     * @throws LimitExceededException jeśli treść przekracza limit.
+     */
+    public void checkBody(long bytes, long maxBytes) {
+        if (bytes > maxBytes) {
+            throw reject(Reason.BODY, "Treść żądania przekracza " + maxBytes + " bajtów");
+        }
+    }
+
+    private void checkChain(String[] transforms) {
+        if (transforms != null && transforms.length > maxTransforms) {
+            throw reject(Reason.CHAIN, "Łańcuch zawiera " + transforms.length
+                    + " transformacji, dopuszczalne " + maxTransforms);
+        }
+    }
+
+    private void checkText(int length) {
+        if (length > maxTextLength) {
+            throw reject(Reason.TEXT, "Tekst ma " + length + " znaków, dopuszczalne " + maxTextLength);
+        }
+    }
+
+    private long checkCost(long cost) {
+        if (cost > maxCost) {
+            throw reject(Reason.COST, "Szacowany koszt transformacji " + cost + " przekracza limit " + maxCost);
+        }
+        return cost;
+    }
+
+    private LimitExceededException reject(Reason reason, String message) {
+        recordRejection(reason);
+        return new LimitExceededException(reason, message);
+    }
+
+    /**
+     * Dopuszcza zapytanie o podanym koszcie, w razie potrzeby czekając na zwolnienie miejsca.
+     *
+     * @param cost Szacowany koszt z {@link #checkLimits(String[], int)}.
+     * @return Zgoda, którą należy zamknąć po wykonaniu zapytania.
+     * @throws RejectedExecutionException jeśli serwer jest przeciążony albo oczekiwanie przerwano.
+     */
+    public Permit admit(long cost) {
+        if (cost < cheapCost) {
+            admittedCheap.incrementAndGet();
+            return CHEAP;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        lock.lock();
+        try {
+            boolean queued = false;
+            try {
+                while (true) {
+                    if (heapUsage.getAsDouble() >= heapThreshold) {
+                        throw shed(Reason.HEAP, "Zbyt duża zajętość pamięci");
+                    }
+                    boolean cpuBusy = cpuLoad.getAsDouble() >= cpuThreshold;
+                    if (running < (cpuBusy ? 1 : maxConcurrent)) {
+                        running++;
+                        admittedExpensive.incrementAndGet();
+                        return this::release;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw cpuBusy ? shed(Reason.CPU, "Zbyt duże obciążenie procesora")
+                                : shed(Reason.QUEUE, "Przekroczono czas oczekiwania na wykonanie");
+                    }
+                    if (!queued) {
+                        if (waiting >= maxQueue) {
+                            throw shed(Reason.QUEUE, "Kolejka oczekujących zapytań jest pełna");
+                        }
+                        waiting++;
+                        queued = true;
+                    }
+                    // Oczekiwanie jest ograniczone, aby ponownie sprawdzić obciążenie procesora
+                    released.awaitNanos(Math.min(remaining, RECHECK_NANOS));
+                }
+            } finally {
+                if (queued) {
+                    waiting--;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Przerwano oczekiwanie na dopuszczenie", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RejectedExecutionException shed(Reason reason, String message) {
+        recordRejection(reason);
+        return new RejectedExecutionException(message);
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zlicza odrzucenie stwierdzone poza tą klasą, np. zbyt dużą treść żądania.
+     *
+     * @param reason Przyczyna odrzucenia.
+     */
+    public void recordRejection(Reason reason) {
+        rejected.get(reason).incrementAndGet();
+    }
+
+    /**
+     * @param reason Przyczyna odrzucenia.
+     * @return Liczba zapytań odrzuconych z podanej przyczyny.
+     */
+    public long getRejectedCount(Reason reason) {
+        return rejected.get(reason).get();
+    }
+
+    /**
+     * @return Największa długość tekstu wczytywanego w całości do pamięci, w znakach.
+     */
+    public int getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    /**
+     * @return Liczba zapytań dopuszczonych bez sprawdzania obciążenia.
+     */
+    public long getAdmittedCheapCount() {
+        return admittedCheap.get();
+    }
+
+    /**
+     * @return Liczba dopuszczonych kosztownych zapytań.
+     */
+    public long getAdmittedExpensiveCount() {
+        return admittedExpensive.get();
+    }
+
+    /**
+     * @return Liczba wykonywanych kosztownych zapytań.
+     */
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Liczba kosztownych zapytań oczekujących na dopuszczenie.
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Ostatni odczyt obciążenia procesora (0-1).
+     */
+    public double getCpuLoad() {
+        return cpuLoad.getAsDouble();
+    }
+
+    /**
+     * @return Ostatni odczyt zajętości sterty (0-1).
+     */
+    public double getHeapUsage() {
+        return heapUsage.getAsDouble();
+    }
+
+    /**
+     * Zapamiętuje odczyt sygnału na {@link #SAMPLE_NANOS}, aby odczyty przez JMX nie obciążały
+     * każdego zapytania. Wyścig przy odświeżaniu jest nieszkodliwy - najwyżej dwa wątki odczytają sygnał.
+     */
+    private static DoubleSupplier sampled(DoubleSupplier signal) {
+        return new DoubleSupplier() {
+            private volatile double value = signal.getAsDouble();
+            private volatile long sampledAt = System.nanoTime();
+
+            @Override
+            public double getAsDouble() {
+                long now = System.nanoTime();
+                if (now - sampledAt >= SAMPLE_NANOS) {
+                    value = signal.getAsDouble();
+                    sampledAt = now;
+                }
+                return value;
+            }
+        };
+    }
+
+    private static double systemCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = -1;
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            load = ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad();
+        }
+        if (load < 0) {
+            // Bez pomiaru obciążenia całego systemu średnie obciążenie na procesor jest najbliższym przybliżeniem
+            load = os.getSystemLoadAverage() / os.getAvailableProcessors();
+        }
+        return Math.max(0.0, load);
+    }
+
+    private static double heapUsageAfterGc() {
+        return heapUsageAfterGc(ManagementFactory.getMemoryPoolMXBeans());
+    }
+
+    /**
+     * Zajętość sterty po ostatnim odśmiecaniu: udział pamięci żywych obiektów w limicie puli starej
+     * generacji albo jedynej puli sterty (np. ZGC, Shenandoah). Pule młodej generacji pomija, bo po
+     * odśmiecaniu przeżywalnik bywa prawie pełny bez żadnej presji, a bieżąca zajętość całej sterty
+     * rośnie do limitu między odśmiecaniami.
+     *
+     * @param pools Pule pamięci JVM.
+     * @return Zajętość od 0 do 1; bieżąca zajętość sterty, jeśli żadna pula nie pozwala jej ustalić.
+     */
+    static double heapUsageAfterGc(List<MemoryPoolMXBean> pools) {
+        MemoryUsage tenured = null;
+        MemoryUsage only = null;
+        int heapPools = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            heapPools++;
+            MemoryUsage collected = pool.getCollectionUsage();
+            if (collected == null || collected.getMax() <= 0) {
+                continue;
+            }
+            String name = pool.getName();
+            if (name.contains("Old") || name.contains("Tenured")) {
+                tenured = collected;
+            }
+            only = collected;
+        }
+        MemoryUsage usage = tenured != null ? tenured : heapPools == 1 ? only : null;
+        if (usage == null) {
+            Runtime runtime = Runtime.getRuntime();
+            return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        }
+        return (double) usage.getUsed() / usage.getMax();
+    }
+}
@@ -0,0 +1,328 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automat Aho-Corasick zamieniający wiele fraz w tekście w jednym, liniowym przejściu.
+ * <p>
+ * Dopasowywanie nie rozróżnia wielkości liter. Spośród nakładających się dopasowań wybierane jest
+ * to, które zaczyna się najwcześniej, a przy równym początku - najdłuższe. Tekst zastępczy
+ * wstawiany jest dosłownie. Automat jest niezmienny po zbudowaniu i może być współdzielony
+ * przez wiele wątków.
+ */
+public final class AhoCorasickAutomaton {
+
+    private static final int ROOT = 0;
+    private static final int ROOT_TABLE_SIZE = 0x180;
+
+    /** Przejścia w formacie CSR: krawędzie węzła {@code n} leżą w zakresie {@code [edgeStart[n], edgeStart[n + 1])}. */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    /** Bezpośrednia tablica przejść z korzenia dla znaków łacińskich (w tym polskich). */
+    private final int[] rootTable;
+    private final int[] fail;
+    /** Pierwszy węzeł końcowy osiągalny z danego węzła po łańcuchu dowiązań (lub korzeń). */
+    private final int[] output;
+    private final int[] depth;
+    /** Indeks tekstu zastępczego dla węzła końcowego albo -1. */
+    private final int[] pattern;
+    private final String[] replacements;
+    private final int maxPatternLength;
+
+    private AhoCorasickAutomaton(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail, int[] output,
+                                 int[] depth, int[] pattern, String[] replacements, int maxPatternLength) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.output = output;
+        this.depth = depth;
+        this.pattern = pattern;
+        this.replacements = replacements;
+        this.maxPatternLength = maxPatternLength;
+        this.rootTable = new int[ROOT_TABLE_SIZE];
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            if (edgeChars[e] < ROOT_TABLE_SIZE) {
+                rootTable[edgeChars[e]] = edgeTargets[e];
+            }
+        }
+    }
+
+    /**
+     * Buduje automat na podstawie słownika fraz.
+     * <p>
+     * Puste frazy są pomijane. Jeśli dwie frazy różnią się jedynie wielkością liter,
+     * obowiązuje tekst zastępczy frazy występującej później w kolejności iteracji mapy.
+     *
+     * @param dictionary Słownik: fraza wyszukiwana -&gt; tekst zastępczy.
+     * @return Skompilowany automat.
+     */
+    public static AhoCorasickAutomaton compile(Map<String, String> dictionary) {
+        // Budowa drzewa trie na tymczasowych mapach
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        List<String> replacements = new ArrayList<>();
+        children.add(new HashMap<>());
+        depths.add(0);
+        patterns.add(-1);
+        int maxLength = 0;
+
+        for (Map.Entry<String, String> entry : dictionary.entrySet()) {
+            String phrase = entry.getKey();
+            if (phrase == null || phrase.isEmpty()) {
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = fold(phrase.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    depths.add(depths.get(node) + 1);
+                    patterns.add(-1);
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (patterns.get(node) >= 0) {
+                replacements.set(patterns.get(node), entry.getValue());
+            } else {
+                patterns.set(node, replacements.size());
+                replacements.add(entry.getValue());
+            }
+            maxLength = Math.max(maxLength, phrase.length());
+        }
+
+        // Spłaszczenie krawędzi do tablic posortowanych po znaku
+        int nodes = children.size();
+        int[] edgeStart = new int[nodes + 1];
+        for (int n = 0; n < nodes; n++) {
+            edgeStart[n + 1] = edgeStart[n] + children.get(n).size();
+        }
+        char[] edgeChars = new char[edgeStart[nodes]];
+        int[] edgeTargets = new int[edgeStart[nodes]];
+        for (int n = 0; n < nodes; n++) {
+            Character[] keys = children.get(n).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            int e = edgeStart[n];
+            for (Character key : keys) {
+                edgeChars[e] = key;
+                edgeTargets[e] = children.get(n).get(key);
+                e++;
+            }
+        }
+
+        int[] depth = new int[nodes];
+        int[] pattern = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            depth[n] = depths.get(n);
+            pattern[n] = patterns.get(n);
+        }
+
+        // Dowiązania porażki i wyjścia wyznaczane przeszukiwaniem wszerz
+        int[] fail = new int[nodes];
+        int[] output = new int[nodes];
+        int[] queue = new int[nodes];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                int f = node == ROOT ? ROOT : step(edgeStart, edgeChars, edgeTargets, fail, fail[node], edgeChars[e]);
+                fail[child] = f;
+                output[child] = pattern[f] >= 0 ? f : output[f];
+                queue[tail++] = child;
+            }
+        }
+
+        return new AhoCorasickAutomaton(edgeStart, edgeChars, edgeTargets, fail, output, depth, pattern,
+                replacements.toArray(new String[0]), maxLength);
+    }
+
+    /**
+     * Zamienia wszystkie frazy ze słownika w podanym tekście.
+     *
+     * @param text Tekst wejściowy.
+     * @return Tekst po zamianie; jeśli nie znaleziono żadnej frazy, zwracany jest ten sam obiekt.
+     */
+    public String replaceAll(String text) {
+        StringBuilder result = new StringBuilder();
+        return replace(text, result) ? result.toString() : text;
+    }
+
+    /**
+     * Zamienia wszystkie frazy ze słownika, dopisując wynik do bufora.
+     * <p>
+     * Jeśli w tekście nie występuje żadna fraza, bufor pozostaje nietknięty.
+     *
+     * @param text   Tekst wejściowy.
+     * @param result Bufor, do którego dopisywany jest wynik.
+     * @return {@code true}, jeśli dokonano co najmniej jednej zamiany.
+     */
+    public boolean replace(CharSequence text, StringBuilder result) {
+        return scan(text, true, result, false) >= 0;
+    }
+
+    /**
+     * Zamienia frazy w początkowym fragmencie tekstu, którego wynik nie zależy od dalszych znaków.
+     * <p>
+     * Służy do przetwarzania strumieniowego: znaki od zwróconej pozycji mogą należeć do frazy
+     * kończącej się w kolejnym fragmencie, dlatego należy je dołączyć na początek następnego
+     * wywołania. Nieprzetworzona końcówka ma co najwyżej {@link #getMaxPatternLength()} znaków.
+     *
+     * @param text   Tekst wejściowy.
+     * @param last   {@code true}, jeśli to ostatni fragment strumienia - wtedy przetwarzany jest cały tekst.
+     * @param result Bufor, do którego dopisywany jest wynik dla przetworzonego fragmentu.
+     * @return Liczba przetworzonych znaków z początku {@code text}.
+     */
+    public int replacePrefix(CharSequence text, boolean last, StringBuilder result) {
+        return scan(text, last, result, true);
+    }
+
+    /**
+     * Sprawdza, czy tekst można rozciąć na podanej pozycji bez wpływu na wynik zamiany.
+     * <p>
+     * Cięcie jest bezpieczne, jeśli żadne wystąpienie frazy nie obejmuje znaków po obu stronach pozycji.
+     * Wtedy zamiana obu części osobno daje ten sam wynik co zamiana całego tekstu. Sprawdzany jest
+     * jedynie fragment o długości najdłuższej frazy po każdej stronie.
+     *
+     * @param text     Tekst wejściowy.
+     * @param position Pozycja cięcia, {@code 0 < position < text.length()}.
+     * @return {@code true}, jeśli cięcie jest bezpieczne.
+     */
+    public boolean isSafeCut(CharSequence text, int position) {
+        if (maxPatternLength <= 1) {
+            return true;
+        }
+        int from = Math.max(0, position - maxPatternLength + 1);
+        int to = Math.min(text.length(), position + maxPatternLength - 1);
+        int state = ROOT;
+        for (int i = from; i < to; i++) {
+            state = next(state, fold(text.charAt(i)));
+            if (i < position) {
+                continue;
+            }
+            for (int node = pattern[state] >= 0 ? state : output[state]; node != ROOT; node = output[node]) {
+                if (i - depth[node] + 1 < position) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Przechodzi automatem po tekście, dopisując zamiany w miarę rozstrzygania dopasowań.
+     *
+     * @return Liczba przetworzonych znaków albo -1, jeśli nic nie zamieniono, a {@code copyUnmatched} jest fałszywe.
+     */
+    private int scan(CharSequence text, boolean last, StringBuilder result, boolean copyUnmatched) {
+        int length = text.length();
+        if (maxPatternLength == 0 || length == 0) {
+            if (!copyUnmatched) {
+                return -1;
+            }
+            result.append(text);
+            return length;
+        }
+        int window = maxPatternLength;
+        // Bufor cykliczny: najdłuższe dopasowanie dla każdego początku z ostatnich "window" pozycji
+        int[] slotStart = new int[window];
+        int[] slotNode = new int[window];
+        Arrays.fill(slotStart, -1);
+
+        int state = ROOT;
+        int resolved = 0;
+        int copied = 0;
+        boolean replaced = false;
+
+        for (int i = 0; i < length; i++) {
+            state = next(state, fold(text.charAt(i)));
+            for (int node = pattern[state] >= 0 ? state : output[state]; node != ROOT; node = output[node]) {
+                int start = i - depth[node] + 1;
+                if (start < resolved) {
+                    continue;
+                }
+                int slot = start % window;
+                if (slotStart[slot] != start) {
+                    slotStart[slot] = start;
+                    slotNode[slot] = node;
+                } else if (depth[node] > depth[slotNode[slot]]) {
+                    slotNode[slot] = node;
+                }
+            }
+            // Każde dopasowanie zaczynające się na pozycji <= i - window + 1 jest już znane
+            int limit = i - window + 1;
+            if (last && i == length - 1) {
+                limit = length - 1;
+            }
+            while (resolved <= limit) {
+                int slot = resolved % window;
+                if (slotStart[slot] == resolved) {
+                    int node = slotNode[slot];
+                    if (!replaced) {
+                        result.ensureCapacity(result.length() + length);
+                        replaced = true;
+                    }
+                    result.append(text, copied, resolved).append(replacements[pattern[node]]);
+                    copied = resolved + depth[node];
+                    resolved = copied;
+                } else {
+                    resolved++;
+                }
+            }
+        }
+        if (!replaced && !copyUnmatched) {
+            return -1;
+        }
+        result.append(text, copied, resolved);
+        return resolved;
+    }
+
+    /**
+     * @return Długość najdłuższej frazy w słowniku.
+     */
+    public int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+
+    /**
+     * @return Liczba fraz w słowniku.
+     */
+    public int size() {
+        return replacements.length;
+    }
+
+    private int next(int state, char c) {
+        if (state == ROOT && c < ROOT_TABLE_SIZE) {
+            return rootTable[c];
+        }
+        return step(edgeStart, edgeChars, edgeTargets, fail, state, c);
+    }
+
+    private static int step(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail, int state, char c) {
+        while (true) {
+            int e = Arrays.binarySearch(edgeChars, edgeStart[state], edgeStart[state + 1], c);
+            if (e >= 0) {
+                return edgeTargets[e];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+}
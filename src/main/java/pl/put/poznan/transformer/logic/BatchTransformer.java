@@ -0,0 +1,137 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Wykonuje jeden łańcuch transformacji na wielu tekstach jednocześnie.
+ * <p>
+ * Łańcuch jest kompilowany raz, a teksty przetwarzane równolegle w podanej puli fork-join,
+ * więc batch nie zajmuje wspólnej puli JVM używanej przez inne części aplikacji.
+ * Wyniki zachowują kolejność wejścia, a błąd pojedynczego tekstu nie przerywa przetwarzania pozostałych.
+ */
+public final class BatchTransformer {
+
+    /**
+     * Wynik przetwarzania pojedynczego tekstu: przekształcony tekst albo komunikat błędu.
+     */
+    public static final class Result {
+        private final String transformedText;
+        private final String error;
+
+        private Result(String transformedText, String error) {
+            this.transformedText = transformedText;
+            this.error = error;
+        }
+
+        /**
+         * @return Przekształcony tekst lub {@code null}, jeśli wystąpił błąd.
+         */
+        public String getTransformedText() {
+            return transformedText;
+        }
+
+        /**
+         * @return Komunikat błędu lub {@code null}, jeśli przetwarzanie się powiodło.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /** Poniżej tej liczby tekstów koszt podziału pracy między wątki przewyższa zysk. */
+    static final int PARALLEL_THRESHOLD = 64;
+
+    /** Liczba tekstów, poniżej której zadanie nie jest już dzielone między wątki. */
+    private static final int SPLIT_SIZE = 16;
+
+    private BatchTransformer() {
+    }
+
+    /**
+     * Przetwarza wszystkie teksty tym samym łańcuchem transformacji w wątku wywołującym.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param texts      Teksty do przetworzenia.
+     * @return Wyniki w kolejności odpowiadającej tekstom wejściowym.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static List<Result> transformAll(String[] transforms, List<String> texts) {
+        return transformAll(transforms, texts, null);
+    }
+
+    /**
+     * Przetwarza wszystkie teksty tym samym łańcuchem transformacji, dzieląc duże batche
+     * między wątki podanej puli.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param texts      Teksty do przetworzenia.
+     * @param pool       Pula wątków dla batchy od {@link #PARALLEL_THRESHOLD} tekstów albo {@code null},
+     *                   jeśli wszystkie teksty mają być przetworzone w wątku wywołującym.
+     * @return Wyniki w kolejności odpowiadającej tekstom wejściowym.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static List<Result> transformAll(String[] transforms, List<String> texts, ForkJoinPool pool) {
+        TextTransformerInterface transformer = TransformerFactory.getTransformer(transforms);
+        Result[] results = new Result[texts.size()];
+        if (pool != null && results.length >= PARALLEL_THRESHOLD) {
+            pool.invoke(new BatchTask(transformer, texts, results, 0, results.length));
+        } else {
+            transformRange(transformer, texts, results, 0, results.length);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Zadanie przetwarzające zakres tekstów, dzielone na połowy aż do {@link #SPLIT_SIZE} tekstów.
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient TextTransformerInterface transformer;
+        private final transient List<String> texts;
+        private final transient Result[] results;
+        private final int from;
+        private final int to;
+
+        BatchTask(TextTransformerInterface transformer, List<String> texts, Result[] results, int from, int to) {
+            this.transformer = transformer;
+            this.texts = texts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(transformer, texts, results, from, middle),
+                        new BatchTask(transformer, texts, results, middle, to));
+                return;
+            }
+            transformRange(transformer, texts, results, from, to);
+        }
+    }
+
+    private static void transformRange(TextTransformerInterface transformer, List<String> texts,
+                                       Result[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = transformOne(transformer, texts.get(i));
+        }
+    }
+
+    private static Result transformOne(TextTransformerInterface transformer, String text) {
+        if (text == null) {
+            return new Result(null, "Brak tekstu do przetworzenia");
+        }
+        try {
+            return new Result(transformer.transform(text), null);
+        } catch (RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new Result(null, message);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Zwarty, binarny format wymiany tekstów między usługami.
+ * <p>
+ * Transformacje identyfikowane są małymi liczbami z rejestru wyznaczanego z {@link TransformType}
+ * (kolejne stałe otrzymują kolejne numery od 1, nowe transformacje dopisywane są na końcu).
+ * Liczby całkowite zapisywane są jako varint (LEB128 bez znaku), a teksty jako ramki: długość
+ * w bajtach, po której następuje tekst w UTF-8.
+ * <pre>
+ * żądanie:   wersja(1 bajt) liczbaTransformacji id... liczbaTekstów (długość bajty)...
+ * odpowiedź: wersja(1 bajt) liczbaWyników (status(1 bajt) długość bajty)...
+ * </pre>
+ * Status 0 oznacza przekształcony tekst, 1 - komunikat błędu dla danego tekstu. Kompresja
+ * całego strumienia (gzip, deflate) uzgadniana jest nagłówkami HTTP i nie jest częścią formatu.
+ * Błędy formatu zgłaszane są jako {@link ProtocolException}.
+ */
+public final class BinaryProtocol {
+
+    /** Typ treści żądań i odpowiedzi w tym formacie. */
+    public static final String MEDIA_TYPE = "application/x-transformer-frames";
+
+    /** Wersja formatu zapisywana w pierwszym bajcie. */
+    public static final int VERSION = 1;
+
+    /** Status ramki z przekształconym tekstem. */
+    public static final int STATUS_OK = 0;
+
+    /** Status ramki z komunikatem błędu. */
+    public static final int STATUS_ERROR = 1;
+
+    /** Najdłuższa dopuszczalna lista transformacji w żądaniu. */
+    public static final int MAX_TRANSFORMS = 1024;
+
+    private static final TransformType[] TYPES = TransformType.values();
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Błąd formatu danych binarnych: nieznana wersja, nieznany identyfikator, ucięta lub zbyt duża ramka.
+     */
+    public static final class ProtocolException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param message Opis błędu.
+         */
+        public ProtocolException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param type Transformacja.
+     * @return Identyfikator transformacji w formacie binarnym.
+     */
+    public static int idOf(TransformType type) {
+        return type.ordinal() + 1;
+    }
+
+    /**
+     * @param id Identyfikator transformacji w formacie binarnym.
+     * @return Transformacja o podanym identyfikatorze.
+     * @throws IllegalArgumentException jeśli identyfikator jest nieznany.
+     */
+    public static TransformType fromId(int id) {
+        if (id < 1 || id > TYPES.length) {
+            throw new IllegalArgumentException("Nieznany identyfikator transformacji: " + id);
+        }
+        return TYPES[id - 1];
+    }
+
+    /**
+     * @return Rejestr identyfikatorów: nazwa transformacji -&gt; identyfikator, w kolejności identyfikatorów.
+     */
+    public static Map<String, Integer> registry() {
+        Map<String, Integer> registry = new LinkedHashMap<>();
+        for (TransformType type : TYPES) {
+            registry.put(type.getName(), idOf(type));
+        }
+        return registry;
+    }
+
+    /**
+     * Odczytuje żądania lub odpowiedzi ze strumienia. Instancja obsługuje jeden strumień.
+     */
+    public static final class Decoder {
+        private final InputStream in;
+        private final int maxFrameBytes;
+        private byte[] buffer = new byte[256];
+
+        /**
+         * @param in            Strumień wejściowy; jest buforowany przez dekoder.
+         * @param maxFrameBytes Największa dopuszczalna długość ramki w bajtach.
+         */
+        public Decoder(InputStream in, int maxFrameBytes) {
+            this.in = new BufferedInputStream(in, 8192);
+            this.maxFrameBytes = maxFrameBytes;
+        }
+
+        /**
+         * Odczytuje wersję i listę transformacji z początku żądania.
+         *
+         * @return Nazwy transformacji w kolejności z żądania.
+         * @throws ProtocolException jeśli wersja lub identyfikator są nieznane.
+         * @throws IOException       jeśli wystąpił błąd odczytu.
+         */
+        public String[] readRequestHeader() throws IOException {
+            readVersion();
+            int count = readCount();
+            if (count > MAX_TRANSFORMS) {
+                throw new ProtocolException("Zbyt wiele transformacji: " + count);
+            }
+            String[] transforms = new String[count];
+            for (int i = 0; i < count; i++) {
+                int id = readVarint();
+                if (id < 1 || id > TYPES.length) {
+                    throw new ProtocolException("Nieznany identyfikator transformacji: " + id);
+                }
+                transforms[i] = TYPES[id - 1].getName();
+            }
+            return transforms;
+        }
+
+        /**
+         * Odczytuje wersję z początku odpowiedzi.
+         *
+         * @throws IOException jeśli wersja jest nieznana lub wystąpił błąd odczytu.
+         */
+        public void readResponseHeader() throws IOException {
+            readVersion();
+        }
+
+        /**
+         * @return Liczba elementów (transformacji, tekstów lub wyników), która następuje w strumieniu.
+         * @throws IOException jeśli liczba jest niepoprawna lub wystąpił błąd odczytu.
+         */
+        public int readCount() throws IOException {
+            return readVarint();
+        }
+
+        /**
+         * @return Kolejny tekst żądania.
+         * @throws IOException jeśli ramka jest ucięta, zbyt duża lub wystąpił błąd odczytu.
+         */
+        public String readText() throws IOException {
+            int length = readVarint();
+            if (length > maxFrameBytes) {
+                throw new ProtocolException("Ramka przekracza limit " + maxFrameBytes + " bajtów: " + length);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, 2 * buffer.length)];
+            }
+            int read = in.readNBytes(buffer, 0, length);
+            if (read < length) {
+                throw new ProtocolException("Ucięta ramka tekstu");
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Odczytuje status kolejnego wyniku odpowiedzi; po nim następuje ramka z tekstem.
+         *
+         * @return {@link #STATUS_OK} albo {@link #STATUS_ERROR}.
+         * @throws IOException jeśli status jest nieznany lub wystąpił błąd odczytu.
+         */
+        public int readStatus() throws IOException {
+            int status = readByte();
+            if (status != STATUS_OK && status != STATUS_ERROR) {
+                throw new ProtocolException("Nieznany status wyniku: " + status);
+            }
+            return status;
+        }
+
+        private void readVersion() throws IOException {
+            int version = readByte();
+            if (version != VERSION) {
+                throw new ProtocolException("Nieobsługiwana wersja formatu: " + version);
+            }
+        }
+
+        private int readByte() throws IOException {
+            int value = in.read();
+            if (value < 0) {
+                throw new ProtocolException("Nieoczekiwany koniec danych");
+            }
+            return value;
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                if (shift == 28 && (b & 0xF8) != 0) {
+                    // Piąty bajt może zawierać tylko 3 najniższe bity nieujemnej liczby int
+                    break;
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new ProtocolException("Niepoprawna liczba w formacie varint");
+        }
+    }
+
+    /**
+     * Zapisuje żądania lub odpowiedzi do strumienia. Instancja obsługuje jeden strumień.
+     */
+    public static final class Encoder {
+        private final OutputStream out;
+
+        /**
+         * @param out Strumień wyjściowy; jest buforowany przez koder.
+         */
+        public Encoder(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 8192);
+        }
+
+        /**
+         * Zapisuje wersję, listę transformacji i liczbę tekstów żądania.
+         *
+         * @param transforms Transformacje w kolejności wykonania.
+         * @param textCount  Liczba tekstów, które zostaną zapisane przez {@link #writeText(String)}.
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void writeRequestHeader(TransformType[] transforms, int textCount) throws IOException {
+            out.write(VERSION);
+            writeVarint(transforms.length);
+            for (TransformType type : transforms) {
+                writeVarint(idOf(type));
+            }
+            writeVarint(textCount);
+        }
+
+        /**
+         * Zapisuje wersję i liczbę wyników odpowiedzi.
+         *
+         * @param resultCount Liczba wyników, które zostaną zapisane.
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void writeResponseHeader(int resultCount) throws IOException {
+            out.write(VERSION);
+            writeVarint(resultCount);
+        }
+
+        /**
+         * @param text Tekst żądania.
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void writeText(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * @param text Przekształcony tekst.
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void writeResult(String text) throws IOException {
+            out.write(STATUS_OK);
+            writeText(text);
+        }
+
+        /**
+         * @param message Komunikat błędu przetwarzania tekstu.
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void writeError(String message) throws IOException {
+            out.write(STATUS_ERROR);
+            writeText(message);
+        }
+
+        /**
+         * Zapisuje zbuforowane dane do strumienia wyjściowego.
+         *
+         * @throws IOException jeśli wystąpił błąd zapisu.
+         */
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Odwzorowanie wielkości liter wykonywane znak po znaku dla podanego locale.
+ * <p>
+ * Wynik jest zgodny z {@link String#toUpperCase(Locale)} i {@link String#toLowerCase(Locale)}.
+ * Znaki, dla których metody klasy {@code String} dają inny wynik niż proste odwzorowanie
+ * z {@link Character} (np. "ß" -&gt; "SS" albo tureckie "i" -&gt; "İ"), są wyznaczane raz przy
+ * tworzeniu odwzorowania. Jedynym odstępstwem jest kontekstowa sigma końcowa, której nie da się
+ * rozpoznać znak po znaku. Tryb {@code toggle} zamienia wielkie litery na małe, a małe na wielkie.
+ * <p>
+ * Domyślnym locale (także zamiast {@code null}) jest pl-PL, niezależnie od ustawień JVM.
+ * Odwzorowania dla innych locale tworzone są przy pierwszym użyciu i zapamiętywane.
+ * <p>
+ * Użyte samodzielnie, jako {@link TextStage}, odwzorowanie przetwarza znaki łacińskie (w tym
+ * ASCII, Latin-1 i polskie) bezpośrednio z tablicy; tekst, który już ma docelową wielkość liter,
+ * zwracany jest bez kopiowania.
+ */
+final class CaseMappingStage implements CharMappingStage, TextStage {
+
+    /** Locale używane, jeśli nie podano innego. */
+    static final Locale DEFAULT_LOCALE = Locale.forLanguageTag("pl-PL");
+
+    private static final int UPPER_MODE = 0;
+    private static final int LOWER_MODE = 1;
+    private static final int TOGGLE_MODE = 2;
+
+    private static final Map<Locale, CaseMappingStage[]> BY_LOCALE = new ConcurrentHashMap<>();
+
+    static final CaseMappingStage UPPER = upper(DEFAULT_LOCALE);
+    static final CaseMappingStage LOWER = lower(DEFAULT_LOCALE);
+    static final CaseMappingStage TOGGLE = toggle(DEFAULT_LOCALE);
+
+    private static final int LATIN_LIMIT = 0x250;
+
+    private final int mode;
+    private final Locale locale;
+    /** Obrazy znaków łacińskich (w tym polskich) lub {@link #EXPANDS}. */
+    private final int[] latin = new int[LATIN_LIMIT];
+    /** Znaki BMP, dla których proste odwzorowanie z {@link Character} jest niepoprawne. */
+    private final BitSet special = new BitSet(Character.MAX_VALUE + 1);
+
+    private CaseMappingStage(int mode, Locale locale) {
+        this.mode = mode;
+        this.locale = locale;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (Character.isSurrogate((char) c)) {
+                continue;
+            }
+            String mapped = convert(c);
+            boolean simple = mapped.length() == 1 && mapped.charAt(0) == simpleMap(c);
+            if (!simple) {
+                special.set(c);
+            }
+            if (c < LATIN_LIMIT) {
+                latin[c] = mapped.length() == 1 ? mapped.charAt(0) : EXPANDS;
+            }
+        }
+    }
+
+    /**
+     * @param locale Locale określające reguły zmiany wielkości liter.
+     * @return Odwzorowanie na wielkie litery.
+     */
+    static CaseMappingStage upper(Locale locale) {
+        return forLocale(locale)[UPPER_MODE];
+    }
+
+    /**
+     * @param locale Locale określające reguły zmiany wielkości liter.
+     * @return Odwzorowanie na małe litery.
+     */
+    static CaseMappingStage lower(Locale locale) {
+        return forLocale(locale)[LOWER_MODE];
+    }
+
+    /**
+     * @param locale Locale określające reguły zmiany wielkości liter.
+     * @return Odwzorowanie zamieniające wielkość każdej litery na przeciwną.
+     */
+    static CaseMappingStage toggle(Locale locale) {
+        return forLocale(locale)[TOGGLE_MODE];
+    }
+
+    private static CaseMappingStage[] forLocale(Locale locale) {
+        return BY_LOCALE.computeIfAbsent(locale == null ? DEFAULT_LOCALE : locale, key -> new CaseMappingStage[]{
+                new CaseMappingStage(UPPER_MODE, key),
+                new CaseMappingStage(LOWER_MODE, key),
+                new CaseMappingStage(TOGGLE_MODE, key)
+        });
+    }
+
+    @Override
+    public int map(int codePoint) {
+        if (codePoint < LATIN_LIMIT) {
+            return latin[codePoint];
+        }
+        if (codePoint <= Character.MAX_VALUE) {
+            return special.get(codePoint) ? EXPANDS : simpleMap(codePoint);
+        }
+        String mapped = convert(codePoint);
+        return mapped.codePointCount(0, mapped.length()) == 1 ? mapped.codePointAt(0) : EXPANDS;
+    }
+
+    @Override
+    public void expand(int codePoint, StringBuilder output) {
+        output.append(convert(codePoint));
+    }
+
+    @Override
+    public CharSequence apply(CharSequence input, StringBuilder output) {
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c < LATIN_LIMIT) {
+                if (latin[c] != c) {
+                    break;
+                }
+                i++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(input, i);
+            if (map(codePoint) != codePoint) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (i == length) {
+            return input;
+        }
+
+        output.ensureCapacity(output.length() + length + 16);
+        output.append(input, 0, i);
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c < LATIN_LIMIT && latin[c] != EXPANDS) {
+                output.append((char) latin[c]);
+                i++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(input, i);
+            i += Character.charCount(codePoint);
+            int mapped = map(codePoint);
+            if (mapped == EXPANDS) {
+                expand(codePoint, output);
+            } else {
+                output.appendCodePoint(mapped);
+            }
+        }
+        return output;
+    }
+
+    private int simpleMap(int codePoint) {
+        switch (mode) {
+            case UPPER_MODE:
+                return Character.toUpperCase(codePoint);
+            case LOWER_MODE:
+                return Character.toLowerCase(codePoint);
+            default:
+                if (Character.isUpperCase(codePoint) || Character.isTitleCase(codePoint)) {
+                    return Character.toLowerCase(codePoint);
+                }
+                return Character.isLowerCase(codePoint) ? Character.toUpperCase(codePoint) : codePoint;
+        }
+    }
+
+    private String convert(int codePoint) {
+        String text = new String(Character.toChars(codePoint));
+        switch (mode) {
+            case UPPER_MODE:
+                return text.toUpperCase(locale);
+            case LOWER_MODE:
+                return text.toLowerCase(locale);
+            default:
+                if (Character.isUpperCase(codePoint) || Character.isTitleCase(codePoint)) {
+                    return text.toLowerCase(locale);
+                }
+                return Character.isLowerCase(codePoint) ? text.toUpperCase(locale) : text;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.Locale;
+
+/**
+ * Zmiana wielkości liter zależna od położenia w tekście: styl tytułowy albo zdaniowy.
+ * <p>
+ * W stylu tytułowym pierwsza litera każdego słowa staje się wielka, a pozostałe małe. Apostrof
+ * między literami (np. "don't") nie rozpoczyna nowego słowa. W stylu zdaniowym wielka jest tylko
+ * pierwsza litera lub cyfra tekstu oraz pierwsza po znaku kończącym zdanie ({@code . ! ? …}),
+ * po którym wystąpił biały znak; pozostałe litery stają się małe.
+ * <p>
+ * Litery odwzorowywane są przez {@link CaseMappingStage} dla podanego locale. Jeśli tekst ma już
+ * docelową postać, zwracane jest wejście bez kopiowania. Instancja jest niezmienna i bezpieczna wątkowo.
+ */
+final class CaseStyleStage implements TextStage {
+
+    static final CaseStyleStage TITLE = new CaseStyleStage(true, CaseMappingStage.DEFAULT_LOCALE);
+    static final CaseStyleStage SENTENCE = new CaseStyleStage(false, CaseMappingStage.DEFAULT_LOCALE);
+
+    private final boolean title;
+    private final CaseMappingStage upper;
+    private final CaseMappingStage lower;
+
+    /**
+     * Tworzy etap zmiany wielkości liter.
+     *
+     * @param title  {@code true} dla stylu tytułowego, {@code false} dla zdaniowego.
+     * @param locale Locale określające reguły zmiany wielkości liter.
+     */
+    CaseStyleStage(boolean title, Locale locale) {
+        this.title = title;
+        this.upper = CaseMappingStage.upper(locale);
+        this.lower = CaseMappingStage.lower(locale);
+    }
+
+    @Override
+    public CharSequence apply(CharSequence input, StringBuilder output) {
+        int length = input.length();
+        boolean start = true;
+        boolean terminated = false;
+        boolean copying = false;
+        int i = 0;
+        while (i < length) {
+            int codePoint = Character.codePointAt(input, i);
+            int next = i + Character.charCount(codePoint);
+            CaseMappingStage mapping = null;
+            if (Character.isLetterOrDigit(codePoint)) {
+                mapping = start ? upper : lower;
+                start = false;
+                terminated = false;
+            } else if (title) {
+                start = !isMark(codePoint) && !isInnerApostrophe(input, i, codePoint);
+            } else if (isTerminator(codePoint)) {
+                terminated = true;
+            } else if (terminated && Character.isWhitespace(codePoint)) {
+                start = true;
+            }
+            int mapped = mapping == null ? codePoint : mapping.map(codePoint);
+            if (mapped != codePoint && !copying) {
+                output.ensureCapacity(output.length() + length + 16);
+                output.append(input, 0, i);
+                copying = true;
+            }
+            if (copying) {
+                if (mapped == CharMappingStage.EXPANDS) {
+                    mapping.expand(codePoint, output);
+                } else {
+                    output.appendCodePoint(mapped);
+                }
+            }
+            i = next;
+        }
+        return copying ? output : input;
+    }
+
+    /**
+     * Sprawdza, czy w stylu zdaniowym tekst można rozciąć na podanej pozycji tak, aby fragment
+     * zaczynający się od niej był przetwarzany jak początek zdania.
+     *
+     * @param text     Tekst wejściowy.
+     * @param position Pozycja cięcia, {@code 0 < position < text.length()}.
+     * @return {@code true}, jeśli pozycję poprzedza koniec zdania i biały znak albo sam początek tekstu.
+     */
+    static boolean isSentenceStart(CharSequence text, int position) {
+        if (!Character.isWhitespace(text.charAt(position - 1))) {
+            return false;
+        }
+        int i = position - 1;
+        while (i > 0) {
+            int codePoint = Character.codePointBefore(text, i);
+            if (isTerminator(codePoint)) {
+                return true;
+            }
+            if (Character.isLetterOrDigit(codePoint)) {
+                return false;
+            }
+            i -= Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    /**
+     * Tworzy granicę przetwarzania strumieniowego tuż przed ostatnim początkiem zdania
+     * ({@link #isSentenceStart(CharSequence, int)}). Granica pamięta, dokąd przejrzała bufor, i czy od
+     * ostatniej litery lub cyfry wystąpił koniec zdania, więc każdy znak sprawdzany jest raz.
+     *
+     * @return Granica dla jednego strumienia.
+     */
+    static StreamingPipeline.Boundary sentenceBoundary() {
+        return new StreamingPipeline.Boundary() {
+            private int scanned;
+            /** Od ostatniej litery lub cyfry przed {@code scanned} wystąpił koniec zdania albo początek tekstu. */
+            private boolean open = true;
+
+            @Override
+            public int safePrefix(CharSequence pending) {
+                int length = pending.length();
+                int cut = 0;
+                int i = scanned;
+                while (i < length) {
+                    if (i > 0 && open && Character.isWhitespace(pending.charAt(i - 1))) {
+                        cut = i;
+                    }
+                    if (i == length - 1 && Character.isHighSurrogate(pending.charAt(i))) {
+                        // Druga połowa pary dopiero w kolejnym fragmencie
+                        break;
+                    }
+                    int codePoint = Character.codePointAt(pending, i);
+                    if (isTerminator(codePoint)) {
+                        open = true;
+                    } else if (Character.isLetterOrDigit(codePoint)) {
+                        open = false;
+                    }
+                    i += Character.charCount(codePoint);
+                }
+                // Po cięciu przed początkiem zdania stan jest taki jak na początku tekstu
+                scanned = i - cut;
+                return cut;
+            }
+        };
+    }
+
+    private static boolean isTerminator(int codePoint) {
+        return codePoint == '.' || codePoint == '!' || codePoint == '?' || codePoint == '…';
+    }
+
+    private static boolean isMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    private static boolean isInnerApostrophe(CharSequence text, int i, int codePoint) {
+        return (codePoint == '\'' || codePoint == '’') && i > 0 && i + 1 < text.length()
+                && Character.isLetter(Character.codePointBefore(text, i))
+                && Character.isLetter(Character.codePointAt(text, i + 1));
+    }
+}
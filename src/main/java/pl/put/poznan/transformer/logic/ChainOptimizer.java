@@ -0,0 +1,40 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Upraszcza łańcuch transformacji przed jego wykonaniem, korzystając z własności {@link TransformType}.
+ * <p>
+ * Transformacja jest pomijana, jeśli transformacje wykonywane po niej nadpisują cały jej wynik
+ * ({@link TransformType#isOverriddenBy(List)}): powtórzenia transformacji idempotentnych, np.
+ * {@code upper, upper}, zwijane są do jednej, a {@code upper, lower, upper} do {@code lower, upper}.
+ * Przepisania są dokładne - wynik nie zmienia się dla żadnego tekstu. Pozostałe sąsiednie
+ * transformacje znakowe łączone są w jedno przejście przez {@link FusedCharStage}.
+ * <p>
+ * Odwracanie tekstu nie jest inwolucją: wielkość liter przenoszona jest według pozycji, więc
+ * np. "A1" -&gt; "1a" -&gt; "a1". Podwójne odwrócenie nie jest więc usuwane.
+ */
+final class ChainOptimizer {
+
+    private ChainOptimizer() {
+    }
+
+    /**
+     * Usuwa z łańcucha transformacje, których wynik jest nadpisywany przez kolejne.
+     *
+     * @param ordered Transformacje w kolejności wykonania (po {@link CompiledPipeline#order(List)}).
+     * @return Równoważny łańcuch, nie dłuższy niż wejściowy.
+     */
+    static List<TransformType> optimize(List<TransformType> ordered) {
+        // Przejście od końca: o pominięciu decyduje już uproszczona reszta łańcucha
+        List<TransformType> optimized = new ArrayList<>(ordered.size());
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            TransformType type = ordered.get(i);
+            if (!type.isOverriddenBy(optimized)) {
+                optimized.add(0, type);
+            }
+        }
+        return optimized;
+    }
+}
@@ -0,0 +1,31 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Etap przekształcający tekst znak po znaku, niezależnie od sąsiednich znaków.
+ * <p>
+ * Sąsiadujące etapy tego typu są łączone przez {@link FusedCharStage} w jedno przejście po tekście.
+ * Obraz punktu kodowego musi zależeć wyłącznie od niego samego - złożenie odwzorowań jest
+ * wyznaczane z góry dla całego BMP.
+ */
+interface CharMappingStage {
+    /**
+     * Wartość zwracana przez {@link #map(int)}, gdy znak zamienia się na więcej niż jeden punkt kodowy.
+     */
+    int EXPANDS = -1;
+
+    /**
+     * Zwraca obraz punktu kodowego.
+     *
+     * @param codePoint Punkt kodowy wejściowy.
+     * @return Punkt kodowy wyjściowy albo {@link #EXPANDS}.
+     */
+    int map(int codePoint);
+
+    /**
+     * Dopisuje wielo-znakowy obraz punktu kodowego, dla którego {@link #map(int)} zwrócił {@link #EXPANDS}.
+     *
+     * @param codePoint Punkt kodowy wejściowy.
+     * @param output    Bufor wyjściowy.
+     */
+    void expand(int codePoint, StringBuilder output);
+}
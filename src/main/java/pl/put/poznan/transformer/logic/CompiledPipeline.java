@@ -0,0 +1,136 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skompilowany łańcuch transformacji wykonywany etap po etapie na współdzielonych buforach.
+ * <p>
+ * Przed kompilacją łańcuch jest upraszczany przez {@link ChainOptimizer}. Sąsiednie transformacje znakowe są łączone w jeden etap {@link FusedCharStage}, a pozostałe
+ * etapy zapisują wynik naprzemiennie do dwóch buforów. Łańcuch N transformacji tworzy więc
+ * co najwyżej dwa bufory i jeden końcowy {@code String}, zamiast N pośrednich obiektów.
+ * Miejsce w buforze rezerwowane jest dopiero przy pierwszym zapisie - tekst, którego żaden etap
+ * nie zmienia, przechodzi przez łańcuch bez kopiowania.
+ * Wynik jest taki sam jak dla łańcucha dekoratorów z {@link TransformerFactory#createTransformer(String[])}.
+ * Etapy są mierzone tylko wtedy, gdy przy kompilacji podano {@link StageMetrics}.
+ * Instancja jest niezmienna i bezpieczna wątkowo.
+ */
+final class CompiledPipeline implements TextTransformerInterface {
+
+    /**
+     * Nazwa etapów połączonych z kilku transformacji znakowych w pomiarach. Wspólna dla wszystkich
+     * połączeń, bo ich liczba zależy od zapytań klientów i nie może wyznaczać liczby serii metryk.
+     */
+    static final String FUSED_STAGE = "fused";
+
+    private final TextStage[] stages;
+
+    private CompiledPipeline(List<TextStage> stages) {
+        this.stages = stages.toArray(new TextStage[0]);
+    }
+
+    /**
+     * Kompiluje listę transformacji do łańcucha etapów.
+     *
+     * @param types Transformacje w kolejności podanej w zapytaniu.
+     * @return Skompilowany łańcuch.
+     */
+    static CompiledPipeline compile(List<TransformType> types) {
+        return compile(types, null);
+    }
+
+    /**
+     * Kompiluje listę transformacji do łańcucha etapów, opcjonalnie mierząc każdy etap.
+     *
+     * @param types   Transformacje w kolejności podanej w zapytaniu.
+     * @param metrics Odbiorca pomiarów etapów albo {@code null}, jeśli etapy nie mają być mierzone.
+     * @return Skompilowany łańcuch.
+     */
+    static CompiledPipeline compile(List<TransformType> types, StageMetrics metrics) {
+        List<TransformType> ordered = ChainOptimizer.optimize(order(types));
+        List<TextStage> stages = new ArrayList<>();
+        List<TransformType> run = new ArrayList<>();
+        for (TransformType type : ordered) {
+            if (type.isCharMapping()) {
+                run.add(type);
+                continue;
+            }
+            flush(run, stages, metrics);
+            stages.add(instrument(type.getName(), type.stage(), metrics));
+        }
+        flush(run, stages, metrics);
+        return new CompiledPipeline(stages);
+    }
+
+    /**
+     * Ustala kolejność wykonania etapów tak, aby odpowiadała zagnieżdżeniu dekoratorów.
+     */
+    static List<TransformType> order(List<TransformType> types) {
+        List<TransformType> ordered = new ArrayList<>(types.size());
+        for (TransformType type : types) {
+            switch (type.placement()) {
+                case FIRST:
+                    ordered.add(0, type);
+                    break;
+                default:
+                    ordered.add(type);
+            }
+        }
+        return ordered;
+    }
+
+    private static void flush(List<TransformType> run, List<TextStage> stages, StageMetrics metrics) {
+        if (run.size() == 1) {
+            // Pojedyncza transformacja korzysta z własnego, wyspecjalizowanego etapu
+            TransformType type = run.get(0);
+            stages.add(instrument(type.getName(), type.stage(), metrics));
+        } else if (!run.isEmpty()) {
+            List<CharMappingStage> mappings = new ArrayList<>(run.size());
+            for (TransformType type : run) {
+                mappings.add(type.mapping());
+            }
+            stages.add(instrument(FUSED_STAGE, new FusedCharStage(mappings), metrics));
+        }
+        run.clear();
+    }
+
+    private static TextStage instrument(String name, TextStage stage, StageMetrics metrics) {
+        return metrics == null ? stage : new InstrumentedStage(name, stage, metrics);
+    }
+
+    @Override
+    public String transform(String text) {
+        if (stages.length == 0) {
+            return text;
+        }
+        CharSequence current = text;
+        StringBuilder first = null;
+        StringBuilder second = null;
+        for (TextStage stage : stages) {
+            // Bufory są puste - etap rezerwuje w nich miejsce dopiero, gdy zaczyna zapisywać wynik,
+            // więc etapy, które nic nie zmieniają, nie kopiują ani nie alokują tekstu
+            StringBuilder target;
+            if (current != first) {
+                if (first == null) {
+                    first = new StringBuilder();
+                }
+                target = first;
+            } else {
+                if (second == null) {
+                    second = new StringBuilder();
+                }
+                target = second;
+            }
+            target.setLength(0);
+            current = stage.apply(current, target);
+        }
+        return current.toString();
+    }
+
+    /**
+     * @return Liczba etapów po połączeniu transformacji znakowych.
+     */
+    int stageCount() {
+        return stages.length;
+    }
+}
@@ -0,0 +1,301 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Usuwa powtórzone słowa w jednym, liniowym przejściu po tekście, bez wyrażeń regularnych.
+ * <p>
+ * Tekst dzielony jest na słowa i separatory. Słowo jest usuwane razem z poprzedzającymi go
+ * białymi znakami, jeśli jest równe jednemu z {@code window} ostatnich pozostawionych słów,
+ * a wszystkie separatory od tamtego słowa są wyłącznie białymi znakami. Znak interpunkcyjny
+ * przerywa więc ciąg porównywanych słów. Dla okna równego 1 wynik odpowiada wyrażeniu
+ * {@code \b(\w+)(\s+\1)+\b} zastępowanemu przez {@code $1}.
+ * <p>
+ * Instancja jest niezmienna i może być współdzielona przez wiele wątków.
+ */
+public final class DuplicateWordRemover {
+
+    /** Konfiguracja domyślna: bez rozróżniania wielkości liter, słowa Unicode, tylko sąsiednie powtórzenia. */
+    public static final DuplicateWordRemover DEFAULT = new DuplicateWordRemover(false, true, 1);
+
+    private final boolean caseSensitive;
+    private final boolean unicodeWords;
+    private final int window;
+
+    /**
+     * Tworzy usuwacz powtórzeń o podanej konfiguracji.
+     *
+     * @param caseSensitive {@code true}, jeśli słowa różniące się wielkością liter są różne.
+     * @param unicodeWords  {@code true}, jeśli słowa składają się z liter i cyfr Unicode (np. polskich);
+     *                      {@code false} ogranicza je do {@code [A-Za-z0-9_]} jak {@code \w}.
+     * @param window        Liczba ostatnich słów, z którymi porównywane jest kolejne słowo (co najmniej 1).
+     * @throws IllegalArgumentException jeśli okno jest mniejsze niż 1.
+     */
+    public DuplicateWordRemover(boolean caseSensitive, boolean unicodeWords, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Okno musi obejmować co najmniej jedno słowo: " + window);
+        }
+        this.caseSensitive = caseSensitive;
+        this.unicodeWords = unicodeWords;
+        this.window = window;
+    }
+
+    /**
+     * Usuwa powtórzone słowa z tekstu.
+     *
+     * @param text Tekst wejściowy.
+     * @return Tekst bez powtórzeń; jeśli nic nie usunięto, zwracany jest ten sam obiekt.
+     */
+    public String removeAll(String text) {
+        StringBuilder result = new StringBuilder();
+        return remove(text, result) ? result.toString() : text;
+    }
+
+    /**
+     * Usuwa powtórzone słowa, dopisując wynik do bufora.
+     * <p>
+     * Jeśli w tekście nie ma powtórzeń, bufor pozostaje nietknięty.
+     *
+     * @param text   Tekst wejściowy.
+     * @param result Bufor, do którego dopisywany jest wynik.
+     * @return {@code true}, jeśli usunięto co najmniej jedno słowo.
+     */
+    public boolean remove(CharSequence text, StringBuilder result) {
+        int length = text.length();
+        // Bufor cykliczny zakresów ostatnich pozostawionych słów
+        int[] recentStart = new int[window];
+        int[] recentEnd = new int[window];
+        int recent = 0;
+        int separatorStart = 0;
+        int copied = 0;
+        boolean removed = false;
+        int i = 0;
+        while (i < length) {
+            int codePoint = Character.codePointAt(text, i);
+            if (!isWordChar(codePoint)) {
+                if (!isSpace(codePoint)) {
+                    recent = 0;
+                }
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            i = wordEnd(text, i);
+            if (recent > 0 && repeatsRecent(text, recentStart, recentEnd, recent, start, i)) {
+                if (!removed) {
+                    result.ensureCapacity(result.length() + length);
+                    removed = true;
+                }
+                result.append(text, copied, separatorStart);
+                copied = i;
+            } else {
+                int slot = recent % window;
+                recentStart[slot] = start;
+                recentEnd[slot] = i;
+                recent++;
+            }
+            separatorStart = i;
+        }
+        if (removed) {
+            result.append(text, copied, length);
+        }
+        return removed;
+    }
+
+    /**
+     * Wyznacza długość początku tekstu, którego wynik nie zależy od dalszych znaków.
+     * <p>
+     * Służy do przetwarzania strumieniowego. Dla okna 1 granica wypada przed ostatnim pełnym słowem,
+     * które nie powtarza poprzedniego, więc ciąg powtórzeń nie zostanie rozcięty. Dla szerszego okna
+     * granica wypada tylko przed słowem następującym po znaku przerywającym ciąg porównań.
+     *
+     * @param pending Nieprzetworzony tekst.
+     * @return Liczba znaków, które można przetworzyć niezależnie od reszty strumienia.
+     */
+    public int safePrefix(CharSequence pending) {
+        return streamBoundary().safePrefix(pending);
+    }
+
+    /**
+     * Tworzy granicę przetwarzania strumieniowego wyznaczaną jak w {@link #safePrefix(CharSequence)},
+     * ale przyrostowo: granica pamięta, dokąd przejrzała bufor, razem z ostatnim słowem i niedokończonym
+     * słowem na końcu bufora. Ciąg powtórzeń, który nie daje granicy, nie jest więc przeglądany ponownie
+     * przy każdym kolejnym fragmencie.
+     *
+     * @return Granica dla jednego strumienia.
+     */
+    StreamingPipeline.Boundary streamBoundary() {
+        return new StreamingPipeline.Boundary() {
+            private int scanned;
+            /** Początek słowa, którego koniec nie został jeszcze wczytany, albo -1. */
+            private int wordStart = -1;
+            private int previousStart = -1;
+            private int previousEnd = -1;
+            private boolean broken = true;
+
+            @Override
+            public int safePrefix(CharSequence pending) {
+                int length = pending.length();
+                int cut = 0;
+                int i = scanned;
+                while (true) {
+                    if (wordStart >= 0) {
+                        i = wordEnd(pending, i);
+                        if (i == length || (i == length - 1 && Character.isHighSurrogate(pending.charAt(i)))) {
+                            // Słowo może być kontynuowane w kolejnym fragmencie
+                            break;
+                        }
+                        if (!broken && window == 1 && !sameWord(pending, previousStart, previousEnd, wordStart, i)) {
+                            cut = wordStart;
+                        }
+                        broken = false;
+                        previousStart = wordStart;
+                        previousEnd = i;
+                        wordStart = -1;
+                        continue;
+                    }
+                    if (i == length || (i == length - 1 && Character.isHighSurrogate(pending.charAt(i)))) {
+                        break;
+                    }
+                    int codePoint = Character.codePointAt(pending, i);
+                    if (!isWordChar(codePoint)) {
+                        if (!isSpace(codePoint)) {
+                            broken = true;
+                        }
+                        i += Character.charCount(codePoint);
+                        continue;
+                    }
+                    wordStart = i;
+                    if (broken) {
+                        // Stan przed słowem nie zależy od wcześniejszego tekstu
+                        cut = i;
+                    }
+                }
+                if (cut > 0 && wordStart == cut) {
+                    // Reszta bufora zaczyna się od niedokończonego słowa, przed którym stan jest początkowy
+                    broken = true;
+                }
+                scanned = i - cut;
+                wordStart = wordStart >= 0 ? wordStart - cut : -1;
+                previousStart -= cut;
+                previousEnd -= cut;
+                return cut;
+            }
+        };
+    }
+
+    /**
+     * Sprawdza, czy tekst można rozciąć na podanej pozycji bez wpływu na wynik usuwania powtórzeń.
+     * <p>
+     * Pozycja musi być początkiem słowa, które na pewno zostanie pozostawione i po którym stan
+     * porównań nie zależy od wcześniejszego tekstu: słowo poprzedza znak przerywający ciąg porównań
+     * albo, dla okna 1, słowo różni się od poprzedniego.
+     *
+     * @param text     Tekst wejściowy.
+     * @param position Pozycja cięcia, {@code 0 < position < text.length()}.
+     * @return {@code true}, jeśli cięcie jest bezpieczne.
+     */
+    public boolean isSafeCut(CharSequence text, int position) {
+        if (!isWordChar(Character.codePointAt(text, position))) {
+            return false;
+        }
+        int i = position;
+        while (i > 0) {
+            int codePoint = Character.codePointBefore(text, i);
+            if (isWordChar(codePoint)) {
+                break;
+            }
+            if (!isSpace(codePoint)) {
+                return true;
+            }
+            i -= Character.charCount(codePoint);
+        }
+        if (i == position) {
+            // Pozycja w środku słowa
+            return false;
+        }
+        if (i == 0) {
+            return true;
+        }
+        if (window > 1) {
+            return false;
+        }
+        int previousEnd = i;
+        while (i > 0 && isWordChar(Character.codePointBefore(text, i))) {
+            i -= Character.charCount(Character.codePointBefore(text, i));
+        }
+        return !sameWord(text, i, previousEnd, position, wordEnd(text, position));
+    }
+
+    private int wordEnd(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length) {
+            int codePoint = Character.codePointAt(text, i);
+            if (!isWordChar(codePoint)) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    private boolean repeatsRecent(CharSequence text, int[] recentStart, int[] recentEnd, int recent,
+                                  int start, int end) {
+        for (int k = Math.min(recent, window); k > 0; k--) {
+            int slot = (recent - k) % window;
+            if (sameWord(text, recentStart[slot], recentEnd[slot], start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean sameWord(CharSequence text, int aStart, int aEnd, int bStart, int bEnd) {
+        if (aEnd - aStart != bEnd - bStart) {
+            return false;
+        }
+        int a = aStart;
+        int b = bStart;
+        while (a < aEnd) {
+            int first = Character.codePointAt(text, a);
+            int second = Character.codePointAt(text, b);
+            if (first != second && (caseSensitive || fold(first) != fold(second))) {
+                return false;
+            }
+            a += Character.charCount(first);
+            b += Character.charCount(second);
+        }
+        return true;
+    }
+
+    private int fold(int codePoint) {
+        if (!unicodeWords) {
+            return codePoint >= 'A' && codePoint <= 'Z' ? codePoint + ('a' - 'A') : codePoint;
+        }
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    private boolean isWordChar(int codePoint) {
+        if (codePoint < 0x80) {
+            return (codePoint >= 'a' && codePoint <= 'z') || (codePoint >= 'A' && codePoint <= 'Z')
+                    || (codePoint >= '0' && codePoint <= '9') || codePoint == '_';
+        }
+        if (!unicodeWords) {
+            return false;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.CONNECTOR_PUNCTUATION:
+                return true;
+            default:
+                return Character.isLetterOrDigit(codePoint);
+        }
+    }
+
+    private boolean isSpace(int codePoint) {
+        if (codePoint < 0x80 || !unicodeWords) {
+            return codePoint == ' ' || (codePoint >= '\t' && codePoint <= '\r');
+        }
+        return Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint);
+    }
+}
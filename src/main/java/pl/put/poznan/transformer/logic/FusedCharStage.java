@@ -0,0 +1,238 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Etap wykonujący kilka sąsiednich {@link CharMappingStage} w jednym przejściu po tekście.
+ * <p>
+ * Złożenie odwzorowań wyznaczane jest raz dla całego BMP i zapamiętywane w tablicy
+ * (wspólnej dla etapów o tych samych odwzorowaniach), więc znak BMP przechodzi przez cały
+ * łańcuch jednym odczytem z tablicy. Tablica zajmuje 128 KiB, a zestawów odwzorowań w łańcuchach
+ * klientów może być wiele, dlatego zapamiętywanych jest najwyżej {@link #MAX_TABLES} tablic;
+ * etapy dla kolejnych zestawów przepuszczają każdy znak przez odwzorowania po kolei. Tekst przetwarzany jest fragmentami w tablicach {@code char[]},
+ * w prostej pętli bez wywołań metod i bez tworzenia pośrednich napisów. Tylko znaki, których obraz
+ * nie jest pojedynczym znakiem BMP (rozwinięcia wielo-znakowe, pary surogatów), przechodzą przez
+ * odwzorowania po kolei.
+ * <p>
+ * Dopóki odwzorowania nie zmieniają znaków, nic nie jest kopiowane - jeśli cały tekst pozostaje
+ * bez zmian, zwracane jest wejście.
+ */
+final class FusedCharStage implements TextStage {
+
+    /** Wartość tablicy oznaczająca znak, który trzeba przepuścić przez odwzorowania po kolei. */
+    static final char COMPLEX = '\uFFFF';
+
+    /** Długość fragmentu tekstu przetwarzanego w tablicach pomocniczych. */
+    private static final int CHUNK_SIZE = 8192;
+
+    /** Największa liczba zapamiętanych tablic złożeń (po 128 KiB). */
+    static final int MAX_TABLES = 64;
+
+    private static final Map<List<CharMappingStage>, char[]> TABLES = new ConcurrentHashMap<>();
+
+    private final CharMappingStage[] mappings;
+    /** Tablica złożeń albo {@code null}, jeśli limit tablic został wyczerpany. */
+    private final char[] table;
+
+    /**
+     * Tworzy etap łączący podane odwzorowania.
+     *
+     * @param mappings Odwzorowania w kolejności wykonywania.
+     */
+    FusedCharStage(List<CharMappingStage> mappings) {
+        this(mappings, table(List.copyOf(mappings)));
+    }
+
+    /**
+     * Tworzy etap łączący podane odwzorowania z podaną tablicą złożeń.
+     *
+     * @param mappings Odwzorowania w kolejności wykonywania.
+     * @param table    Tablica złożeń albo {@code null}, aby przepuszczać znaki przez odwzorowania po kolei.
+     */
+    FusedCharStage(List<CharMappingStage> mappings, char[] table) {
+        this.mappings = mappings.toArray(new CharMappingStage[0]);
+        this.table = table;
+    }
+
+    /**
+     * Zwraca wspólną tablicę złożeń odwzorowań, budując ją, jeśli nie przekroczono limitu tablic.
+     *
+     * @return Tablica albo {@code null}, jeśli limit tablic został wyczerpany.
+     */
+    private static char[] table(List<CharMappingStage> mappings) {
+        char[] table = TABLES.get(mappings);
+        if (table != null || TABLES.size() >= MAX_TABLES) {
+            return table;
+        }
+        // Przy jednoczesnym tworzeniu limit może zostać nieznacznie przekroczony
+        return TABLES.computeIfAbsent(mappings, FusedCharStage::buildTable);
+    }
+
+    /**
+     * @return Liczba zapamiętanych tablic złożeń.
+     */
+    static int cachedTableCount() {
+        return TABLES.size();
+    }
+
+    /**
+     * Wyznacza złożenie odwzorowań dla wszystkich znaków BMP.
+     *
+     * @return Tablica obrazów; {@link #COMPLEX} dla surogatów i znaków bez jednoznakowego obrazu w BMP.
+     */
+    static char[] buildTable(List<CharMappingStage> mappings) {
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int mapped = c;
+            if (Character.isSurrogate((char) c)) {
+                mapped = CharMappingStage.EXPANDS;
+            }
+            for (int k = 0; k < mappings.size() && mapped != CharMappingStage.EXPANDS; k++) {
+                mapped = mappings.get(k).map(mapped);
+            }
+            boolean single = mapped != CharMappingStage.EXPANDS && mapped <= Character.MAX_VALUE
+                    && !Character.isSurrogate((char) mapped);
+            table[c] = single ? (char) mapped : COMPLEX;
+        }
+        return table;
+    }
+
+    @Override
+    public CharSequence apply(CharSequence input, StringBuilder output) {
+        if (table == null) {
+            return applyEach(input, output);
+        }
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (table[c] == c && c != COMPLEX) {
+                i++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(input, i);
+            if (table[c] != COMPLEX || !isIdentity(codePoint)) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (i == length) {
+            return input;
+        }
+
+        output.ensureCapacity(output.length() + length + 16);
+        output.append(input, 0, i);
+        char[] source = new char[Math.min(CHUNK_SIZE, length - i)];
+        char[] target = new char[source.length];
+        StringBuilder[] scratch = null;
+        while (i < length) {
+            int count = Math.min(source.length, length - i);
+            getChars(input, i, i + count, source);
+            int j = 0;
+            while (j < count) {
+                int k = j;
+                for (; k < count; k++) {
+                    char mapped = table[source[k]];
+                    if (mapped == COMPLEX) {
+                        break;
+                    }
+                    target[k] = mapped;
+                }
+                output.append(target, j, k - j);
+                if (k == count) {
+                    j = count;
+                    break;
+                }
+                // Para surogatów może sięgać poza fragment, więc punkt kodowy czytany jest z wejścia
+                int codePoint = Character.codePointAt(input, i + k);
+                scratch = append(codePoint, 0, output, scratch);
+                j = k + Character.charCount(codePoint);
+            }
+            i += j;
+        }
+        return output;
+    }
+
+    /**
+     * Przepuszcza każdy punkt kodowy przez odwzorowania po kolei, bez tablicy złożeń.
+     */
+    private CharSequence applyEach(CharSequence input, StringBuilder output) {
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = Character.codePointAt(input, i);
+            if (!isIdentity(codePoint)) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (i == length) {
+            return input;
+        }
+        output.ensureCapacity(output.length() + length + 16);
+        output.append(input, 0, i);
+        StringBuilder[] scratch = null;
+        while (i < length) {
+            int codePoint = Character.codePointAt(input, i);
+            scratch = append(codePoint, 0, output, scratch);
+            i += Character.charCount(codePoint);
+        }
+        return output;
+    }
+
+    private static void getChars(CharSequence input, int from, int to, char[] target) {
+        if (input instanceof String) {
+            ((String) input).getChars(from, to, target, 0);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(from, to, target, 0);
+        } else {
+            for (int i = from; i < to; i++) {
+                target[i - from] = input.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Przepuszcza punkt kodowy przez odwzorowania od indeksu {@code from} i dopisuje wynik.
+     * Rozwinięcia wielo-znakowe trafiają do bufora pomocniczego danego poziomu i są
+     * przetwarzane przez pozostałe odwzorowania.
+     */
+    private StringBuilder[] append(int codePoint, int from, StringBuilder output, StringBuilder[] scratch) {
+        for (int k = from; k < mappings.length; k++) {
+            int mapped = mappings[k].map(codePoint);
+            if (mapped == CharMappingStage.EXPANDS) {
+                if (scratch == null) {
+                    scratch = new StringBuilder[mappings.length];
+                }
+                if (scratch[k] == null) {
+                    scratch[k] = new StringBuilder();
+                }
+                StringBuilder expansion = scratch[k];
+                expansion.setLength(0);
+                mappings[k].expand(codePoint, expansion);
+                for (int j = 0; j < expansion.length(); ) {
+                    int next = expansion.codePointAt(j);
+                    j += Character.charCount(next);
+                    scratch = append(next, k + 1, output, scratch);
+                }
+                return scratch;
+            }
+            codePoint = mapped;
+        }
+        output.appendCodePoint(codePoint);
+        return scratch;
+    }
+
+    private boolean isIdentity(int codePoint) {
+        int mapped = codePoint;
+        for (CharMappingStage mapping : mappings) {
+            mapped = mapping.map(mapped);
+            if (mapped == CharMappingStage.EXPANDS) {
+                return false;
+            }
+        }
+        return mapped == codePoint;
+    }
+}
@@ -0,0 +1,205 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Odwracanie tekstu z zachowaniem klastrów grafemów i pozycyjnej wielkości liter.
+ * <p>
+ * Tekst odwracany jest klaster po klastrze, więc pary surogatów (np. emoji), znaki łączące,
+ * sekwencje emoji z łącznikiem ZWJ, modyfikatory koloru skóry, flagi z par wskaźników
+ * regionalnych i para CR LF nie są rozdzielane. Granice klastrów wyznaczane są według uproszczonych
+ * reguł UAX #29 (bez sekwencji sylab Hangul). Wielkość liter zależy od pozycji: klaster na
+ * pozycji k wyniku otrzymuje wielkość pierwszego znaku klastra na pozycji k wejścia.
+ * <p>
+ * Wynik zapisywany jest w jednym przejściu bezpośrednio do bufora wyjściowego, bez tablic
+ * pośrednich. Teksty złożone wyłącznie ze znaków łacińskich poniżej U+0300 (w tym polskich),
+ * w których każdy znak jest osobnym klastrem, odwracane są znak po znaku.
+ */
+final class GraphemeReverser {
+
+    /** Pierwszy znak łączący; każdy wcześniejszy znak poza CR jest osobnym klastrem. */
+    private static final char COMBINING_START = '\u0300';
+    private static final int ZERO_WIDTH_NON_JOINER = 0x200C;
+    private static final int ZERO_WIDTH_JOINER = 0x200D;
+
+    private GraphemeReverser() {
+    }
+
+    /**
+     * Odwraca tekst, dopisując wynik do bufora.
+     *
+     * @param input  Tekst wejściowy.
+     * @param output Bufor, do którego dopisywany jest wynik.
+     * @return Bufor z wynikiem.
+     */
+    static StringBuilder reverse(CharSequence input, StringBuilder output) {
+        int length = input.length();
+        int offset = output.length();
+        output.setLength(offset + length);
+        if (isSimple(input)) {
+            for (int i = 0; i < length; i++) {
+                char reversed = input.charAt(length - 1 - i);
+                boolean upper = Character.isUpperCase(input.charAt(i));
+                output.setCharAt(offset + i, upper ? Character.toUpperCase(reversed) : Character.toLowerCase(reversed));
+            }
+            return output;
+        }
+        int position = offset;
+        // Klaster, z którego pobierana jest wielkość liter, idzie od początku wejścia
+        int caseStart = 0;
+        // Klaster, z którego pobierana jest treść, idzie od końca wejścia
+        int end = length;
+        // Liczba wskaźników regionalnych tuż przed podstawą klastra albo -1, jeśli nieznana
+        int regional = -1;
+        while (end > 0) {
+            int start = baseStart(input, end);
+            int base = Character.codePointAt(input, start);
+            if (isRegionalIndicator(base)) {
+                if (regional < 0) {
+                    regional = countRegionalIndicators(input, start);
+                }
+                if (regional % 2 == 1) {
+                    // Flaga: para wskaźników liczona od początku ciągu
+                    start -= 2;
+                    regional -= 2;
+                } else {
+                    regional -= 1;
+                }
+                if (regional <= 0) {
+                    regional = -1;
+                }
+            } else {
+                regional = -1;
+            }
+            boolean upper = Character.isUpperCase(Character.codePointAt(input, caseStart));
+            caseStart = clusterEnd(input, caseStart);
+            for (int i = start; i < end; ) {
+                int codePoint = Character.codePointAt(input, i);
+                int count = Character.charCount(codePoint);
+                int mapped = upper ? Character.toUpperCase(codePoint) : Character.toLowerCase(codePoint);
+                if (Character.charCount(mapped) != count) {
+                    mapped = codePoint;
+                }
+                if (count == 1) {
+                    output.setCharAt(position, (char) mapped);
+                } else {
+                    output.setCharAt(position, Character.highSurrogate(mapped));
+                    output.setCharAt(position + 1, Character.lowSurrogate(mapped));
+                }
+                position += count;
+                i += count;
+            }
+            end = start;
+        }
+        return output;
+    }
+
+    private static boolean isSimple(CharSequence input) {
+        for (int i = 0, length = input.length(); i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= COMBINING_START || c == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wyznacza koniec klastra zaczynającego się na podanej pozycji.
+     *
+     * @param text  Tekst.
+     * @param start Początek klastra.
+     * @return Pozycja tuż za klastrem.
+     */
+    static int clusterEnd(CharSequence text, int start) {
+        int length = text.length();
+        int first = Character.codePointAt(text, start);
+        int i = start + Character.charCount(first);
+        if (first == '\r') {
+            return i < length && text.charAt(i) == '\n' ? i + 1 : i;
+        }
+        if (isControl(first)) {
+            return i;
+        }
+        if (isRegionalIndicator(first) && i < length && isRegionalIndicator(Character.codePointAt(text, i))) {
+            i += 2;
+        }
+        int previous = first;
+        while (i < length) {
+            int codePoint = Character.codePointAt(text, i);
+            if (!extendsCluster(previous, codePoint)) {
+                break;
+            }
+            previous = codePoint;
+            i += Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    /**
+     * Wyznacza początek podstawy klastra kończącego się na podanej pozycji, pomijając znaki
+     * rozszerzające. Pary wskaźników regionalnych rozstrzyga wywołujący.
+     */
+    private static int baseStart(CharSequence text, int end) {
+        int codePoint = Character.codePointBefore(text, end);
+        int i = end - Character.charCount(codePoint);
+        if (codePoint == '\n' && i > 0 && text.charAt(i - 1) == '\r') {
+            return i - 1;
+        }
+        while (i > 0 && !isControl(codePoint)) {
+            int previous = Character.codePointBefore(text, i);
+            if (isControl(previous) || !extendsCluster(previous, codePoint)) {
+                break;
+            }
+            codePoint = previous;
+            i -= Character.charCount(previous);
+        }
+        return i;
+    }
+
+    private static int countRegionalIndicators(CharSequence text, int end) {
+        int count = 0;
+        while (end > 1 && isRegionalIndicator(Character.codePointBefore(text, end))) {
+            count++;
+            end -= 2;
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true}, jeśli znak {@code codePoint} należy do klastra znaku {@code previous}.
+     */
+    private static boolean extendsCluster(int previous, int codePoint) {
+        if (isControl(codePoint)) {
+            return false;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+                return true;
+            case Character.OTHER_SYMBOL:
+                return previous == ZERO_WIDTH_JOINER && !isRegionalIndicator(codePoint);
+            default:
+                return codePoint == ZERO_WIDTH_JOINER || codePoint == ZERO_WIDTH_NON_JOINER
+                        || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF)
+                        || (codePoint >= 0xE0020 && codePoint <= 0xE007F);
+        }
+    }
+
+    private static boolean isControl(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.CONTROL:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+                return true;
+            case Character.FORMAT:
+                return codePoint != ZERO_WIDTH_JOINER && codePoint != ZERO_WIDTH_NON_JOINER
+                        && (codePoint < 0xE0020 || codePoint > 0xE007F);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF;
+    }
+}
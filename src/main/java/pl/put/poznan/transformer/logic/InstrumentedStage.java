@@ -0,0 +1,31 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Etap mierzący czas wykonania, rozmiary tekstu i błędy etapu, który opakowuje.
+ */
+final class InstrumentedStage implements TextStage {
+
+    private final String name;
+    private final TextStage stage;
+    private final StageMetrics metrics;
+
+    InstrumentedStage(String name, TextStage stage, StageMetrics metrics) {
+        this.name = name;
+        this.stage = stage;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CharSequence apply(CharSequence input, StringBuilder output) {
+        long start = System.nanoTime();
+        CharSequence result;
+        try {
+            result = stage.apply(input, output);
+        } catch (RuntimeException e) {
+            metrics.recordError(name, e);
+            throw e;
+        }
+        metrics.record(name, System.nanoTime() - start, input.length(), result.length());
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Czyta plik UTF-8 przez kolejne odwzorowane w pamięci fragmenty {@link FileChannel}.
+ * <p>
+ * Plik odwzorowywany jest oknami o stałym rozmiarze, a bajty dekodowane strumieniowo prosto
+ * do bufora czytającego, więc zużycie sterty nie zależy od rozmiaru pliku. Sekwencja UTF-8
+ * rozcięta granicą okna jest dekodowana po odwzorowaniu kolejnego okna od jej początku.
+ * Niepoprawne dane UTF-8 zgłaszane są jako {@link java.nio.charset.MalformedInputException}.
+ * <p>
+ * Instancja nie jest bezpieczna wątkowo.
+ */
+public final class MappedFileReader extends Reader {
+
+    /** Domyślny rozmiar okna odwzorowania w bajtach. */
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int regionSize;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private MappedByteBuffer region;
+    private long regionStart;
+    /** Druga połowa pary surogatów, która nie zmieściła się w buforze czytającego, albo -1. */
+    private int pendingLow = -1;
+    private boolean flushed;
+
+    /**
+     * Otwiera plik z domyślnym rozmiarem okna.
+     *
+     * @param file Plik w UTF-8.
+     * @throws IOException jeśli nie udało się otworzyć pliku.
+     */
+    public MappedFileReader(Path file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Otwiera plik z podanym rozmiarem okna.
+     *
+     * @param file       Plik w UTF-8.
+     * @param regionSize Rozmiar okna odwzorowania w bajtach, co najmniej 4.
+     * @throws IOException jeśli nie udało się otworzyć pliku.
+     */
+    public MappedFileReader(Path file, int regionSize) throws IOException {
+        if (regionSize < 4) {
+            throw new IllegalArgumentException("Okno musi mieć co najmniej 4 bajty: " + regionSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionSize = regionSize;
+        map(0);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        if (pendingLow >= 0) {
+            out.put((char) pendingLow);
+            pendingLow = -1;
+        }
+        while (out.hasRemaining() && !flushed) {
+            boolean last = regionStart + region.limit() == size;
+            CoderResult result = decoder.decode(region, out, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                if (out.position() == offset) {
+                    // Bufor jednoznakowy, a kolejny znak jest parą surogatów
+                    decodeSurrogatePair(out);
+                }
+                break;
+            }
+            if (!last) {
+                map(regionStart + region.position());
+                continue;
+            }
+            if (!flushed) {
+                result = decoder.flush(out);
+                if (result.isOverflow()) {
+                    break;
+                }
+                flushed = true;
+            }
+            break;
+        }
+        int read = out.position() - offset;
+        return read == 0 ? -1 : read;
+    }
+
+    private void decodeSurrogatePair(CharBuffer out) throws IOException {
+        CharBuffer pair = CharBuffer.allocate(2);
+        CoderResult result = decoder.decode(region, pair, regionStart + region.limit() == size);
+        if (result.isError()) {
+            result.throwException();
+        }
+        pair.flip();
+        out.put(pair.get());
+        if (pair.hasRemaining()) {
+            pendingLow = pair.get();
+        }
+    }
+
+    private void map(long position) throws IOException {
+        long length = Math.min(regionSize, size - position);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        regionStart = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,252 @@
+package pl.put.poznan.transformer.logic;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Łańcuch transformacji dzielący bardzo duże teksty na fragmenty przetwarzane równolegle.
+ * <p>
+ * Etapy wykonywane są po kolei, ale wejście każdego etapu dzielone jest na fragmenty w miejscach,
+ * w których wynik etapu nie zależy od sąsiednich znaków, a fragmenty przetwarzane są równolegle
+ * w puli fork-join i sklejane. Miejsca cięcia wyznacza każdy etap osobno:
+ * <ul>
+ *     <li>transformacje znakowe - dowolna granica punktu kodowego,</li>
+ *     <li>skróty i rozwinięcia - pozycja, której nie obejmuje żadne wystąpienie frazy słownika,</li>
+ *     <li>liczby i styl tytułowy - pozycja tuż za białym znakiem,</li>
+ *     <li>styl zdaniowy - początek zdania,</li>
+ *     <li>powtórzenia - początek słowa, od którego porównania zaczynają się od nowa,</li>
+ *     <li>{@code capitalize} - dowolna granica, ale etap dotyczy tylko pierwszego fragmentu.</li>
+ * </ul>
+ * Odwracanie tekstu zależy od całego wejścia, dlatego ten etap wykonywany jest w jednym wątku.
+ * Wynik jest taki sam jak dla {@link TransformerFactory#compile(String[])}.
+ * Etapy budowane są raz, przy tworzeniu łańcucha, więc instancję można przechowywać w cache.
+ * Instancja jest niezmienna i bezpieczna wątkowo.
+ */
+public final class ParallelPipeline implements TextTransformerInterface {
+
+    /** Docelowa długość fragmentu w znakach. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Reguła wskazująca pozycje, w których wejście etapu można rozciąć.
+     */
+    interface CutRule {
+        boolean isSafeCut(CharSequence text, int position);
+    }
+
+    /**
+     * Etap łańcucha wraz z regułą cięcia.
+     */
+    private static final class Step {
+        /** Nazwa etapu w pomiarach {@link StageMetrics}. */
+        private final String name;
+        private final TextStage stage;
+        /** Reguła cięcia albo {@code null}, jeśli etap wymaga całego tekstu. */
+        private final CutRule rule;
+        /** Etap zmienia tylko początek tekstu, więc pozostałe fragmenty przechodzą bez zmian. */
+        private final boolean firstChunkOnly;
+        /** Źródło słownika etapu słownikowego albo {@code null}; etap i reguła powstają wtedy przy wykonaniu. */
+        private final Supplier<AhoCorasickAutomaton> dictionary;
+
+        private Step(String name, TextStage stage, CutRule rule, boolean firstChunkOnly) {
+            this(name, stage, rule, firstChunkOnly, null);
+        }
+
+        private Step(String name, TextStage stage, CutRule rule, boolean firstChunkOnly,
+                     Supplier<AhoCorasickAutomaton> dictionary) {
+            this.name = name;
+            this.stage = stage;
+            this.rule = rule;
+            this.firstChunkOnly = firstChunkOnly;
+            this.dictionary = dictionary;
+        }
+    }
+
+    private final Step[] steps;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    ParallelPipeline(List<TransformType> types, ForkJoinPool pool, int chunkSize) {
+        this.steps = createSteps(ChainOptimizer.optimize(CompiledPipeline.order(types)));
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Jeśli zainstalowano {@link StageMetrics}, mierzony jest każdy etap na całym tekście, łącznie z jego podziałem.
+     */
+    @Override
+    public String transform(String text) {
+        StageMetrics metrics = TransformerFactory.getStageMetrics();
+        CharSequence current = text;
+        for (Step step : steps) {
+            current = metrics == null ? run(step, current) : run(step, current, metrics);
+        }
+        return current.toString();
+    }
+
+    private CharSequence run(Step step, CharSequence input, StageMetrics metrics) {
+        long start = System.nanoTime();
+        CharSequence result;
+        try {
+            result = run(step, input);
+        } catch (RuntimeException e) {
+            metrics.recordError(step.name, e);
+            throw e;
+        }
+        metrics.record(step.name, System.nanoTime() - start, input.length(), result.length());
+        return result;
+    }
+
+    private static Step[] createSteps(List<TransformType> types) {
+        List<Step> steps = new ArrayList<>();
+        List<CharMappingStage> run = new ArrayList<>();
+        for (TransformType type : types) {
+            CharMappingStage mapping = type.mapping();
+            if (mapping != null) {
+                run.add(mapping);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                steps.add(fused(run));
+                run = new ArrayList<>();
+            }
+            steps.add(createStep(type));
+        }
+        if (!run.isEmpty()) {
+            steps.add(fused(run));
+        }
+        return steps.toArray(new Step[0]);
+    }
+
+    private static Step fused(List<CharMappingStage> run) {
+        return new Step(CompiledPipeline.FUSED_STAGE, new FusedCharStage(run), ParallelPipeline::isCodePointBoundary, false);
+    }
+
+    private static Step createStep(TransformType type) {
+        String name = type.getName();
+        switch (type) {
+            case ABBREVIATE:
+                return new Step(name, null, null, false, PhraseDictionaries::getAbbreviations);
+            case EXPAND:
+                return new Step(name, null, null, false, PhraseDictionaries::getExpansions);
+            case CAPITALIZE:
+                return new Step(name, type.stage(), ParallelPipeline::isCodePointBoundary, true);
+            case NUMBER_TO_TEXT:
+            case TITLE:
+                return new Step(name, type.stage(), ParallelPipeline::isAfterWhitespace, false);
+            case SENTENCE:
+                return new Step(name, type.stage(), CaseStyleStage::isSentenceStart, false);
+            case REMOVE_DUPLICATES:
+                return new Step(name, type.stage(), DuplicateWordRemover.DEFAULT::isSafeCut, false);
+            default:
+                // Etapy wymagające całego tekstu (np. odwracanie) wykonywane są w jednym wątku
+                return new Step(name, type.stage(), null, false);
+        }
+    }
+
+    /**
+     * Zwraca etap słownikowy z bieżącym słownikiem, aby uwzględniać jego przeładowania,
+     * a pozostałe etapy bez zmian.
+     */
+    private static Step resolve(Step step) {
+        if (step.dictionary == null) {
+            return step;
+        }
+        // Cięcia i zamiany korzystają z tego samego słownika, nawet jeśli w trakcie zostanie przeładowany
+        AhoCorasickAutomaton automaton = step.dictionary.get();
+        TextStage stage = (input, output) -> automaton.replace(input, output) ? output : input;
+        return new Step(step.name, stage, automaton::isSafeCut, false);
+    }
+
+    private CharSequence run(Step unresolved, CharSequence input) {
+        Step step = resolve(unresolved);
+        List<Integer> cuts = step.rule == null ? List.of() : cuts(step.rule, input);
+        if (cuts.isEmpty()) {
+            return step.stage.apply(input, new StringBuilder());
+        }
+        List<Callable<CharSequence>> chunks = new ArrayList<>(cuts.size() + 1);
+        int start = 0;
+        for (int i = 0; i <= cuts.size(); i++) {
+            int from = start;
+            int to = i < cuts.size() ? cuts.get(i) : input.length();
+            CharSequence chunk = CharBuffer.wrap(input, from, to);
+            if (step.firstChunkOnly && i > 0) {
+                chunks.add(() -> chunk);
+            } else {
+                chunks.add(() -> step.stage.apply(chunk, new StringBuilder(to - from + 16)));
+            }
+            start = to;
+        }
+        List<CharSequence> results = new ArrayList<>(chunks.size());
+        int length = 0;
+        for (Future<CharSequence> result : pool.invokeAll(chunks)) {
+            CharSequence transformed = join(result);
+            results.add(transformed);
+            length += transformed.length();
+        }
+        StringBuilder output = new StringBuilder(length);
+        for (CharSequence transformed : results) {
+            output.append(transformed);
+        }
+        return output;
+    }
+
+    /**
+     * Wyznacza miejsca cięcia w odstępach około {@code chunkSize} znaków.
+     * Jeśli w pobliżu docelowej pozycji nie ma bezpiecznego miejsca, fragment jest wydłużany.
+     */
+    private List<Integer> cuts(CutRule rule, CharSequence input) {
+        int length = input.length();
+        List<Integer> cuts = new ArrayList<>();
+        if (length < 2 * chunkSize) {
+            return cuts;
+        }
+        int target = chunkSize;
+        while (target < length - chunkSize / 2) {
+            int limit = Math.min(length, target + chunkSize);
+            int position = target;
+            while (position < limit && !rule.isSafeCut(input, position)) {
+                position++;
+            }
+            if (position < limit) {
+                cuts.add(position);
+                target = position + chunkSize;
+            } else {
+                target = limit;
+            }
+        }
+        return cuts;
+    }
+
+    private static CharSequence join(Future<CharSequence> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano przetwarzanie fragmentów", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    static boolean isCodePointBoundary(CharSequence text, int position) {
+        return !Character.isHighSurrogate(text.charAt(position - 1)) || !Character.isLowSurrogate(text.charAt(position));
+    }
+
+    static boolean isAfterWhitespace(CharSequence text, int position) {
+        return Character.isWhitespace(text.charAt(position - 1));
+    }
+}
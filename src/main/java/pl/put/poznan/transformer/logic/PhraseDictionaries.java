@@ -0,0 +1,127 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rejestr słowników fraz używanych przez transformacje skracania i rozwijania.
+ * <p>
+ * Każdy słownik jest kompilowany raz do niezmiennego automatu {@link AhoCorasickAutomaton}
+ * i publikowany przez pole {@code volatile}. Przeładowanie podmienia automat atomowo -
+ * trwające transformacje dokańczają pracę na poprzedniej wersji, bez żadnych blokad.
+ * <p>
+ * Format pliku: jedna para {@code fraza=zamiennik} w linii (UTF-8). Puste linie
+ * i linie zaczynające się od {@code #} są pomijane.
+ */
+public final class PhraseDictionaries {
+
+    private static final String DEFAULT_ABBREVIATIONS = "/dictionaries/abbreviations.txt";
+    private static final String DEFAULT_EXPANSIONS = "/dictionaries/expansions.txt";
+
+    private static volatile AhoCorasickAutomaton abbreviations = loadResource(DEFAULT_ABBREVIATIONS);
+    private static volatile AhoCorasickAutomaton expansions = loadResource(DEFAULT_EXPANSIONS);
+
+    private PhraseDictionaries() {
+    }
+
+    /**
+     * @return Aktualny automat skrótów (fraza -&gt; skrót).
+     */
+    public static AhoCorasickAutomaton getAbbreviations() {
+        return abbreviations;
+    }
+
+    /**
+     * @return Aktualny automat rozwinięć (skrót -&gt; fraza).
+     */
+    public static AhoCorasickAutomaton getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Atomowo podmienia słownik skrótów.
+     *
+     * @param automaton Nowy automat lub {@code null}, aby przywrócić słownik wbudowany.
+     * @return Opublikowany automat.
+     */
+    public static AhoCorasickAutomaton publishAbbreviations(AhoCorasickAutomaton automaton) {
+        AhoCorasickAutomaton published = automaton != null ? automaton : loadResource(DEFAULT_ABBREVIATIONS);
+        abbreviations = published;
+        return published;
+    }
+
+    /**
+     * Atomowo podmienia słownik rozwinięć.
+     *
+     * @param automaton Nowy automat lub {@code null}, aby przywrócić słownik wbudowany.
+     * @return Opublikowany automat.
+     */
+    public static AhoCorasickAutomaton publishExpansions(AhoCorasickAutomaton automaton) {
+        AhoCorasickAutomaton published = automaton != null ? automaton : loadResource(DEFAULT_EXPANSIONS);
+        expansions = published;
+        return published;
+    }
+
+    /**
+     * Wczytuje słownik z pliku i kompiluje go do automatu.
+     *
+     * @param file Ścieżka do pliku słownika.
+     * @return Skompilowany automat.
+     * @throws IOException jeśli nie udało się odczytać pliku.
+     * @throws IllegalArgumentException jeśli plik ma niepoprawny format.
+     */
+    public static AhoCorasickAutomaton load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return AhoCorasickAutomaton.compile(parse(reader));
+        }
+    }
+
+    /**
+     * Parsuje słownik w formacie {@code fraza=zamiennik}.
+     *
+     * @param reader Źródło danych słownika.
+     * @return Słownik w kolejności występowania wpisów.
+     * @throws IOException jeśli nie udało się odczytać danych.
+     * @throws IllegalArgumentException jeśli linia nie zawiera znaku {@code =} lub fraza jest pusta.
+     */
+    static Map<String, String> parse(Reader reader) throws IOException {
+        Map<String, String> dictionary = new LinkedHashMap<>();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Niepoprawny wpis słownika w linii " + number + ": " + line);
+            }
+            dictionary.put(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim());
+        }
+        return dictionary;
+    }
+
+    private static AhoCorasickAutomaton loadResource(String resource) {
+        InputStream stream = PhraseDictionaries.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalStateException("Brak wbudowanego słownika: " + resource);
+        }
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return AhoCorasickAutomaton.compile(parse(reader));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
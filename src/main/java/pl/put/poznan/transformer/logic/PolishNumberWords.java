@@ -0,0 +1,277 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Zamiana liczb zapisanych cyframi na słowa w języku polskim.
+ * <p>
+ * Obsługiwany jest pełny zakres typu {@code long}, liczby ujemne oraz ułamki dziesiętne z kropką.
+ * Nazwy grup trzycyfrowych budowane są raz, przy ładowaniu klasy, a liczby w tekście wyszukiwane
+ * ręcznym skanerem, bez wyrażeń regularnych.
+ */
+final class PolishNumberWords {
+
+    private static final String[] UNITS = {"zero", "jeden", "dwa", "trzy", "cztery", "pięć", "sześć", "siedem",
+            "osiem", "dziewięć"};
+    private static final String[] TEENS = {"dziesięć", "jedenaście", "dwanaście", "trzynaście", "czternaście",
+            "piętnaście", "szesnaście", "siedemnaście", "osiemnaście", "dziewiętnaście"};
+    private static final String[] TENS = {"", "", "dwadzieścia", "trzydzieści", "czterdzieści", "pięćdziesiąt",
+            "sześćdziesiąt", "siedemdziesiąt", "osiemdziesiąt", "dziewięćdziesiąt"};
+    private static final String[] HUNDREDS = {"", "sto", "dwieście", "trzysta", "czterysta", "pięćset", "sześćset",
+            "siedemset", "osiemset", "dziewięćset"};
+
+    /** Formy rzędów wielkości: mianownik liczby pojedynczej, mianownik mnogiej (2-4), dopełniacz mnogiej. */
+    private static final String[][] SCALES = {
+            {"", "", ""},
+            {"tysiąc", "tysiące", "tysięcy"},
+            {"milion", "miliony", "milionów"},
+            {"miliard", "miliardy", "miliardów"},
+            {"bilion", "biliony", "bilionów"},
+            {"biliard", "biliardy", "biliardów"},
+            {"trylion", "tryliony", "trylionów"}
+    };
+
+    /** Słowna postać każdej liczby od 0 do 999. */
+    private static final String[] GROUPS = new String[1000];
+
+    /** Najwięcej cyfr części całkowitej mieszczącej się w {@code long}. */
+    private static final int MAX_DIGITS = 19;
+
+    static {
+        for (int n = 0; n < GROUPS.length; n++) {
+            GROUPS[n] = group(n);
+        }
+    }
+
+    private PolishNumberWords() {
+    }
+
+    private static String group(int n) {
+        if (n < 10) {
+            return UNITS[n];
+        }
+        StringBuilder words = new StringBuilder(HUNDREDS[n / 100]);
+        int rest = n % 100;
+        if (rest >= 10 && rest < 20) {
+            append(words, TEENS[rest - 10]);
+        } else {
+            append(words, TENS[rest / 10]);
+            if (rest % 10 > 0) {
+                append(words, UNITS[rest % 10]);
+            }
+        }
+        return words.toString();
+    }
+
+    private static void append(StringBuilder words, String word) {
+        if (!word.isEmpty()) {
+            if (words.length() > 0) {
+                words.append(' ');
+            }
+            words.append(word);
+        }
+    }
+
+    /**
+     * Zwraca słowną postać liczby.
+     *
+     * @param number Liczba z pełnego zakresu {@code long}.
+     * @return Liczba zapisana słowami, np. {@code minus dwa tysiące pięć}.
+     */
+    static String toWords(long number) {
+        StringBuilder words = new StringBuilder();
+        if (number < 0) {
+            words.append("minus ");
+        }
+        appendMagnitude(Math.abs(number), words);
+        return words.toString();
+    }
+
+    /**
+     * Dopisuje słowną postać liczby bez znaku.
+     * <p>
+     * {@code Long.MIN_VALUE} traktowana jest jako 2^63, dlatego podział na grupy używa dzielenia bez znaku.
+     */
+    private static void appendMagnitude(long magnitude, StringBuilder output) {
+        if (magnitude == 0) {
+            output.append(UNITS[0]);
+            return;
+        }
+        int[] groups = new int[SCALES.length];
+        int count = 0;
+        while (magnitude != 0) {
+            groups[count++] = (int) Long.remainderUnsigned(magnitude, 1000);
+            magnitude = Long.divideUnsigned(magnitude, 1000);
+        }
+        boolean first = true;
+        for (int scale = count - 1; scale >= 0; scale--) {
+            int n = groups[scale];
+            if (n == 0) {
+                continue;
+            }
+            if (!first) {
+                output.append(' ');
+            }
+            first = false;
+            if (scale == 0) {
+                output.append(GROUPS[n]);
+            } else if (n == 1) {
+                output.append(SCALES[scale][0]);
+            } else {
+                output.append(GROUPS[n]).append(' ').append(SCALES[scale][pluralForm(n)]);
+            }
+        }
+    }
+
+    /**
+     * @return 1 dla liczebników 2-4 (z wyjątkiem 12-14) w ostatniej pozycji, w przeciwnym razie 2.
+     */
+    private static int pluralForm(int n) {
+        int units = n % 10;
+        int tens = n % 100;
+        return units >= 2 && units <= 4 && (tens < 12 || tens > 14) ? 1 : 2;
+    }
+
+    /**
+     * Zamienia wszystkie liczby w tekście na słowa, dopisując wynik do bufora.
+     * <p>
+     * Liczbą jest ciąg cyfr ASCII niebędący częścią słowa, z opcjonalną częścią ułamkową po kropce
+     * oraz znakiem minus, jeśli ten stoi na początku tekstu lub po białym znaku. Liczby spoza zakresu
+     * {@code long} pozostają bez zmian. Jeśli w tekście nie ma żadnej liczby, bufor pozostaje nietknięty.
+     *
+     * @param text   Tekst wejściowy.
+     * @param output Bufor, do którego dopisywany jest wynik.
+     * @return {@code true}, jeśli zamieniono co najmniej jedną liczbę.
+     */
+    static boolean convert(CharSequence text, StringBuilder output) {
+        int length = text.length();
+        int copied = 0;
+        boolean converted = false;
+        int i = 0;
+        // Początek kolejnej liczby wyszukuje osobna metoda, więc pętla obsługuje tylko znalezione liczby
+        while ((i = nextNumberStart(text, i)) < length) {
+            int start = i;
+            boolean negative = start > 0 && isMinus(text.charAt(start - 1))
+                    && (start == 1 || Character.isWhitespace(text.charAt(start - 2)));
+            int integerEnd = digitsEnd(text, start);
+            int end = integerEnd;
+            if (end + 1 < length && text.charAt(end) == '.' && isDigit(text.charAt(end + 1))) {
+                int fractionEnd = digitsEnd(text, end + 1);
+                if (!followedByWordChar(text, fractionEnd)) {
+                    end = fractionEnd;
+                }
+            }
+            if (end == integerEnd && followedByWordChar(text, end)) {
+                // Cyfry są początkiem słowa (np. "3kg") - pomijamy całe słowo
+                i = end;
+                continue;
+            }
+            int from = negative ? start - 1 : start;
+            int mark = output.length();
+            if (!converted) {
+                output.ensureCapacity(mark + length + 16);
+            }
+            output.append(text, copied, from);
+            if (appendNumber(text, start, integerEnd, end, negative, output)) {
+                converted = true;
+                copied = end;
+            } else {
+                // Liczba spoza zakresu pozostaje bez zmian
+                output.setLength(mark);
+            }
+            i = end;
+        }
+        if (converted) {
+            output.append(text, copied, length);
+        }
+        return converted;
+    }
+
+    private static boolean appendNumber(CharSequence text, int start, int integerEnd, int end, boolean negative,
+                                        StringBuilder output) {
+        long magnitude = parseMagnitude(text, start, integerEnd, negative);
+        if (magnitude == -1) {
+            return false;
+        }
+        int mark = output.length();
+        if (negative) {
+            output.append("minus ");
+        }
+        appendMagnitude(magnitude, output);
+        if (end > integerEnd) {
+            output.append(" koma");
+            int digit = integerEnd + 1;
+            while (digit < end && text.charAt(digit) == '0') {
+                output.append(' ').append(UNITS[0]);
+                digit++;
+            }
+            if (digit < end) {
+                long fraction = parseMagnitude(text, digit, end, false);
+                if (fraction == -1) {
+                    output.setLength(mark);
+                    return false;
+                }
+                output.append(' ');
+                appendMagnitude(fraction, output);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Odczytuje wartość ciągu cyfr.
+     *
+     * @return Wartość bez znaku; dla liczby ujemnej dozwolone jest 2^63 (zwracane jako {@code Long.MIN_VALUE}).
+     * -1 (2^64 - 1 bez znaku, czyli 20 cyfr) oznacza przekroczenie zakresu.
+     */
+    private static long parseMagnitude(CharSequence text, int start, int end, boolean negative) {
+        while (start < end - 1 && text.charAt(start) == '0') {
+            start++;
+        }
+        if (end - start > MAX_DIGITS) {
+            return -1;
+        }
+        // 19 cyfr mieści się w 64 bitach bez znaku
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        long limit = negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+        return Long.compareUnsigned(value, limit) > 0 ? -1 : value;
+    }
+
+    /**
+     * @return Pozycja pierwszej cyfry od {@code i}, która nie jest częścią słowa, albo długość tekstu.
+     */
+    private static int nextNumberStart(CharSequence text, int i) {
+        int length = text.length();
+        for (; i < length; i++) {
+            if (isDigit(text.charAt(i)) && (i == 0 || !isWordChar(Character.codePointBefore(text, i)))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static int digitsEnd(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean followedByWordChar(CharSequence text, int i) {
+        return i < text.length() && isWordChar(Character.codePointAt(text, i));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isMinus(char c) {
+        return c == '-' || c == '−';
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || codePoint == '_';
+    }
+}
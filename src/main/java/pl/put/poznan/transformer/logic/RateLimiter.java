@@ -0,0 +1,309 @@
+package pl.put.poznan.transformer.logic;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ogranicza liczbę zapytań i bajtów wejścia na sekundę osobno dla każdego klucza API.
+ * <p>
+ * Każdy klucz ma dwa kubełki żetonów: zapytań i bajtów. Pojemność kubełka to limit na sekundę
+ * pomnożony przez {@code burst}. Kubełek zapisany jest jako jedna liczba - teoretyczny czas
+ * przybycia (algorytm GCRA): chwila, w której kubełek byłby znów pełny. Pobranie żetonów przesuwa
+ * ją o czas ich odnowienia i jest jedną operacją compare-and-set, więc zapytania nie czekają na blokadę.
+ * Pusty kubełek odrzuca zapytanie z czasem, po którym zmieści się ono w kubełku; zapytanie większe
+ * niż cały kubełek przechodzi tylko przy pełnym kubełku, a następne czekają na spłatę długu.
+ * <p>
+ * Limity domyślne i limity poszczególnych kluczy można zmieniać w trakcie działania - obowiązują od
+ * następnego zapytania, bez utraty stanu kubełków. Limit 0 oznacza brak ograniczenia. Kubełki pełne
+ * (równoważne nowym) są okresowo usuwane, więc pamięć nie rośnie z liczbą jednorazowych kluczy.
+ * <p>
+ * Klasa jest bezpieczna wątkowo.
+ */
+public final class RateLimiter {
+
+    /**
+     * Limity klucza. Wartość 0 oznacza brak ograniczenia.
+     */
+    public static final class Limits {
+        private final double requestsPerSecond;
+        private final long bytesPerSecond;
+
+        /**
+         * @param requestsPerSecond Dopuszczalna liczba zapytań na sekundę.
+         * @param bytesPerSecond    Dopuszczalna liczba bajtów wejścia na sekundę.
+         */
+        public Limits(double requestsPerSecond, long bytesPerSecond) {
+            if (!(requestsPerSecond >= 0) || bytesPerSecond < 0) {
+                throw new IllegalArgumentException("Limity nie mogą być ujemne");
+            }
+            this.requestsPerSecond = requestsPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * @return Dopuszczalna liczba zapytań na sekundę albo 0.
+         */
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        /**
+         * @return Dopuszczalna liczba bajtów wejścia na sekundę albo 0.
+         */
+        public long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+    }
+
+    /**
+     * Przekroczony limit.
+     */
+    public enum Limit {
+        REQUESTS, BYTES
+    }
+
+    /**
+     * Wynik sprawdzenia zapytania.
+     */
+    public static final class Decision {
+        private static final Decision ALLOWED = new Decision(null, 0);
+
+        private final Limit exceeded;
+        private final long retryAfterNanos;
+
+        private Decision(Limit exceeded, long retryAfterNanos) {
+            this.exceeded = exceeded;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        /**
+         * @return {@code true}, jeśli zapytanie mieści się w limitach.
+         */
+        public boolean isAllowed() {
+            return exceeded == null;
+        }
+
+        /**
+         * @return Przekroczony limit albo {@code null}, jeśli zapytanie dopuszczono.
+         */
+        public Limit getExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * @return Czas, po którym ponowione zapytanie zmieści się w limicie.
+         */
+        public Duration getRetryAfter() {
+            return Duration.ofNanos(retryAfterNanos);
+        }
+    }
+
+    /** Liczba kubełków, powyżej której usuwane są kubełki pełne. */
+    static final int PURGE_THRESHOLD = 10_000;
+
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Stan kubełków jednego klucza: teoretyczne czasy przybycia w nanosekundach zegara limitera.
+     */
+    private static final class Buckets {
+        final AtomicLong requests;
+        final AtomicLong bytes;
+
+        Buckets(long now) {
+            this.requests = new AtomicLong(now);
+            this.bytes = new AtomicLong(now);
+        }
+    }
+
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final Map<String, Buckets> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Limits> keyLimits = new ConcurrentHashMap<>();
+    private volatile Limits defaultLimits;
+    private final AtomicLong nextPurge;
+
+    /**
+     * Tworzy limiter.
+     *
+     * @param defaultLimits Limity kluczy bez własnych ustawień.
+     * @param burst         Czas, na jaki wystarcza pełny kubełek przy limicie na sekundę.
+     */
+    public RateLimiter(Limits defaultLimits, Duration burst) {
+        this(defaultLimits, burst, System::nanoTime);
+    }
+
+    RateLimiter(Limits defaultLimits, Duration burst, LongSupplier clock) {
+        if (burst.isNegative() || burst.isZero()) {
+            throw new IllegalArgumentException("Czas burst musi być dodatni: " + burst);
+        }
+        this.defaultLimits = defaultLimits;
+        this.burstNanos = burst.toNanos();
+        this.clock = clock;
+        this.nextPurge = new AtomicLong(clock.getAsLong() + PURGE_INTERVAL_NANOS);
+    }
+
+    /**
+     * Pobiera żeton zapytania i żetony bajtów wejścia, jeśli oba kubełki klucza na to pozwalają.
+     *
+     * @param key   Klucz API.
+     * @param bytes Rozmiar wejścia w bajtach.
+     * @return Decyzja; przy odrzuceniu żaden żeton nie jest pobierany.
+     */
+    public Decision tryAcquire(String key, long bytes) {
+        long now = clock.getAsLong();
+        Limits limits = getLimits(key);
+        Buckets state = buckets(key, now);
+        long requestIncrement = increment(1, limits.requestsPerSecond);
+        long wait = take(state.requests, requestIncrement, now);
+        if (wait > 0) {
+            return new Decision(Limit.REQUESTS, wait);
+        }
+        long byteIncrement = increment(bytes, limits.bytesPerSecond);
+        wait = take(state.bytes, byteIncrement, now);
+        if (wait > 0) {
+            // Zwraca żeton zapytania, aby odrzucenie nie zmniejszało limitu zapytań
+            state.requests.addAndGet(-requestIncrement);
+            return new Decision(Limit.BYTES, wait);
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Pobiera żetony bajtów bez sprawdzania limitu, np. dla treści o nieznanej z góry długości
+     * policzonej po jej przeczytaniu. Dług spłacany jest przez odrzucanie kolejnych zapytań klucza.
+     *
+     * @param key   Klucz API.
+     * @param bytes Liczba bajtów.
+     */
+    public void charge(String key, long bytes) {
+        long now = clock.getAsLong();
+        long increment = increment(bytes, getLimits(key).bytesPerSecond);
+        if (increment > 0) {
+            AtomicLong tat = buckets(key, now).bytes;
+            tat.accumulateAndGet(increment, (current, delta) -> Math.max(current, now) + delta);
+        }
+    }
+
+    /**
+     * Pobiera żetony z kubełka.
+     *
+     * @return 0, jeśli żetony pobrano, w przeciwnym razie czas w nanosekundach do ich dostępności.
+     */
+    private long take(AtomicLong tat, long increment, long now) {
+        if (increment == 0) {
+            return 0;
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + increment;
+            if (current > now && next - now > burstNanos) {
+                // Zapytanie większe niż kubełek czeka na pełny kubełek
+                return current - now - Math.max(0, burstNanos - increment);
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return Czas odnowienia podanej liczby żetonów w nanosekundach; 0 dla braku limitu.
+     */
+    private static long increment(long units, double perSecond) {
+        if (perSecond <= 0 || units <= 0) {
+            return 0;
+        }
+        double nanos = Math.ceil(units * (TimeUnit.SECONDS.toNanos(1) / perSecond));
+        return nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) nanos;
+    }
+
+    private Buckets buckets(String key, long now) {
+        if (buckets.size() > PURGE_THRESHOLD) {
+            purgeFull(now);
+        }
+        return buckets.computeIfAbsent(key, k -> new Buckets(now));
+    }
+
+    /**
+     * Usuwa kubełki pełne, najwyżej raz na sekundę. Kubełek pełny zachowuje się jak nowy,
+     * a wyścig z jednoczesnym pobraniem żetonu najwyżej oddaje kluczowi ten żeton.
+     */
+    private void purgeFull(long now) {
+        long scheduled = nextPurge.get();
+        if (now - scheduled < 0 || !nextPurge.compareAndSet(scheduled, now + PURGE_INTERVAL_NANOS)) {
+            return;
+        }
+        buckets.values().removeIf(state -> state.requests.get() <= now && state.bytes.get() <= now);
+    }
+
+    /**
+     * @param key Klucz API.
+     * @return Limity obowiązujące klucz: własne albo domyślne.
+     */
+    public Limits getLimits(String key) {
+        return keyLimits.getOrDefault(key, defaultLimits);
+    }
+
+    /**
+     * @return Limity kluczy bez własnych ustawień.
+     */
+    public Limits getDefaultLimits() {
+        return defaultLimits;
+    }
+
+    /**
+     * Zmienia limity kluczy bez własnych ustawień.
+     *
+     * @param limits Nowe limity.
+     */
+    public void setDefaultLimits(Limits limits) {
+        this.defaultLimits = limits;
+    }
+
+    /**
+     * @return Niemodyfikowalna kopia własnych limitów kluczy.
+     */
+    public Map<String, Limits> getKeyLimits() {
+        return Map.copyOf(keyLimits);
+    }
+
+    /**
+     * @param key Klucz API.
+     * @return {@code true}, jeśli klucz ma własne limity.
+     */
+    public boolean hasKeyLimits(String key) {
+        return keyLimits.containsKey(key);
+    }
+
+    /**
+     * Ustawia własne limity klucza.
+     *
+     * @param key    Klucz API.
+     * @param limits Nowe limity.
+     */
+    public void setKeyLimits(String key, Limits limits) {
+        keyLimits.put(key, limits);
+    }
+
+    /**
+     * Usuwa własne limity klucza - obowiązują go odtąd limity domyślne.
+     *
+     * @param key Klucz API.
+     * @return {@code true}, jeśli klucz miał własne limity.
+     */
+    public boolean removeKeyLimits(String key) {
+        return keyLimits.remove(key) != null;
+    }
+
+    /**
+     * @return Liczba kluczy, dla których przechowywany jest stan kubełków.
+     */
+    public int getTrackedKeyCount() {
+        return buckets.size();
+    }
+}
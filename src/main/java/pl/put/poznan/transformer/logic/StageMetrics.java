@@ -0,0 +1,29 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Odbiorca pomiarów pojedynczych etapów skompilowanego łańcucha transformacji.
+ * <p>
+ * Instalowany przez {@link TransformerFactory#setStageMetrics(StageMetrics)}. Gdy żaden odbiorca
+ * nie jest zainstalowany, etapy nie są opakowywane i pomiar nie kosztuje nic.
+ * Implementacje muszą być bezpieczne wątkowo.
+ */
+public interface StageMetrics {
+
+    /**
+     * Rejestruje udane wykonanie etapu.
+     *
+     * @param stage        Nazwa transformacji, np. {@code upper}, albo {@code fused} dla etapów połączonych.
+     * @param nanos        Czas wykonania w nanosekundach.
+     * @param inputLength  Długość tekstu wejściowego w znakach.
+     * @param outputLength Długość tekstu wynikowego w znakach.
+     */
+    void record(String stage, long nanos, int inputLength, int outputLength);
+
+    /**
+     * Rejestruje błąd wykonania etapu.
+     *
+     * @param stage Nazwa etapu.
+     * @param error Wyjątek zgłoszony przez etap.
+     */
+    void recordError(String stage, RuntimeException error);
+}
@@ -0,0 +1,270 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Łańcuch transformacji przetwarzający tekst strumieniowo, fragment po fragmencie.
+ * <p>
+ * Każdy etap przetwarza tylko tę część otrzymanego tekstu, której wynik nie zależy od dalszych
+ * znaków, a resztę dołącza do następnego fragmentu. Dzięki temu frazy wielowyrazowe,
+ * liczby czy powtórzone słowa rozcięte granicą fragmentu są obsługiwane tak samo
+ * jak w {@link TransformerFactory#compile(String[])}. Transformacja {@code inverse}
+ * potrzebuje całego tekstu, więc jej etap buforuje wejście do końca strumienia.
+ * <p>
+ * Granice przetwarzania wyszukiwane są przyrostowo, więc każdy znak sprawdzany jest raz, nawet gdy
+ * przez wiele fragmentów nie pojawia się żadna granica (np. słowo bez białych znaków dla {@code title}).
+ * Tekst oczekujący na granicę w etapie ogranicza {@code maxPending} - po jego przekroczeniu przetwarzanie
+ * kończy się {@link AdmissionControl.LimitExceededException}, zamiast zajmować pamięć bez ograniczeń.
+ * <p>
+ * Instancja jest niezmienna i bezpieczna wątkowo; stan każdego strumienia tworzony jest
+ * osobno w {@link #transform(Reader, Writer)}.
+ */
+public final class StreamingPipeline {
+
+    /**
+     * Etap przetwarzania strumieniowego. Instancja obsługuje jeden strumień.
+     */
+    interface StreamStage {
+        /**
+         * Przetwarza początek bufora, którego wynik nie zależy od dalszej części strumienia.
+         *
+         * @param pending Nieprzetworzony tekst.
+         * @param last    {@code true}, jeśli to koniec strumienia - należy przetworzyć cały tekst.
+         * @param output  Bufor, do którego dopisywany jest wynik.
+         * @return Liczba przetworzonych znaków z początku {@code pending}.
+         */
+        int process(CharSequence pending, boolean last, StringBuilder output);
+    }
+
+    /**
+     * Wyznacza długość początku tekstu, który można przetworzyć niezależnie od dalszych znaków.
+     * <p>
+     * Implementacje mogą pamiętać, dokąd przejrzały bufor - instancja obsługuje wtedy jeden strumień.
+     */
+    interface Boundary {
+        /**
+         * @param pending Nieprzetworzony tekst: bufor z poprzedniego wywołania bez zwróconego wtedy
+         *                początku, z dopisanym kolejnym fragmentem.
+         * @return Długość początku, który zostanie przetworzony i usunięty z bufora.
+         */
+        int safePrefix(CharSequence pending);
+    }
+
+    static final int CHUNK_SIZE = 8192;
+
+    /** Domyślna największa długość tekstu oczekującego w etapie na granicę przetwarzania, w znakach. */
+    public static final int DEFAULT_MAX_PENDING = 1 << 20;
+
+    private final List<TransformType> types;
+    private final int maxPending;
+
+    StreamingPipeline(List<TransformType> types) {
+        this(types, DEFAULT_MAX_PENDING);
+    }
+
+    StreamingPipeline(List<TransformType> types, int maxPending) {
+        this.types = ChainOptimizer.optimize(CompiledPipeline.order(types));
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Przetwarza cały strumień wejściowy, zapisując wynik w miarę jego powstawania.
+     * Strumienie nie są zamykane.
+     *
+     * @param reader Źródło tekstu.
+     * @param writer Miejsce zapisu wyniku.
+     * @throws IOException jeśli wystąpił błąd odczytu lub zapisu.
+     * @throws AdmissionControl.LimitExceededException jeśli tekst bez granicy przetwarzania przekracza {@code maxPending}.
+     */
+    public void transform(Reader reader, Writer writer) throws IOException {
+        List<StreamStage> stages = createStages();
+        StringBuilder[] pending = new StringBuilder[stages.size()];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new StringBuilder();
+        }
+        StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+        StringBuilder next = new StringBuilder(CHUNK_SIZE);
+        char[] buffer = new char[CHUNK_SIZE];
+        char[] result = new char[CHUNK_SIZE];
+        boolean last = false;
+        while (!last) {
+            int read = reader.read(buffer);
+            last = read < 0;
+            chunk.setLength(0);
+            if (read > 0) {
+                chunk.append(buffer, 0, read);
+            }
+            for (int i = 0; i < stages.size(); i++) {
+                StringBuilder input = pending[i];
+                input.append(chunk);
+                next.setLength(0);
+                int consumed = stages.get(i).process(input, last, next);
+                input.delete(0, consumed);
+                StringBuilder swap = chunk;
+                chunk = next;
+                next = swap;
+            }
+            int length = chunk.length();
+            if (length > 0) {
+                if (result.length < length) {
+                    result = new char[length];
+                }
+                chunk.getChars(0, length, result, 0);
+                writer.write(result, 0, length);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return {@code true}, jeśli łańcuch zawiera etap buforujący wejście do końca strumienia
+     * (np. {@code inverse}), więc cały tekst trafia do pamięci.
+     */
+    public boolean buffersInput() {
+        for (TransformType type : types) {
+            if (type.mapping() == null && !incremental(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true}, jeśli etap transformacji przetwarza tekst w miarę jego napływu.
+     */
+    private static boolean incremental(TransformType type) {
+        switch (type) {
+            case ABBREVIATE:
+            case EXPAND:
+            case CAPITALIZE:
+            case NUMBER_TO_TEXT:
+            case TITLE:
+            case SENTENCE:
+            case REMOVE_DUPLICATES:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private List<StreamStage> createStages() {
+        List<StreamStage> stages = new ArrayList<>();
+        List<CharMappingStage> run = new ArrayList<>();
+        for (TransformType type : types) {
+            CharMappingStage mapping = type.mapping();
+            if (mapping != null) {
+                run.add(mapping);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                stages.add(bounded(new FusedCharStage(run), StreamingPipeline::withoutTrailingHighSurrogate, maxPending));
+                run = new ArrayList<>();
+            }
+            stages.add(createStage(type));
+        }
+        if (!run.isEmpty()) {
+            stages.add(bounded(new FusedCharStage(run), StreamingPipeline::withoutTrailingHighSurrogate, maxPending));
+        }
+        return stages;
+    }
+
+    private StreamStage createStage(TransformType type) {
+        switch (type) {
+            case ABBREVIATE:
+                return dictionary(PhraseDictionaries.getAbbreviations());
+            case EXPAND:
+                return dictionary(PhraseDictionaries.getExpansions());
+            case CAPITALIZE:
+                return capitalize();
+            case NUMBER_TO_TEXT:
+            case TITLE:
+                return bounded(type.stage(), whitespaceBoundary(), maxPending);
+            case SENTENCE:
+                return bounded(type.stage(), CaseStyleStage.sentenceBoundary(), maxPending);
+            case REMOVE_DUPLICATES:
+                return bounded(type.stage(), DuplicateWordRemover.DEFAULT.streamBoundary(), maxPending);
+            default:
+                // Etapy wymagające całego tekstu (np. odwracanie) buforują wejście do końca strumienia;
+                // jego długość ograniczają limity wywołującego
+                return bounded(type.stage(), pending -> 0, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Etap wykonujący zwykły {@link TextStage} na bezpiecznym początku bufora.
+     *
+     * @param maxPending Największa długość tekstu oczekującego na granicę.
+     */
+    static StreamStage bounded(TextStage stage, Boundary boundary, int maxPending) {
+        StringBuilder scratch = new StringBuilder();
+        return (pending, last, output) -> {
+            int length = last ? pending.length() : boundary.safePrefix(pending);
+            if (length == 0) {
+                if (pending.length() > maxPending) {
+                    throw new AdmissionControl.LimitExceededException(AdmissionControl.Reason.TEXT,
+                            "Tekst nie zawiera miejsca podziału (np. białego znaku lub końca zdania) w ciągu "
+                                    + maxPending + " znaków");
+                }
+                return 0;
+            }
+            scratch.setLength(0);
+            output.append(stage.apply(CharBuffer.wrap(pending, 0, length), scratch));
+            return length;
+        };
+    }
+
+    private static StreamStage dictionary(AhoCorasickAutomaton automaton) {
+        // Słownik ustalany jest raz na cały strumień, nawet jeśli w trakcie zostanie przeładowany
+        return (pending, last, output) -> automaton.replacePrefix(pending, last, output);
+    }
+
+    private static StreamStage capitalize() {
+        TextStage stage = CapitalizeTransformer.STAGE;
+        StringBuilder scratch = new StringBuilder();
+        boolean[] done = {false};
+        return (pending, last, output) -> {
+            if (done[0]) {
+                output.append(pending);
+                return pending.length();
+            }
+            if (pending.length() == 0) {
+                return 0;
+            }
+            done[0] = true;
+            scratch.setLength(0);
+            output.append(stage.apply(pending, scratch));
+            return pending.length();
+        };
+    }
+
+    static int withoutTrailingHighSurrogate(CharSequence pending) {
+        int length = pending.length();
+        return length > 0 && Character.isHighSurrogate(pending.charAt(length - 1)) ? length - 1 : length;
+    }
+
+    /**
+     * Granica tuż za ostatnim białym znakiem - wzorce niezawierające białych znaków nie mogą jej przekroczyć.
+     * Pozostawiona po cięciu reszta bufora nie zawiera białych znaków, więc przeglądany jest tylko nowy fragment.
+     *
+     * @return Granica dla jednego strumienia.
+     */
+    static Boundary whitespaceBoundary() {
+        int[] scanned = {0};
+        return pending -> {
+            int length = pending.length();
+            int cut = 0;
+            for (int i = scanned[0]; i < length; i++) {
+                if (Character.isWhitespace(pending.charAt(i))) {
+                    cut = i + 1;
+                }
+            }
+            scanned[0] = length - cut;
+            return cut;
+        };
+    }
+}
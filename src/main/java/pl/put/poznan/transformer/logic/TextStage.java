@@ -0,0 +1,23 @@
+package pl.put.poznan.transformer.logic;
+
+/**
+ * Pojedynczy etap skompilowanego łańcucha transformacji.
+ * <p>
+ * W odróżnieniu od {@link TextTransformerInterface} etap nie zna swojego poprzednika
+ * i pracuje na {@link CharSequence}, dzięki czemu kolejne etapy mogą przekazywać sobie
+ * współdzielone bufory zamiast tworzyć pośrednie obiekty {@code String}.
+ */
+interface TextStage {
+    /**
+     * Przetwarza tekst wejściowy.
+     * <p>
+     * Etap może zwrócić sam {@code input} (gdy nic nie zmienia), bufor {@code output}
+     * po dopisaniu do niego wyniku albo dowolną niezmienną sekwencję znaków.
+     * Bufor {@code output} jest pusty i nigdy nie jest tym samym obiektem co {@code input}.
+     *
+     * @param input  Tekst wejściowy.
+     * @param output Pusty bufor, do którego etap może zapisać wynik.
+     * @return Przetworzony tekst.
+     */
+    CharSequence apply(CharSequence input, StringBuilder output);
+}
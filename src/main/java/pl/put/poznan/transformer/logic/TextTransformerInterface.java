@@ -1,9 +1,6 @@
 package pl.put.poznan.transformer.logic;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 /**
  * Interfejs definiujący metodę transformacji tekstu.
@@ -38,53 +35,216 @@ abstract class TextTransformer implements TextTransformerInterface {
     public String transform(String text) {
         return transformer.transform(text);
     }
+
+    /**
+     * Wykonuje pojedynczy etap na tekście.
+     *
+     * @param stage Etap do wykonania.
+     * @param text  Tekst wejściowy.
+     * @return Przekształcony tekst; jeśli etap nic nie zmienił, zwracany jest ten sam obiekt.
+     */
+    static String applyStage(TextStage stage, String text) {
+        // Pusty bufor: etap rezerwuje miejsce na wynik dopiero, gdy zaczyna go zapisywać
+        return stage.apply(text, new StringBuilder(0)).toString();
+    }
 }
 
 // Uppercase Transformer
 /**
  * Transformer konwertujący tekst na wielkie litery.
+ * <p>
+ * Reguły zmiany wielkości liter zależą od locale - domyślnie pl-PL, niezależnie od ustawień JVM.
  */
 class UppercaseTransformer extends TextTransformer {
+    static final CaseMappingStage MAPPING = CaseMappingStage.UPPER;
+    static final TextStage STAGE = MAPPING;
+
+    private final TextStage stage;
+
     /**
      * Tworzy nową instancję transformera do wielkich liter.
      *
      * @param transformer Dekorowany transformer.
      */
     public UppercaseTransformer(TextTransformerInterface transformer) {
+        this(transformer, CaseMappingStage.DEFAULT_LOCALE);
+    }
+
+    /**
+     * Tworzy nową instancję transformera do wielkich liter dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public UppercaseTransformer(TextTransformerInterface transformer, Locale locale) {
         super(transformer);
+        this.stage = CaseMappingStage.upper(locale);
     }
 
     @Override
     public String transform(String text) {
-        return transformer.transform(text).toUpperCase();
+        return applyStage(stage, transformer.transform(text));
     }
 }
 
 // Lowercase Transformer
 /**
  * Transformer konwertujący tekst na małe litery.
+ * <p>
+ * Reguły zmiany wielkości liter zależą od locale - domyślnie pl-PL, niezależnie od ustawień JVM.
  */
 class LowercaseTransformer extends TextTransformer {
+    static final CaseMappingStage MAPPING = CaseMappingStage.LOWER;
+    static final TextStage STAGE = MAPPING;
+
+    private final TextStage stage;
+
     /**
      * Tworzy nową instancję transformera do małych liter.
      *
      * @param transformer Dekorowany transformer.
      */
     public LowercaseTransformer(TextTransformerInterface transformer) {
+        this(transformer, CaseMappingStage.DEFAULT_LOCALE);
+    }
+
+    /**
+     * Tworzy nową instancję transformera do małych liter dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public LowercaseTransformer(TextTransformerInterface transformer, Locale locale) {
+        super(transformer);
+        this.stage = CaseMappingStage.lower(locale);
+    }
+
+    @Override
+    public String transform(String text) {
+        return applyStage(stage, transformer.transform(text));
+    }
+}
+
+// Toggle Case Transformer
+/**
+ * Transformer zamieniający wielkie litery na małe, a małe na wielkie.
+ */
+class ToggleCaseTransformer extends TextTransformer {
+    static final CaseMappingStage MAPPING = CaseMappingStage.TOGGLE;
+    static final TextStage STAGE = MAPPING;
+
+    private final TextStage stage;
+
+    /**
+     * Tworzy nową instancję transformera odwracającego wielkość liter.
+     *
+     * @param transformer Dekorowany transformer.
+     */
+    public ToggleCaseTransformer(TextTransformerInterface transformer) {
+        this(transformer, CaseMappingStage.DEFAULT_LOCALE);
+    }
+
+    /**
+     * Tworzy nową instancję transformera odwracającego wielkość liter dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public ToggleCaseTransformer(TextTransformerInterface transformer, Locale locale) {
+        super(transformer);
+        this.stage = CaseMappingStage.toggle(locale);
+    }
+
+    @Override
+    public String transform(String text) {
+        return applyStage(stage, transformer.transform(text));
+    }
+}
+
+// Title Case Transformer
+/**
+ * Transformer zamieniający pierwszą literę każdego słowa na wielką, a pozostałe na małe.
+ */
+class TitleCaseTransformer extends TextTransformer {
+    static final TextStage STAGE = CaseStyleStage.TITLE;
+
+    private final TextStage stage;
+
+    /**
+     * Tworzy nową instancję transformera do stylu tytułowego.
+     *
+     * @param transformer Dekorowany transformer.
+     */
+    public TitleCaseTransformer(TextTransformerInterface transformer) {
+        super(transformer);
+        this.stage = STAGE;
+    }
+
+    /**
+     * Tworzy nową instancję transformera do stylu tytułowego dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public TitleCaseTransformer(TextTransformerInterface transformer, Locale locale) {
+        super(transformer);
+        this.stage = new CaseStyleStage(true, locale);
+    }
+
+    @Override
+    public String transform(String text) {
+        return applyStage(stage, transformer.transform(text));
+    }
+}
+
+// Sentence Case Transformer
+/**
+ * Transformer zamieniający pierwszą literę każdego zdania na wielką, a pozostałe na małe.
+ */
+class SentenceCaseTransformer extends TextTransformer {
+    static final TextStage STAGE = CaseStyleStage.SENTENCE;
+
+    private final TextStage stage;
+
+    /**
+     * Tworzy nową instancję transformera do stylu zdaniowego.
+     *
+     * @param transformer Dekorowany transformer.
+     */
+    public SentenceCaseTransformer(TextTransformerInterface transformer) {
+        super(transformer);
+        this.stage = STAGE;
+    }
+
+    /**
+     * Tworzy nową instancję transformera do stylu zdaniowego dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public SentenceCaseTransformer(TextTransformerInterface transformer, Locale locale) {
         super(transformer);
+        this.stage = new CaseStyleStage(false, locale);
     }
 
     @Override
     public String transform(String text) {
-        return transformer.transform(text).toLowerCase();
+        return applyStage(stage, transformer.transform(text));
     }
 }
 
 // Capitalize Transformer
 /**
  * Transformer konwertujący pierwszy znak tekstu na wielką literę.
+ * <p>
+ * Zmieniany jest pierwszy punkt kodowy (także spoza BMP); reszta tekstu kopiowana jest bez
+ * tworzenia podciągów, a jeśli pierwszy znak już jest wielki, zwracane jest wejście.
  */
 class CapitalizeTransformer extends TextTransformer {
+    static final TextStage STAGE = stageOf(CaseMappingStage.UPPER);
+
+    private final TextStage stage;
+
     /**
      * Tworzy nową instancję transformera do kapitalizacji.
      *
@@ -92,28 +252,57 @@ class CapitalizeTransformer extends TextTransformer {
      */
     public CapitalizeTransformer(TextTransformerInterface transformer) {
         super(transformer);
+        this.stage = STAGE;
+    }
+
+    /**
+     * Tworzy nową instancję transformera do kapitalizacji dla podanego locale.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param locale      Locale określające reguły zmiany wielkości liter.
+     */
+    public CapitalizeTransformer(TextTransformerInterface transformer, Locale locale) {
+        super(transformer);
+        this.stage = stageOf(CaseMappingStage.upper(locale));
+    }
+
+    private static TextStage stageOf(CaseMappingStage upper) {
+        return (input, output) -> {
+            if (input.length() == 0) {
+                return input;
+            }
+            int first = Character.codePointAt(input, 0);
+            int mapped = upper.map(first);
+            if (mapped == first) {
+                return input;
+            }
+            output.ensureCapacity(output.length() + input.length() + 2);
+            if (mapped == CharMappingStage.EXPANDS) {
+                upper.expand(first, output);
+            } else {
+                output.appendCodePoint(mapped);
+            }
+            return output.append(input, Character.charCount(first), input.length());
+        };
     }
 
     @Override
     public String transform(String text) {
         if (text == null || text.isEmpty()) return text;
-        return transformer.transform(text.substring(0, 1).toUpperCase() + text.substring(1));
+        return transformer.transform(applyStage(stage, text));
     }
 }
 
 // Abbreviate Transformer
 /**
  * Transformer zamieniający frazy na ich skrócone formy.
+ * <p>
+ * Korzysta z bieżącego słownika {@link PhraseDictionaries#getAbbreviations()}.
  */
 class AbbreviateTransformer extends TextTransformer {
-    private static final Map<String, String> abbreviations = new HashMap<>();
+    static final TextStage STAGE = (input, output) ->
+            PhraseDictionaries.getAbbreviations().replace(input, output) ? output : input;
 
-    static {
-        abbreviations.put("na przykład", "np.");
-        abbreviations.put("między innymi", "m.in.");
-        abbreviations.put("i tym podobne", "itp.");
-        abbreviations.put("i tak dalej", "itd.");
-    }
     /**
      * Tworzy nową instancję transformera do skracania tekstu.
      *
@@ -125,27 +314,20 @@ class AbbreviateTransformer extends TextTransformer {
 
     @Override
     public String transform(String text) {
-        String result = transformer.transform(text);
-        for (Map.Entry<String, String> entry : abbreviations.entrySet()) {
-            result = result.replaceAll("(?i)" + entry.getKey(), entry.getValue());
-        }
-        return result;
+        return applyStage(STAGE, transformer.transform(text));
     }
 }
 
 // Expand Transformer
 /**
  * Transformer zamieniający skróty na ich pełne formy.
+ * <p>
+ * Korzysta z bieżącego słownika {@link PhraseDictionaries#getExpansions()}.
  */
 class ExpandTransformer extends TextTransformer {
-    private static final Map<String, String> expansions = new HashMap<>();
+    static final TextStage STAGE = (input, output) ->
+            PhraseDictionaries.getExpansions().replace(input, output) ? output : input;
 
-    static {
-        expansions.put("np.", "na przykład");
-        expansions.put("m.in.", "między innymi");
-        expansions.put("itp.", "i tym podobne");
-        expansions.put("itd.", "i tak dalej");
-    }
     /**
      * Tworzy nową instancję transformera do rozszerzania skrótów.
      *
@@ -157,19 +339,19 @@ class ExpandTransformer extends TextTransformer {
 
     @Override
     public String transform(String text) {
-        String result = transformer.transform(text);
-        for (Map.Entry<String, String> entry : expansions.entrySet()) {
-            result = result.replaceAll("(?i)" + Pattern.quote(entry.getKey()), entry.getValue());
-        }
-        return result;
+        return applyStage(STAGE, transformer.transform(text));
     }
 }
 
 // Inverse Transformer
 /**
- * Transformer odwracający tekst, zachowując wielkość liter.
+ * Transformer odwracający tekst, zachowując wielkość liter na kolejnych pozycjach.
+ * <p>
+ * Tekst wynikowy dekorowanego transformera odwracany jest klastrami grafemów przez {@link GraphemeReverser}.
  */
 class InverseTransformer extends TextTransformer {
+    static final TextStage STAGE = GraphemeReverser::reverse;
+
     /**
      * Tworzy nową instancję transformera do odwracania tekstu.
      *
@@ -181,63 +363,93 @@ class InverseTransformer extends TextTransformer {
 
     @Override
     public String transform(String text) {
-        char[] characters = text.toCharArray();
-        char[] reversed = new char[characters.length];
-
-        for (int i = 0; i < characters.length; i++) {
-            reversed[i] = characters[characters.length - 1 - i];
-        }
-
-        for (int i = 0; i < characters.length; i++) {
-            if (Character.isUpperCase(characters[i])) {
-                reversed[i] = Character.toUpperCase(reversed[i]);
-            } else {
-                reversed[i] = Character.toLowerCase(reversed[i]);
-            }
-        }
-        return new String(reversed);
+        return applyStage(STAGE, transformer.transform(text));
     }
 }
 
 // Remove Duplicates Transformer
 /**
  * Transformer usuwający zduplikowane słowa w tekście.
+ * <p>
+ * Powtórzenia usuwane są w jednym przejściu przez {@link DuplicateWordRemover}, po wykonaniu
+ * dekorowanego transformera.
  */
 class RemoveDuplicatesTransformer extends TextTransformer {
+    static final TextStage STAGE = stageOf(DuplicateWordRemover.DEFAULT);
+
+    private final TextStage stage;
+
     /**
      * Tworzy nową instancję transformera do usuwania duplikatów.
      *
      * @param transformer Dekorowany transformer.
      */
     public RemoveDuplicatesTransformer(TextTransformerInterface transformer) {
+        this(transformer, DuplicateWordRemover.DEFAULT);
+    }
+
+    /**
+     * Tworzy nową instancję transformera do usuwania duplikatów o podanej konfiguracji.
+     *
+     * @param transformer Dekorowany transformer.
+     * @param remover     Konfiguracja wyszukiwania powtórzeń.
+     */
+    public RemoveDuplicatesTransformer(TextTransformerInterface transformer, DuplicateWordRemover remover) {
         super(transformer);
+        this.stage = remover == DuplicateWordRemover.DEFAULT ? STAGE : stageOf(remover);
+    }
+
+    static TextStage stageOf(DuplicateWordRemover remover) {
+        return (input, output) -> remover.remove(input, output) ? output : input;
     }
 
     @Override
     public String transform(String text) {
-        Pattern pattern = Pattern.compile("\\b(\\w+)(\\s+\\1)+\\b", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(text);
-        return matcher.replaceAll("$1");
+        return applyStage(stage, transformer.transform(text));
     }
 }
 
 // LaTeX Transformer
 /**
  * Transformer konwertujący znaki specjalne na ich odpowiedniki LaTeX.
+ * <p>
+ * Zamiana odbywa się w jednym przejściu na podstawie tablicy indeksowanej kodem znaku.
  */
 class LatexTransformer extends TextTransformer {
-    private static final Map<String, String> latex = new HashMap<>();
+    private static final String[] latex = new String[128];
+
+    static final CharMappingStage MAPPING = new CharMappingStage() {
+        @Override
+        public int map(int codePoint) {
+            return codePoint < latex.length && latex[codePoint] != null ? EXPANDS : codePoint;
+        }
+
+        @Override
+        public void expand(int codePoint, StringBuilder output) {
+            output.append(latex[codePoint]);
+        }
+    };
+
+    static final TextStage STAGE = (input, output) -> {
+        int first = indexOfSpecial(input, 0);
+        if (first < 0) {
+            return input;
+        }
+        output.ensureCapacity(escapedLength(input, first));
+        escape(input, first, output);
+        return output;
+    };
 
     static {
-        latex.put("&", "\\&");
-        latex.put("$", "\\$");
-        latex.put("%", "\\%");
-        latex.put("#", "\\#");
-        latex.put("_", "\\_");
-        latex.put("{", "\\{");
-        latex.put("}", "\\}");
-        latex.put("~", "\\~{}");
-        latex.put("^", "\\^{}");
+        latex['&'] = "\\&";
+        latex['$'] = "\\$";
+        latex['%'] = "\\%";
+        latex['#'] = "\\#";
+        latex['_'] = "\\_";
+        latex['{'] = "\\{";
+        latex['}'] = "\\}";
+        latex['~'] = "\\~{}";
+        latex['^'] = "\\^{}";
     }
     /**
      * Tworzy nową instancję transformera do konwersji znaków specjalnych na LaTeX.
@@ -250,18 +462,66 @@ class LatexTransformer extends TextTransformer {
 
     @Override
     public String transform(String text) {
-        String result = transformer.transform(text);
-        for (Map.Entry<String, String> entry : latex.entrySet()) {
-            result = result.replace(entry.getKey(), entry.getValue());
+        return applyStage(STAGE, transformer.transform(text));
+    }
+
+    /**
+     * Wyszukuje pierwszy znak wymagający zamiany.
+     *
+     * @param text Tekst wejściowy.
+     * @param from Pozycja początkowa.
+     * @return Indeks znaku specjalnego lub -1.
+     */
+    static int indexOfSpecial(CharSequence text, int from) {
+        for (int i = from, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c < latex.length && latex[c] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Dopisuje tekst do bufora, zamieniając znaki specjalne od pozycji {@code first}.
+     *
+     * @param text   Tekst wejściowy.
+     * @param first  Indeks pierwszego znaku specjalnego (znaki wcześniejsze są kopiowane bez zmian).
+     * @param output Bufor wyjściowy.
+     */
+    static void escape(CharSequence text, int first, StringBuilder output) {
+        output.append(text, 0, first);
+        for (int i = first, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            String escaped = c < latex.length ? latex[c] : null;
+            if (escaped == null) {
+                output.append(c);
+            } else {
+                output.append(escaped);
+            }
         }
-        return result;
+    }
+
+    private static int escapedLength(CharSequence text, int first) {
+        int escapedLength = text.length();
+        for (int i = first, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c < latex.length && latex[c] != null) {
+                escapedLength += latex[c].length() - 1;
+            }
+        }
+        return escapedLength;
     }
 }
 
 /**
  * Transformer konwertujący liczby w tekście na ich słowne odpowiedniki w języku polskim.
+ * <p>
+ * Obsługuje pełny zakres typu {@code long}, liczby ujemne i ułamki dziesiętne z odmianą
+ * rzędów wielkości (tysiąc, tysiące, tysięcy).
  */
 class NumberToTextTransformer extends TextTransformer {
+    static final TextStage STAGE = (input, output) -> PolishNumberWords.convert(input, output) ? output : input;
 
     public NumberToTextTransformer(TextTransformerInterface transformer) {
         super(transformer);
@@ -278,74 +538,18 @@ class NumberToTextTransformer extends TextTransformer {
      * @param text wejściowy tekst
      * @return tekst z liczbami zamienionymi na słowa
      */
-    public String convertNumbersToText(String text) {
-        String[] unitNames = {"", "jeden", "dwa", "trzy", "cztery", "pięć", "sześć", "siedem", "osiem", "dziewięć"};
-        String[] teenNames = {"dziesięć", "jedenaście", "dwanaście", "trzynaście", "czternaście", "piętnaście",
-                "szesnaście", "siedemnaście", "osiemnaście", "dziewiętnaście"};
-        String[] tensNames = {"", "", "dwadzieścia", "trzydzieści", "czterdzieści", "pięćdziesiąt",
-                "sześćdziesiąt", "siedemdziesiąt", "osiemdziesiąt", "dziewięćdziesiąt"};
-        String hundredName = "sto";
-
-        Pattern pattern = Pattern.compile("\\b\\d+(\\.\\d{1,2})?\\b");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer buffer = new StringBuffer();
-
-        while (matcher.find()) {
-            String match = matcher.group();
-            String replacement;
-
-            try {
-                if (match.contains(".")) {
-                    String[] parts = match.split("\\.");
-                    int wholePart = Integer.parseInt(parts[0]);
-                    int fractionalPart = Integer.parseInt(parts[1]);
-
-                    replacement = (wholePart <= 100 ? numberToText(wholePart, unitNames, teenNames, tensNames, hundredName) : match) +
-                            " koma " +
-                            numberToText(fractionalPart, unitNames, teenNames, tensNames, hundredName);
-                } else {
-                    int number = Integer.parseInt(match);
-                    replacement = numberToText(number, unitNames, teenNames, tensNames, hundredName);
-                }
-            } catch (NumberFormatException e) {
-                replacement = match;
-            }
-
-            matcher.appendReplacement(buffer, replacement);
-        }
-        matcher.appendTail(buffer);
-        return buffer.toString();
+    public static String convertNumbersToText(String text) {
+        return applyStage(STAGE, text);
     }
 
     /**
      * Konwertuje liczbę całkowitą na jej słowny odpowiednik w języku polskim.
-     * <p>
-     * Obsługuje liczby od 0 do 100. Dla liczb spoza tego zakresu zwraca ich oryginalną reprezentację.
      *
-     * @param number       liczba do przekształcenia na tekst
-     * @param unitNames    tablica słownych odpowiedników jednostek (0-9)
-     * @param teenNames    tablica słownych odpowiedników liczb od 10 do 19
-     * @param tensNames    tablica słownych odpowiedników dziesiątek (20, 30, ..., 90)
-     * @param hundredName  słowny odpowiednik liczby 100
+     * @param number liczba do przekształcenia na tekst
      * @return słowna reprezentacja liczby w języku polskim
      */
-    public String numberToText(int number, String[] unitNames, String[] teenNames, String[] tensNames, String hundredName) {
-        if (number > 100) {
-            return Integer.toString(number);
-        }
-        if (number == 0) {
-            return "zero";
-        } else if (number == 100) {
-            return hundredName;
-        } else if (number >= 20) {
-            int tens = number / 10;
-            int units = number % 10;
-            return tensNames[tens] + (units > 0 ? " " + unitNames[units] : "");
-        } else if (number >= 10) {
-            return teenNames[number - 10];
-        } else {
-            return unitNames[number];
-        }
+    public static String numberToText(long number) {
+        return PolishNumberWords.toWords(number);
     }
 }
 
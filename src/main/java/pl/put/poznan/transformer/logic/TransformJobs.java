@@ -0,0 +1,635 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kolejka zadań asynchronicznych dla długotrwałych transformacji dużych tekstów.
+ * <p>
+ * Zadania trafiają do ograniczonej kolejki priorytetowej (wyższy priorytet wcześniej, przy równym
+ * priorytecie w kolejności zgłoszenia) i wykonywane są przez osobną pulę wątków, więc nie zajmują
+ * wątków obsługujących żądania interaktywne. Gdy kolejka jest pełna, zgłoszenie jest odrzucane.
+ * <p>
+ * Tekst przetwarzany jest strumieniowo przez {@link StreamingPipeline}, co pozwala śledzić postęp
+ * (udział przeczytanych znaków wejścia) i przerwać zadanie między fragmentami. Granice przetwarzania
+ * wyznaczane są przyrostowo, więc czas nie rośnie kwadratowo z długością tekstu bez granicy. Tekst
+ * zadania jest już w pamięci, dlatego etapy nie mają limitu tekstu oczekującego na granicę
+ * i zadanie daje ten sam wynik co {@link TransformerFactory#compile(String[])}. Wynik dłuższy niż
+ * {@code spoolThreshold} znaków zapisywany jest do pliku w katalogu {@code spoolDirectory} zamiast
+ * do pamięci; na dysk trafia także wynik, który przekroczyłby łączny limit wyników w pamięci
+ * {@code maxResultMemory}. Zakończone zadania i ich pliki usuwane są po czasie {@code retention},
+ * a gdy zakończonych zadań jest więcej niż {@code maxFinished} - od najdawniej zakończonych.
+ * Plik wyniku czytanego właśnie przez klienta usuwany jest dopiero po zamknięciu strumienia.
+ * <p>
+ * Klasa jest bezpieczna wątkowo.
+ */
+public final class TransformJobs {
+
+    /** Najniższy dopuszczalny priorytet zadania. */
+    public static final int MIN_PRIORITY = 0;
+
+    /** Najwyższy dopuszczalny priorytet zadania. */
+    public static final int MAX_PRIORITY = 9;
+
+    /** Priorytet zadania, jeśli nie podano innego. */
+    public static final int DEFAULT_PRIORITY = 5;
+
+    /**
+     * Stan zadania.
+     */
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        /**
+         * @return {@code true}, jeśli zadanie już się zakończyło (poprawnie lub nie).
+         */
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * Zadanie transformacji. Stan, postęp i wynik można odczytywać z dowolnego wątku.
+     */
+    public static final class Job implements Comparable<Job> {
+        private final String id = UUID.randomUUID().toString();
+        private final long sequence;
+        private final int priority;
+        private final StreamingPipeline pipeline;
+        private final Instant submitted = Instant.now();
+        private final long length;
+        private String text;
+        private final AtomicLong consumed = new AtomicLong();
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile String error;
+        private volatile String result;
+        private volatile Path resultFile;
+        private volatile long finishedAt;
+        /** Liczba otwartych strumieni wyniku; chroniona monitorem zadania. */
+        private int readers;
+        /** Zadanie usunięto, a jego wynik zwolniono; chronione monitorem zadania. */
+        private boolean released;
+        private long resultMemory;
+
+        private Job(long sequence, int priority, StreamingPipeline pipeline, String text) {
+            this.sequence = sequence;
+            this.priority = priority;
+            this.pipeline = pipeline;
+            this.text = text;
+            this.length = text.length();
+        }
+
+        /**
+         * @return Identyfikator zadania.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return Priorytet zadania.
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return Moment zgłoszenia zadania.
+         */
+        public Instant getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * @return Stan zadania.
+         */
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return Postęp od 0 do 1: udział przetworzonych znaków wejścia.
+         */
+        public double getProgress() {
+            if (state == State.DONE) {
+                return 1.0;
+            }
+            return length == 0 ? 0.0 : Math.min(1.0, (double) consumed.get() / length);
+        }
+
+        /**
+         * @return Komunikat błędu, jeśli zadanie zakończyło się niepowodzeniem, w przeciwnym razie {@code null}.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return {@code true}, jeśli wynik zapisano na dysku.
+         */
+        public boolean isSpooled() {
+            return resultFile != null;
+        }
+
+        /**
+         * Otwiera wynik zakończonego zadania w UTF-8. Dopóki strumień nie zostanie zamknięty,
+         * plik wyniku nie jest usuwany, nawet jeśli zadanie anulowano lub wygasło.
+         *
+         * @return Strumień wyniku; należy go zamknąć.
+         * @throws IllegalStateException jeśli zadanie nie zakończyło się poprawnie lub jego wynik już usunięto.
+         * @throws IOException           jeśli nie udało się otworzyć pliku wyniku.
+         */
+        public InputStream openResult() throws IOException {
+            synchronized (this) {
+                if (state != State.DONE || released) {
+                    throw new IllegalStateException("Zadanie nie ma wyniku: " + (released ? "usunięto" : state));
+                }
+                if (resultFile == null) {
+                    return new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8));
+                }
+                InputStream file = Files.newInputStream(resultFile);
+                readers++;
+                return new FilterInputStream(file) {
+                    private boolean closed;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (closed) {
+                            return;
+                        }
+                        closed = true;
+                        try {
+                            super.close();
+                        } finally {
+                            closeReader();
+                        }
+                    }
+                };
+            }
+        }
+
+        /**
+         * Zapisuje wynik zakończonego zadania do strumienia w UTF-8.
+         *
+         * @param out Strumień wyjściowy; nie jest zamykany.
+         * @throws IllegalStateException jeśli zadanie nie zakończyło się poprawnie lub jego wynik już usunięto.
+         * @throws IOException           jeśli wystąpił błąd odczytu pliku wyniku lub zapisu.
+         */
+        public void writeResultTo(OutputStream out) throws IOException {
+            try (InputStream in = openResult()) {
+                in.transferTo(out);
+            }
+        }
+
+        private synchronized void closeReader() {
+            if (--readers == 0 && released) {
+                deleteResultFile(this);
+            }
+        }
+
+        /**
+         * Zwalnia wynik usuniętego zadania. Plik czytany przez klientów usuwa ostatni z nich.
+         *
+         * @return Liczba znaków wyniku zwolnionych z pamięci.
+         */
+        private synchronized long release() {
+            released = true;
+            result = null;
+            if (readers == 0) {
+                deleteResultFile(this);
+            }
+            long memory = resultMemory;
+            resultMemory = 0;
+            return memory;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    /** Zakończone zadania w kolejności zakończenia; mogą zawierać zadania już usunięte z {@code jobs}. */
+    private final ConcurrentLinkedQueue<Job> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private final AtomicLong resultMemory = new AtomicLong();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final int queueCapacity;
+    private final int spoolThreshold;
+    private final Path spoolDirectory;
+    private final long retentionNanos;
+    private final int maxFinished;
+    private final long maxResultMemory;
+    private final List<Thread> workers = new ArrayList<>();
+
+    /**
+     * Tworzy kolejkę zadań i uruchamia wątki robocze.
+     *
+     * @param workers        Liczba wątków wykonujących zadania.
+     * @param queueCapacity  Największa liczba zadań oczekujących na wykonanie.
+     * @param spoolThreshold Długość wyniku (w znakach), od której jest on zapisywany na dysku.
+     * @param spoolDirectory Katalog plików z wynikami; jest tworzony, jeśli nie istnieje.
+     * @param retention      Czas przechowywania zakończonych zadań i ich wyników.
+     * @param maxFinished    Największa liczba przechowywanych zakończonych zadań.
+     * @param maxResultMemory Największa łączna długość (w znakach) wyników przechowywanych w pamięci.
+     * @throws IllegalArgumentException jeśli liczba wątków, pojemność kolejki lub liczba zakończonych zadań
+     *                                  nie jest dodatnia.
+     * @throws UncheckedIOException     jeśli nie udało się utworzyć katalogu wyników.
+     */
+    public TransformJobs(int workers, int queueCapacity, int spoolThreshold, Path spoolDirectory, Duration retention,
+                         int maxFinished, long maxResultMemory) {
+        this(queueCapacity, spoolThreshold, spoolDirectory, retention, maxFinished, maxResultMemory);
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Liczba wątków musi być dodatnia: " + workers);
+        }
+        for (int i = 1; i <= workers; i++) {
+            Thread worker = new Thread(this::work, "transform-job-" + i);
+            worker.setDaemon(true);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Tworzy kolejkę zadań bez wątków roboczych; zadania wykonuje {@link #runNext()}.
+     */
+    TransformJobs(int queueCapacity, int spoolThreshold, Path spoolDirectory, Duration retention,
+                  int maxFinished, long maxResultMemory) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Pojemność kolejki musi być dodatnia: " + queueCapacity);
+        }
+        if (maxFinished <= 0) {
+            throw new IllegalArgumentException("Liczba zakończonych zadań musi być dodatnia: " + maxFinished);
+        }
+        this.queueCapacity = queueCapacity;
+        this.spoolThreshold = spoolThreshold;
+        this.spoolDirectory = spoolDirectory;
+        this.retentionNanos = retention.toNanos();
+        this.maxFinished = maxFinished;
+        this.maxResultMemory = maxResultMemory;
+        try {
+            Files.createDirectories(spoolDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Zgłasza zadanie transformacji.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param text       Tekst wejściowy.
+     * @param priority   Priorytet od {@link #MIN_PRIORITY} do {@link #MAX_PRIORITY}.
+     * @return Zgłoszone zadanie.
+     * @throws IllegalArgumentException   jeśli nazwa transformacji lub priorytet są niepoprawne albo brak tekstu.
+     * @throws RejectedExecutionException jeśli kolejka jest pełna.
+     */
+    public Job submit(String[] transforms, String text, int priority) {
+        if (text == null) {
+            throw new IllegalArgumentException("Brak tekstu");
+        }
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("Priorytet musi być z zakresu " + MIN_PRIORITY + "-" + MAX_PRIORITY
+                    + ": " + priority);
+        }
+        StreamingPipeline pipeline = TransformerFactory.createStreaming(transforms, Integer.MAX_VALUE);
+        purgeExpired();
+        int count;
+        do {
+            count = queued.get();
+            if (count >= queueCapacity) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Kolejka zadań jest pełna (" + queueCapacity + ")");
+            }
+        } while (!queued.compareAndSet(count, count + 1));
+        Job job = new Job(sequence.incrementAndGet(), priority, pipeline, text);
+        jobs.put(job.id, job);
+        queue.add(job);
+        return job;
+    }
+
+    /**
+     * @param id Identyfikator zadania.
+     * @return Zadanie albo {@code null}, jeśli nie istnieje lub zostało już usunięte.
+     */
+    public Job get(String id) {
+        purgeExpired();
+        return jobs.get(id);
+    }
+
+    /**
+     * Anuluje zadanie. Zadanie oczekujące jest usuwane z kolejki, a wykonywane - przerywane
+     * przy najbliższym fragmencie tekstu. Zakończone zadanie jest usuwane razem z wynikiem.
+     *
+     * @param id Identyfikator zadania.
+     * @return Zadanie albo {@code null}, jeśli nie istnieje.
+     */
+    public Job cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        job.cancelRequested = true;
+        if (queue.remove(job)) {
+            queued.decrementAndGet();
+            finish(job, State.CANCELLED);
+        } else if (job.state.isFinished()) {
+            discard(job);
+        }
+        return job;
+    }
+
+    /**
+     * @return Liczba zadań oczekujących na wykonanie.
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return Liczba zadań w trakcie wykonania.
+     */
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    /**
+     * @return Liczba przechowywanych zakończonych zadań.
+     */
+    public int getFinishedCount() {
+        return finishedCount.get();
+    }
+
+    /**
+     * @return Łączna długość (w znakach) wyników przechowywanych w pamięci.
+     */
+    public long getResultMemory() {
+        return resultMemory.get();
+    }
+
+    /**
+     * @return Liczba zgłoszeń odrzuconych z powodu pełnej kolejki.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Zatrzymuje wątki robocze i usuwa pliki wyników.
+     */
+    public void shutdown() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Job job : jobs.values()) {
+            job.cancelRequested = true;
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Job job : jobs.values()) {
+            discard(job);
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                run(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wykonuje w bieżącym wątku zadanie z początku kolejki, jeśli jest.
+     *
+     * @return {@code true}, jeśli wykonano zadanie.
+     */
+    boolean runNext() {
+        Job job = queue.poll();
+        if (job == null) {
+            return false;
+        }
+        run(job);
+        return true;
+    }
+
+    private void run(Job job) {
+        queued.decrementAndGet();
+        running.incrementAndGet();
+        job.state = State.RUNNING;
+        try (SpoolingWriter writer = new SpoolingWriter(job)) {
+            job.pipeline.transform(new ProgressReader(job), writer);
+            writer.complete();
+            finish(job, State.DONE);
+        } catch (InterruptedIOException e) {
+            finish(job, State.CANCELLED);
+        } catch (IOException | RuntimeException e) {
+            job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            finish(job, State.FAILED);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void finish(Job job, State state) {
+        job.text = null;
+        if (state != State.DONE) {
+            deleteResultFile(job);
+            job.result = null;
+        }
+        job.finishedAt = System.nanoTime();
+        job.state = state;
+        finishedCount.incrementAndGet();
+        finished.add(job);
+        synchronized (finished) {
+            // Usuwa najdawniej zakończone zadania ponad limit
+            while (finishedCount.get() > maxFinished && pollFinished()) {
+            }
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        synchronized (finished) {
+            Job oldest;
+            while ((oldest = finished.peek()) != null && now - oldest.finishedAt > retentionNanos) {
+                pollFinished();
+            }
+        }
+    }
+
+    /**
+     * Usuwa z kolejki zakończonych najdawniej zakończone zadanie, jeśli jeszcze nie zostało usunięte.
+     * Wywoływana z blokadą {@code finished}.
+     *
+     * @return {@code false}, jeśli nie ma już zakończonych zadań.
+     */
+    private boolean pollFinished() {
+        Job oldest = finished.poll();
+        if (oldest == null) {
+            return false;
+        }
+        discard(oldest);
+        return true;
+    }
+
+    /**
+     * Usuwa zakończone zadanie z rejestru i zwalnia jego wynik, jeśli nie zrobił tego już inny wątek.
+     */
+    private void discard(Job job) {
+        if (jobs.remove(job.id, job)) {
+            if (job.state.isFinished()) {
+                finishedCount.decrementAndGet();
+            }
+            resultMemory.addAndGet(-job.release());
+        }
+    }
+
+    private static void deleteResultFile(Job job) {
+        Path file = job.resultFile;
+        if (file != null) {
+            job.resultFile = null;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Czyta tekst zadania, aktualizując postęp i sprawdzając, czy zadania nie anulowano.
+     */
+    private static final class ProgressReader extends Reader {
+        private final Job job;
+        private final Reader text;
+
+        ProgressReader(Job job) {
+            this.job = job;
+            this.text = new StringReader(job.text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (job.cancelRequested) {
+                throw new InterruptedIOException("Zadanie anulowano");
+            }
+            int read = text.read(buffer, offset, length);
+            if (read > 0) {
+                job.consumed.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Zbiera wynik w pamięci, a po przekroczeniu progu przenosi go do pliku i dalej zapisuje na dysk.
+     */
+    private final class SpoolingWriter extends Writer {
+        private final Job job;
+        private StringBuilder buffer = new StringBuilder();
+        private Writer file;
+
+        SpoolingWriter(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (file == null && buffer.length() + length > spoolThreshold) {
+                spool();
+            }
+            if (file != null) {
+                file.write(chars, offset, length);
+            } else {
+                buffer.append(chars, offset, length);
+            }
+        }
+
+        private void spool() throws IOException {
+            Path path = Files.createTempFile(spoolDirectory, "job-", ".txt");
+            job.resultFile = path;
+            file = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            file.append(buffer);
+            buffer = null;
+        }
+
+        /**
+         * Zapamiętuje wynik w zadaniu; plik jest domykany przy {@link #close()}. Wynik, który
+         * przekroczyłby łączny limit wyników w pamięci, zapisywany jest na dysku.
+         */
+        void complete() throws IOException {
+            if (file == null) {
+                long length = buffer.length();
+                if (resultMemory.addAndGet(length) <= maxResultMemory) {
+                    synchronized (job) {
+                        job.resultMemory = length;
+                        job.result = buffer.toString();
+                    }
+                    return;
+                }
+                resultMemory.addAndGet(-length);
+                spool();
+            }
+            file.close();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (file != null) {
+                file.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+}
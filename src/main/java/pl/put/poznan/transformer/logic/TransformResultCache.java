@@ -0,0 +1,236 @@
+package pl.put.poznan.transformer.logic;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache wyników transformacji dla powtarzających się par (lista transformacji, tekst).
+ * <p>
+ * Rozmiar cache ograniczony jest sumaryczną wagą wpisów w bajtach (szacowaną na podstawie długości
+ * tekstów), a nie liczbą wpisów. Po przekroczeniu limitu usuwane są najdawniej używane wpisy (LRU).
+ * Wpisy starsze niż zadany czas życia są pomijane i usuwane. Teksty dłuższe niż
+ * {@code maxTextLength} omijają cache, aby pojedyncze duże dokumenty nie wypierały pozostałych wpisów.
+ * <p>
+ * Wynik zapamiętywany jest razem ze słownikami skrótów i rozwinięć, z którymi powstał - po
+ * przeładowaniu słowników dawne wyniki nie są zwracane. Klasa jest bezpieczna wątkowo.
+ */
+public final class TransformResultCache {
+
+    /** Przybliżony narzut pamięci wpisu: obiekty klucza, wpisu, mapy i nagłówki tablic znaków. */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * Klucz wpisu z zapamiętanym skrótem, aby nie liczyć go wielokrotnie dla długich tekstów.
+     */
+    private static final class Key {
+        private final List<String> transforms;
+        private final String text;
+        private final int hash;
+
+        private Key(List<String> transforms, String text) {
+            this.transforms = transforms;
+            this.text = text;
+            this.hash = 31 * transforms.hashCode() + text.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && transforms.equals(key.transforms) && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final String result;
+        private final long weight;
+        private final long expiresAt;
+        private final AhoCorasickAutomaton abbreviations;
+        private final AhoCorasickAutomaton expansions;
+
+        private Entry(String result, long weight, long expiresAt, AhoCorasickAutomaton abbreviations,
+                      AhoCorasickAutomaton expansions) {
+            this.result = result;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.abbreviations = abbreviations;
+            this.expansions = expansions;
+        }
+    }
+
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final int maxTextLength;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Tworzy nowy cache wyników.
+     *
+     * @param maxWeight     Maksymalna łączna waga wpisów w bajtach.
+     * @param ttl           Czas życia wpisu.
+     * @param maxTextLength Najdłuższy tekst (w znakach), którego wynik może trafić do cache.
+     * @throws IllegalArgumentException jeśli waga lub czas życia nie są dodatnie.
+     */
+    public TransformResultCache(long maxWeight, Duration ttl, int maxTextLength) {
+        if (maxWeight <= 0 || ttl.isZero() || ttl.isNegative()) {
+            throw new IllegalArgumentException("Waga i czas życia wpisów muszą być dodatnie");
+        }
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttl.toNanos();
+        this.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * Zwraca wynik z cache albo oblicza go i zapamiętuje.
+     * <p>
+     * Obliczenie odbywa się poza blokadą; wyjątki są przekazywane dalej, a nic nie trafia do cache.
+     *
+     * @param transforms Tablica nazw transformacji.
+     * @param text       Tekst wejściowy.
+     * @param transform  Funkcja obliczająca wynik dla tekstu.
+     * @return Przekształcony tekst.
+     */
+    public String get(String[] transforms, String text, UnaryOperator<String> transform) {
+        if (text == null || text.length() > maxTextLength) {
+            bypasses.incrementAndGet();
+            return transform.apply(text);
+        }
+        Key key = new Key(TransformerPipelineCache.normalize(transforms), text);
+        AhoCorasickAutomaton abbreviations = PhraseDictionaries.getAbbreviations();
+        AhoCorasickAutomaton expansions = PhraseDictionaries.getExpansions();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0 && entry.abbreviations == abbreviations
+                        && entry.expansions == expansions) {
+                    hits.incrementAndGet();
+                    return entry.result;
+                }
+                remove(key, entry);
+            }
+        }
+        misses.incrementAndGet();
+        String result = transform.apply(text);
+        long entryWeight = ENTRY_OVERHEAD + 2L * (text.length() + (result == text ? 0 : result.length()));
+        if (entryWeight <= maxWeight) {
+            Entry entry = new Entry(result, entryWeight, now + ttlNanos, abbreviations, expansions);
+            synchronized (entries) {
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    weight -= previous.weight;
+                }
+                weight += entryWeight;
+                evict(now);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Usuwa wpisy przeterminowane z początku kolejki LRU, a następnie najdawniej używane, aż waga zmieści się w limicie.
+     */
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (weight <= maxWeight && now - eldest.expiresAt < 0) {
+                break;
+            }
+            iterator.remove();
+            weight -= eldest.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * @return Liczba zapytań obsłużonych z cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Liczba zapytań, dla których wynik trzeba było obliczyć.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Liczba zapytań z tekstem zbyt długim, aby trafić do cache.
+     */
+    public long getBypassCount() {
+        return bypasses.get();
+    }
+
+    /**
+     * @return Liczba wpisów usuniętych z powodu limitu wagi, czasu życia lub zmiany słowników.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Udział trafień wśród zapytań, które mogły zostać obsłużone z cache (0, jeśli nie było zapytań).
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return Aktualna łączna waga wpisów w bajtach.
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * @return Aktualna liczba wpisów.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Usuwa wszystkie wpisy. Liczniki pozostają bez zmian.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
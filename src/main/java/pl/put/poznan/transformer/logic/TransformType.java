@@ -0,0 +1,185 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Rejestr dostępnych transformacji tekstu.
+ * <p>
+ * Każda transformacja ma nazwę używaną w zapytaniach, dekorator budowany przez
+ * {@link TransformerFactory#createTransformer(String[])} oraz etap używany w skompilowanym łańcuchu.
+ * <p>
+ * Koszt i przyrost są przybliżonymi metadanymi używanymi przez
+ * {@link TransformerFactory#estimateCost(String[], long)}: koszt to względna praca na znak wejścia
+ * ({@code upper} = 1), a przyrost - największa liczba znaków wyniku na znak wejścia
+ * (np. "ß" -&gt; "SS", "~" -&gt; "\~{}", "77" -&gt; "siedemdziesiąt siedem"; dla {@code expand}
+ * według wbudowanego słownika).
+ */
+public enum TransformType {
+    UPPER("upper", UppercaseTransformer::new, () -> UppercaseTransformer.STAGE,
+            () -> UppercaseTransformer.MAPPING, Placement.IN_ORDER, true, 1, 3),
+    LOWER("lower", LowercaseTransformer::new, () -> LowercaseTransformer.STAGE,
+            () -> LowercaseTransformer.MAPPING, Placement.IN_ORDER, true, 1, 2),
+    CAPITALIZE("capitalize", CapitalizeTransformer::new, () -> CapitalizeTransformer.STAGE,
+            () -> null, Placement.FIRST, true, 1, 3),
+    ABBREVIATE("abbreviate", AbbreviateTransformer::new, () -> AbbreviateTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, false, 4, 1),
+    EXPAND("expand", ExpandTransformer::new, () -> ExpandTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, false, 4, 4),
+    INVERSE("inverse", InverseTransformer::new, () -> InverseTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, false, 2, 1),
+    REMOVE_DUPLICATES("removeduplicates", RemoveDuplicatesTransformer::new, () -> RemoveDuplicatesTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, true, 6, 1),
+    LATEX("latex", LatexTransformer::new, () -> LatexTransformer.STAGE,
+            () -> LatexTransformer.MAPPING, Placement.IN_ORDER, false, 1, 4),
+    NUMBER_TO_TEXT("numbertotext", NumberToTextTransformer::new, () -> NumberToTextTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, true, 3, 11),
+    TOGGLE("toggle", ToggleCaseTransformer::new, () -> ToggleCaseTransformer.STAGE,
+            () -> ToggleCaseTransformer.MAPPING, Placement.IN_ORDER, false, 1, 3),
+    TITLE("title", TitleCaseTransformer::new, () -> TitleCaseTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, false, 2, 3),
+    SENTENCE("sentence", SentenceCaseTransformer::new, () -> SentenceCaseTransformer.STAGE,
+            () -> null, Placement.IN_ORDER, false, 2, 3);
+
+    /**
+     * Miejsce etapu w skompilowanym łańcuchu, odtwarzające kolejność wykonania łańcucha dekoratorów.
+     */
+    enum Placement {
+        /** Etap wykonywany po etapach poprzedzających go na liście. */
+        IN_ORDER,
+        /** Dekorator przetwarza tekst przed przekazaniem go dalej, więc etap trafia na początek łańcucha. */
+        FIRST
+    }
+
+    private final String name;
+    private final Function<TextTransformerInterface, TextTransformerInterface> decorator;
+    private final Supplier<TextStage> stage;
+    private final Supplier<CharMappingStage> mapping;
+    private final Placement placement;
+    private final boolean idempotent;
+    private final int cost;
+    private final int growth;
+
+    TransformType(String name, Function<TextTransformerInterface, TextTransformerInterface> decorator,
+                  Supplier<TextStage> stage, Supplier<CharMappingStage> mapping, Placement placement,
+                  boolean idempotent, int cost, int growth) {
+        this.name = name;
+        this.decorator = decorator;
+        this.stage = stage;
+        this.mapping = mapping;
+        this.placement = placement;
+        this.idempotent = idempotent;
+        this.cost = cost;
+        this.growth = growth;
+    }
+
+    /**
+     * Wyszukuje transformację po nazwie, bez rozróżniania wielkości liter.
+     *
+     * @param name Nazwa transformacji.
+     * @return Odpowiadająca nazwie transformacja.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static TransformType fromName(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        for (TransformType type : values()) {
+            if (type.name.equals(normalized)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Nieznana transformacja: " + name);
+    }
+
+    /**
+     * @return Nazwa transformacji używana w zapytaniach.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tworzy dekorator tej transformacji.
+     *
+     * @param transformer Dekorowany transformer.
+     * @return Nowy dekorator.
+     */
+    public TextTransformerInterface decorate(TextTransformerInterface transformer) {
+        return decorator.apply(transformer);
+    }
+
+    TextStage stage() {
+        return stage.get();
+    }
+
+    /**
+     * @return Odwzorowanie znakowe albo {@code null}, jeśli transformacja nie działa znak po znaku.
+     */
+    CharMappingStage mapping() {
+        return mapping.get();
+    }
+
+    Placement placement() {
+        return placement;
+    }
+
+    /**
+     * @return {@code true}, jeśli transformacja działa znak po znaku i może zostać połączona z sąsiednimi.
+     */
+    boolean isCharMapping() {
+        return mapping() != null;
+    }
+
+    /**
+     * @return {@code true}, jeśli ponowne wykonanie transformacji na jej wyniku niczego nie zmienia.
+     * Nie dotyczy to np. {@code latex}, który ucieka także ukośniki wstawione przez siebie.
+     */
+    boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return Względny koszt przetworzenia jednego znaku wejścia.
+     */
+    int cost() {
+        return cost;
+    }
+
+    /**
+     * @return Największa liczba znaków wyniku przypadająca na jeden znak wejścia.
+     */
+    int growth() {
+        return growth;
+    }
+
+    /**
+     * Sprawdza, czy wynik tej transformacji jest w całości nadpisywany przez transformacje
+     * wykonywane bezpośrednio po niej, tzn. czy pominięcie jej nie zmienia wyniku dla żadnego tekstu.
+     * <p>
+     * Poza transformacjami idempotentnymi dotyczy to {@code capitalize} przed {@code upper} oraz
+     * {@code upper} przed parą {@code lower, upper}. Para {@code upper, lower} nie nadpisuje się
+     * wzajemnie - np. "ı" po {@code upper, lower} staje się "i", a znak kelwina (U+212A) po
+     * {@code lower, upper} staje się zwykłym "K".
+     *
+     * @param following Transformacje wykonywane po tej, w kolejności wykonania.
+     * @return {@code true}, jeśli tę transformację można pominąć.
+     */
+    boolean isOverriddenBy(List<TransformType> following) {
+        if (following.isEmpty()) {
+            return false;
+        }
+        TransformType next = following.get(0);
+        if (idempotent && next == this) {
+            return true;
+        }
+        switch (this) {
+            case CAPITALIZE:
+                return next == UPPER;
+            case UPPER:
+                return next == LOWER && following.size() > 1 && following.get(1) == UPPER;
+            default:
+                return false;
+        }
+    }
+}
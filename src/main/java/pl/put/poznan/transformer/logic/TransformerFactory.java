@@ -1,9 +1,114 @@
 package pl.put.poznan.transformer.logic;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Fabryka transformacji tekstu, która tworzy dynamiczne łańcuchy dekoratorów na podstawie listy transformacji.
  */
 public class TransformerFactory {
+
+    private static final int PIPELINE_CACHE_SIZE = 256;
+
+    private static final TransformerPipelineCache pipelineCache = new TransformerPipelineCache(PIPELINE_CACHE_SIZE);
+
+    private static volatile StageMetrics stageMetrics;
+
+    /**
+     * Zwraca współdzielony łańcuch transformacji z cache, kompilując go tylko przy pierwszym użyciu.
+     * <p>
+     * Zwrócony łańcuch jest niezmienny i bezpieczny wątkowo.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @return Instancja {@code TextTransformerInterface}, która reprezentuje łańcuch transformacji.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     * @see #compile(String[])
+     */
+    public static TextTransformerInterface getTransformer(String[] transforms) {
+        return pipelineCache.get(transforms);
+    }
+
+    /**
+     * Zwraca cache łańcuchów transformacji używany przez {@link #getTransformer(String[])}.
+     *
+     * @return Cache łańcuchów wraz z licznikami trafień i chybień.
+     */
+    public static TransformerPipelineCache getPipelineCache() {
+        return pipelineCache;
+    }
+
+    /**
+     * Włącza lub wyłącza pomiar etapów w kompilowanych łańcuchach.
+     * <p>
+     * Łańcuchy zapisane w cache są usuwane, aby kolejne zapytania korzystały z nowego ustawienia.
+     * Łańcuch kompilowany równocześnie z poprzednim ustawieniem nie trafia już do cache.
+     *
+     * @param metrics Odbiorca pomiarów albo {@code null}, aby wyłączyć pomiar.
+     */
+    public static void setStageMetrics(StageMetrics metrics) {
+        stageMetrics = metrics;
+        pipelineCache.clear();
+    }
+
+    /**
+     * @return Zainstalowany odbiorca pomiarów etapów albo {@code null}, jeśli pomiar jest wyłączony.
+     */
+    public static StageMetrics getStageMetrics() {
+        return stageMetrics;
+    }
+
+    /**
+     * Kompiluje listę transformacji do łańcucha wykonywanego na współdzielonych buforach.
+     * <p>
+     * Sąsiednie transformacje działające znak po znaku (np. {@code upper}, {@code lower}, {@code latex})
+     * są łączone w jedno przejście po tekście. Wynik jest taki sam jak dla {@link #createTransformer(String[])}.
+     * Jeśli zainstalowano {@link StageMetrics}, każdy etap jest mierzony.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @return Skompilowany, bezpieczny wątkowo łańcuch transformacji.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static TextTransformerInterface compile(String[] transforms) {
+        return CompiledPipeline.compile(parse(transforms), stageMetrics);
+    }
+
+    /**
+     * Tworzy łańcuch transformacji przetwarzający tekst strumieniowo, bez wczytywania go w całości do pamięci.
+     * Tekst oczekujący na granicę przetwarzania ogranicza {@link StreamingPipeline#DEFAULT_MAX_PENDING}.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @return Bezpieczny wątkowo łańcuch strumieniowy.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static StreamingPipeline createStreaming(String[] transforms) {
+        return new StreamingPipeline(parse(transforms));
+    }
+
+    /**
+     * Tworzy łańcuch strumieniowy z podanym limitem tekstu oczekującego w etapie na granicę przetwarzania.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param maxPending Największa długość tekstu bez granicy przetwarzania (np. białego znaku) w znakach.
+     * @return Bezpieczny wątkowo łańcuch strumieniowy.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static StreamingPipeline createStreaming(String[] transforms, int maxPending) {
+        return new StreamingPipeline(parse(transforms), maxPending);
+    }
+
+    /**
+     * Tworzy łańcuch transformacji dzielący bardzo duże teksty na fragmenty przetwarzane równolegle.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param pool       Pula wątków przetwarzających fragmenty.
+     * @return Bezpieczny wątkowo łańcuch równoległy.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static ParallelPipeline createParallel(String[] transforms, ForkJoinPool pool) {
+        return new ParallelPipeline(parse(transforms), pool, ParallelPipeline.DEFAULT_CHUNK_SIZE);
+    }
+
     /**
      * Tworzy i zwraca instancję transformera tekstu na podstawie zadanych transformacji.
      *
@@ -13,42 +118,49 @@ public class TransformerFactory {
      */
     public static TextTransformerInterface createTransformer(String[] transforms) {
         TextTransformerInterface transformer = new BaseTransformer();
+        for (TransformType type : parse(transforms)) {
+            transformer = type.decorate(transformer);
+        }
+        return transformer;
+    }
 
+    /**
+     * Szacuje z góry koszt wykonania łańcucha transformacji na tekście o podanej długości.
+     * <p>
+     * Koszt to suma po etapach uproszczonego łańcucha (np. powtórzone {@code removeduplicates}
+     * liczone jest raz) iloczynu kosztu transformacji na znak i największej możliwej długości
+     * tekstu na wejściu etapu, wynikającej z przyrostu poprzednich etapów. Dzięki temu łańcuchy
+     * zwielokrotniające tekst, np. wielokrotny {@code latex}, mają koszt rosnący wykładniczo.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param length     Długość tekstu wejściowego w znakach.
+     * @return Szacowany koszt w jednostkach {@code upper} na znak, co najwyżej {@link Long#MAX_VALUE}.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static long estimateCost(String[] transforms, long length) {
+        double cost = 0;
+        double stageLength = length;
+        for (TransformType type : ChainOptimizer.optimize(CompiledPipeline.order(parse(transforms)))) {
+            cost += type.cost() * stageLength;
+            stageLength *= type.growth();
+        }
+        return cost >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) cost;
+    }
+
+    /**
+     * Zamienia nazwy transformacji na elementy rejestru {@link TransformType}.
+     *
+     * @param transforms Tablica nazw transformacji (może być {@code null}).
+     * @return Lista transformacji w podanej kolejności.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public static List<TransformType> parse(String[] transforms) {
+        List<TransformType> types = new ArrayList<>();
         if (transforms != null) {
             for (String transform : transforms) {
-                switch (transform.toLowerCase()) {
-                    case "upper":
-                        transformer = new UppercaseTransformer(transformer);
-                        break;
-                    case "lower":
-                        transformer = new LowercaseTransformer(transformer);
-                        break;
-                    case "capitalize":
-                        transformer = new CapitalizeTransformer(transformer);
-                        break;
-                    case "abbreviate":
-                        transformer = new AbbreviateTransformer(transformer);
-                        break;
-                    case "expand":
-                        transformer = new ExpandTransformer(transformer);
-                        break;
-                    case "inverse":
-                        transformer = new InverseTransformer(transformer);
-                        break;
-                    case "removeduplicates":
-                        transformer = new RemoveDuplicatesTransformer(transformer);
-                        break;
-                    case "latex":
-                        transformer = new LatexTransformer(transformer);
-                        break;
-                    case "numbertotext":
-                        transformer = new NumberToTextTransformer(transformer);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Nieznana transformacja: " + transform);
-                }
+                types.add(TransformType.fromName(transform));
             }
         }
-        return transformer;
+        return types;
     }
 }
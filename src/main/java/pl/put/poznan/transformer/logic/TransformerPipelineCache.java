@@ -0,0 +1,153 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ograniczony rozmiarem cache skompilowanych łańcuchów transformacji.
+ * <p>
+ * Kluczem jest znormalizowana lista nazw transformacji (małe litery, zachowana kolejność).
+ * Przechowywane łańcuchy są niezmienne i bezstanowe, dlatego mogą być współdzielone
+ * przez wiele wątków jednocześnie. Po przekroczeniu limitu usuwany jest najdawniej używany wpis (LRU).
+ * Domyślnie przechowuje łańcuchy z {@link TransformerFactory#compile(String[])}; inny sposób budowy,
+ * np. łańcuchy równoległe, można podać w konstruktorze.
+ */
+public final class TransformerPipelineCache {
+
+    private final int maxSize;
+    private final Function<String[], ? extends TextTransformerInterface> factory;
+    private final Map<List<String>, TextTransformerInterface> pipelines;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /** Liczba wywołań {@link #clear()}; chroniona blokadą {@code pipelines}. */
+    private long generation;
+
+    /**
+     * Tworzy nowy cache o zadanej maksymalnej liczbie wpisów.
+     *
+     * @param maxSize Maksymalna liczba przechowywanych łańcuchów.
+     * @throws IllegalArgumentException jeśli {@code maxSize} nie jest dodatni.
+     */
+    public TransformerPipelineCache(int maxSize) {
+        this(maxSize, TransformerFactory::compile);
+    }
+
+    /**
+     * Tworzy nowy cache o zadanej maksymalnej liczbie wpisów, budujący łańcuchy podaną funkcją.
+     *
+     * @param maxSize Maksymalna liczba przechowywanych łańcuchów.
+     * @param factory Funkcja budująca niezmienny, bezpieczny wątkowo łańcuch z nazw transformacji;
+     *                dla nieznanej nazwy rzuca {@link IllegalArgumentException}.
+     * @throws IllegalArgumentException jeśli {@code maxSize} nie jest dodatni.
+     */
+    public TransformerPipelineCache(int maxSize, Function<String[], ? extends TextTransformerInterface> factory) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar cache musi być dodatni: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.factory = factory;
+        this.pipelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, TextTransformerInterface> eldest) {
+                return size() > TransformerPipelineCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Zwraca łańcuch transformacji dla podanej listy nazw, tworząc go przy pierwszym użyciu.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @return Współdzielona instancja {@code TextTransformerInterface}.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public TextTransformerInterface get(String[] transforms) {
+        List<String> key = normalize(transforms);
+        TextTransformerInterface pipeline;
+        long built;
+        synchronized (pipelines) {
+            pipeline = pipelines.get(key);
+            built = generation;
+        }
+        if (pipeline != null) {
+            hits.incrementAndGet();
+            return pipeline;
+        }
+        misses.incrementAndGet();
+        // Budowa poza blokadą - nieznane nazwy rzucają wyjątek i nie trafiają do cache
+        TextTransformerInterface created = factory.apply(key.toArray(new String[0]));
+        synchronized (pipelines) {
+            if (built != generation) {
+                // Cache wyczyszczono w trakcie budowy, np. po zmianie ustawień, z których korzysta funkcja budująca
+                return created;
+            }
+            TextTransformerInterface existing = pipelines.putIfAbsent(key, created);
+            return existing != null ? existing : created;
+        }
+    }
+
+    /**
+     * Normalizuje listę nazw transformacji do postaci używanej jako klucz cache.
+     *
+     * @param transforms Tablica nazw transformacji (może być {@code null}).
+     * @return Niezmienna lista nazw zapisanych małymi literami.
+     */
+    static List<String> normalize(String[] transforms) {
+        if (transforms == null || transforms.length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> key = new ArrayList<>(transforms.length);
+        for (String transform : transforms) {
+            key.add(transform.toLowerCase(Locale.ROOT));
+        }
+        return Collections.unmodifiableList(key);
+    }
+
+    /**
+     * @return Liczba zapytań obsłużonych z cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Liczba zapytań, które wymagały zbudowania nowego łańcucha.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Aktualna liczba przechowywanych łańcuchów.
+     */
+    public int size() {
+        synchronized (pipelines) {
+            return pipelines.size();
+        }
+    }
+
+    /**
+     * @return Maksymalna liczba przechowywanych łańcuchów.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Usuwa wszystkie łańcuchy z cache. Łańcuchy budowane w trakcie czyszczenia nie są do niego dodawane,
+     * więc po powrocie z metody cache zawiera tylko łańcuchy zbudowane po jej wywołaniu.
+     * Liczniki trafień i chybień pozostają bez zmian.
+     */
+    public void clear() {
+        synchronized (pipelines) {
+            generation++;
+            pipelines.clear();
+        }
+    }
+}
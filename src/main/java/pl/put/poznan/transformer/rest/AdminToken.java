@@ -0,0 +1,59 @@
+package pl.put.poznan.transformer.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Token administracyjny chroniący operacje zmieniające konfigurację aplikacji.
+ * <p>
+ * Żądanie musi zawierać nagłówek {@value #HEADER} z tokenem; bez niego kończy się kodem 401,
+ * a gdy token nie jest skonfigurowany - kodem 403. Token porównywany jest w czasie niezależnym
+ * od miejsca pierwszej różnicy.
+ */
+final class AdminToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminToken.class);
+
+    /** Nagłówek z tokenem administracyjnym. */
+    static final String HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+    private final String property;
+    private final String operation;
+
+    /**
+     * @param token     Oczekiwany token; pusty wyłącza chronione operacje.
+     * @param property  Nazwa właściwości z tokenem, podawana w komunikacie błędu.
+     * @param operation Opis chronionej operacji w dzienniku i komunikatach, np. {@code "Zmiana limitów"}.
+     */
+    AdminToken(String token, String property, String operation) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.property = property;
+        this.operation = operation;
+    }
+
+    /**
+     * Sprawdza token z nagłówka żądania.
+     *
+     * @param header Wartość nagłówka {@value #HEADER} albo {@code null}.
+     * @return {@code null}, jeśli token jest poprawny, w przeciwnym razie odpowiedź z kodem 401 lub 403.
+     */
+    ResponseEntity<Map<String, Object>> authorize(String header) {
+        if (token.length == 0) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", operation + " wymaga ustawienia " + property));
+        }
+        if (header == null || !MessageDigest.isEqual(token, header.getBytes(StandardCharsets.UTF_8))) {
+            logger.warn("Odrzucono żądanie bez poprawnego tokenu: " + operation);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Wymagany poprawny nagłówek " + HEADER));
+        }
+        return null;
+    }
+}
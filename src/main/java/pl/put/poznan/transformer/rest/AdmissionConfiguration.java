@@ -0,0 +1,104 @@
+package pl.put.poznan.transformer.rest;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+
+/**
+ * Konfiguracja limitów rozmiaru zapytań ({@code transformer.limits.*}) i sterowania dopuszczaniem
+ * kosztownych transformacji ({@code transformer.admission.*}).
+ * <p>
+ * Liczba odrzuceń według przyczyny ({@code transformer.admission.rejected}, znacznik {@code reason}),
+ * liczba dopuszczeń, liczba wykonywanych i oczekujących zapytań oraz odczyty obciążenia procesora
+ * i sterty udostępniane są przez Micrometer.
+ */
+@Configuration
+public class AdmissionConfiguration {
+
+    /**
+     * Tworzy sterowanie dopuszczaniem i rejestruje jego metryki.
+     *
+     * @param maxTransforms Największa liczba transformacji w łańcuchu.
+     * @param maxTextLength Największa długość tekstu w znakach.
+     * @param maxCost       Największy szacowany koszt zapytania.
+     * @param cheapCost     Koszt, poniżej którego zapytanie jest dopuszczane bez sprawdzania obciążenia.
+     * @param maxConcurrent Największa liczba jednocześnie wykonywanych kosztownych zapytań; 0 oznacza liczbę procesorów.
+     * @param maxQueue      Największa liczba kosztownych zapytań oczekujących na dopuszczenie.
+     * @param maxWait       Najdłuższy czas oczekiwania na dopuszczenie.
+     * @param cpuThreshold  Obciążenie procesora (0-1), od którego kosztowne zapytania wykonywane są pojedynczo.
+     * @param heapThreshold Zajętość sterty (0-1), od której kosztowne zapytania są odrzucane.
+     * @param registry      Rejestr metryk Micrometer.
+     * @return Sterowanie dopuszczaniem.
+     */
+    @Bean
+    public AdmissionControl admissionControl(
+            @Value("${transformer.limits.max-transforms:32}") int maxTransforms,
+            @Value("${transformer.limits.max-text-length:4194304}") int maxTextLength,
+            @Value("${transformer.limits.max-cost:67108864}") long maxCost,
+            @Value("${transformer.admission.cheap-cost:1048576}") long cheapCost,
+            @Value("${transformer.admission.max-concurrent:0}") int maxConcurrent,
+            @Value("${transformer.admission.max-queue:64}") int maxQueue,
+            @Value("${transformer.admission.max-wait:2s}") Duration maxWait,
+            @Value("${transformer.admission.cpu-threshold:0.9}") double cpuThreshold,
+            @Value("${transformer.admission.heap-threshold:0.85}") double heapThreshold,
+            MeterRegistry registry) {
+        AdmissionControl admission = new AdmissionControl(maxTransforms, maxTextLength, maxCost, cheapCost,
+                maxConcurrent, maxQueue, maxWait, cpuThreshold, heapThreshold);
+        for (AdmissionControl.Reason reason : AdmissionControl.Reason.values()) {
+            FunctionCounter.builder("transformer.admission.rejected", admission, a -> a.getRejectedCount(reason))
+                    .description("Liczba zapytań odrzuconych przez limity i sterowanie dopuszczaniem")
+                    .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        FunctionCounter.builder("transformer.admission.admitted", admission, AdmissionControl::getAdmittedCheapCount)
+                .description("Liczba dopuszczonych zapytań")
+                .tag("class", "cheap")
+                .register(registry);
+        FunctionCounter.builder("transformer.admission.admitted", admission, AdmissionControl::getAdmittedExpensiveCount)
+                .description("Liczba dopuszczonych zapytań")
+                .tag("class", "expensive")
+                .register(registry);
+        Gauge.builder("transformer.admission.inflight", admission, AdmissionControl::getRunning)
+                .description("Liczba wykonywanych kosztownych zapytań")
+                .register(registry);
+        Gauge.builder("transformer.admission.waiting", admission, AdmissionControl::getWaiting)
+                .description("Liczba kosztownych zapytań oczekujących na dopuszczenie")
+                .register(registry);
+        Gauge.builder("transformer.admission.cpu", admission, AdmissionControl::getCpuLoad)
+                .description("Obciążenie procesora używane przy dopuszczaniu zapytań")
+                .register(registry);
+        Gauge.builder("transformer.admission.heap", admission, AdmissionControl::getHeapUsage)
+                .description("Zajętość sterty po odśmiecaniu używana przy dopuszczaniu zapytań")
+                .register(registry);
+        return admission;
+    }
+
+    /**
+     * Rejestruje filtr ograniczający rozmiar treści żądań JSON, które są wczytywane w całości do pamięci.
+     * Żądania strumieniowe ({@code /formated/stream}) ogranicza liczba znaków zliczana podczas czytania,
+     * a binarne ({@code /binary/transform}) - rozmiar treści po dekompresji; oba sprawdzają też łańcuch,
+     * koszt i dopuszczanie w kontrolerach.
+     *
+     * @param maxBodyBytes Największy rozmiar treści żądania w bajtach.
+     * @param admission    Sterowanie dopuszczaniem zliczające odrzucenia.
+     * @return Rejestracja filtra.
+     */
+    @Bean
+    public FilterRegistrationBean<RequestSizeFilter> requestSizeFilter(
+            @Value("${transformer.limits.max-body-bytes:10485760}") long maxBodyBytes,
+            AdmissionControl admission) {
+        FilterRegistrationBean<RequestSizeFilter> registration =
+                new FilterRegistrationBean<>(new RequestSizeFilter(maxBodyBytes, admission));
+        registration.addUrlPatterns("/formated/transform", "/formated/batch", "/jobs");
+        return registration;
+    }
+}
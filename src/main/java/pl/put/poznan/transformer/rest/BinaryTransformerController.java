@@ -0,0 +1,294 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.BatchTransformer;
+import pl.put.poznan.transformer.logic.BinaryProtocol;
+import pl.put.poznan.transformer.logic.TransformerFactory;
+
+/**
+ * Kontroler REST obsługujący binarny format {@link BinaryProtocol} dla komunikacji między usługami.
+ * <p>
+ * Teksty żądania czytane są partiami i przetwarzane przez {@link BatchTransformer} w puli
+ * {@link TransformExecutor}, a wyniki
+ * zapisywane do odpowiedzi na bieżąco, więc nawet bardzo długie serie tekstów nie są
+ * buforowane w całości. Treść żądania może być skompresowana ({@code Content-Encoding: gzip}
+ * lub {@code deflate}); odpowiedź jest kompresowana zgodnie z nagłówkiem {@code Accept-Encoding}.
+ * Największy rozmiar ramki tekstu ustala właściwość {@code transformer.binary.max-frame-bytes},
+ * a rozmiar całej treści po dekompresji - {@code transformer.binary.max-body-bytes}. Każda partia
+ * tekstów podlega limitom i sterowaniu dopuszczaniem {@link AdmissionControl}.
+ */
+@RestController
+@RequestMapping("/binary")
+@CrossOrigin
+public class BinaryTransformerController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryTransformerController.class);
+
+    /** Liczba tekstów przetwarzanych razem przed zapisaniem ich wyników. */
+    static final int BATCH_SIZE = 256;
+
+    private final int maxFrameBytes;
+    private final long maxBodyBytes;
+    private final TransformExecutor executor;
+    private final AdmissionControl admission;
+
+    /**
+     * Tworzy kontroler z podanymi limitami rozmiaru ramki i treści.
+     *
+     * @param maxFrameBytes Największa dopuszczalna długość pojedynczego tekstu w bajtach UTF-8.
+     * @param maxBodyBytes  Największy rozmiar treści żądania po dekompresji w bajtach.
+     * @param executor      Wykonawca transformacji, w którego puli przetwarzane są partie tekstów.
+     * @param admission     Sterowanie dopuszczaniem sprawdzające łańcuch i zliczające odrzucenia.
+     */
+    public BinaryTransformerController(@Value("${transformer.binary.max-frame-bytes:16777216}") int maxFrameBytes,
+                                       @Value("${transformer.binary.max-body-bytes:268435456}") long maxBodyBytes,
+                                       TransformExecutor executor, AdmissionControl admission) {
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxBodyBytes = maxBodyBytes;
+        this.executor = executor;
+        this.admission = admission;
+    }
+
+    /**
+     * Zwraca rejestr identyfikatorów transformacji używanych w formacie binarnym.
+     *
+     * @return Odpowiedź JSON: nazwa transformacji -&gt; identyfikator.
+     */
+    @RequestMapping(value = "/transforms", method = RequestMethod.GET, produces = "application/json")
+    public Map<String, Integer> getRegistry() {
+        return BinaryProtocol.registry();
+    }
+
+    /**
+     * Obsługuje żądanie POST z tekstami w formacie binarnym.
+     *
+     * @param request  Żądanie HTTP, z którego czytane są ramki.
+     * @param response Odpowiedź HTTP, do której zapisywane są wyniki.
+     * @throws IOException jeśli wystąpił błąd odczytu lub zapisu po rozpoczęciu odpowiedzi.
+     */
+    @RequestMapping(value = "/transform", method = RequestMethod.POST, consumes = BinaryProtocol.MEDIA_TYPE)
+    public void post(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        contentEncoding = contentEncoding == null ? "identity" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (!contentEncoding.equals("identity") && !contentEncoding.equals("gzip") && !contentEncoding.equals("deflate")) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "Nieobsługiwane kodowanie treści: " + contentEncoding);
+            return;
+        }
+
+        OutputStream out = null;
+        boolean completed = false;
+        // Zamknięcie strumienia dekompresji zwalnia natywną pamięć zlib
+        try (InputStream body = decompressed(request.getInputStream(), contentEncoding)) {
+            BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder(new LimitedInputStream(body), maxFrameBytes);
+            String[] transforms = decoder.readRequestHeader();
+            logger.debug("Transforms: " + Arrays.toString(transforms));
+            // Sprawdza długość łańcucha i nazwy oraz kompiluje łańcuch przed rozpoczęciem odpowiedzi
+            admission.checkLimits(transforms, 0);
+            TransformerFactory.getTransformer(transforms);
+            int count = decoder.readCount();
+            logger.debug("Batch size: " + count);
+
+            response.setContentType(BinaryProtocol.MEDIA_TYPE);
+            out = compressed(request, response);
+            BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder(out);
+            encoder.writeResponseHeader(count);
+            List<String> texts = new ArrayList<>(Math.min(count, BATCH_SIZE));
+            for (int remaining = count; remaining > 0; remaining -= texts.size()) {
+                texts.clear();
+                for (int i = Math.min(remaining, BATCH_SIZE); i > 0; i--) {
+                    texts.add(decoder.readText());
+                }
+                for (BatchTransformer.Result result : executor.transformAll(transforms, texts)) {
+                    if (result.getError() == null) {
+                        encoder.writeResult(result.getTransformedText());
+                    } else {
+                        encoder.writeError(result.getError());
+                    }
+                }
+            }
+            encoder.flush();
+            completed = true;
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            fail(response, HttpStatus.PAYLOAD_TOO_LARGE, e);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            fail(response, HttpStatus.SERVICE_UNAVAILABLE, e);
+        } catch (BinaryProtocol.ProtocolException | ZipException | IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            fail(response, HttpStatus.BAD_REQUEST, e);
+        } finally {
+            release(out, completed);
+        }
+    }
+
+    /**
+     * Zgłasza błąd kodem odpowiedzi albo, jeśli część wyników została już wysłana, przerwaniem odpowiedzi.
+     */
+    private static void fail(HttpServletResponse response, HttpStatus status, Exception e) throws IOException {
+        if (response.isCommitted()) {
+            // Części wyników nie da się już wycofać - przerwanie odpowiedzi sygnalizuje błąd klientowi
+            throw new IOException(e.getMessage(), e);
+        }
+        response.reset();
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, FormattedTextTransformerController.RETRY_AFTER_SECONDS);
+            response.sendError(status.value(), "Serwer jest przeciążony");
+        } else {
+            response.sendError(status.value(), e.getMessage());
+        }
+    }
+
+    /**
+     * Strumień treści po dekompresji przerywający odczyt, gdy przekroczy ona {@link #maxBodyBytes}.
+     */
+    private final class LimitedInputStream extends FilterInputStream {
+        private long count;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                admission.checkBody(++count, maxBodyBytes);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+                admission.checkBody(count, maxBodyBytes);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Kończy strumień skompresowanej odpowiedzi i zwalnia natywną pamięć zlib. Po błędzie końcówka
+     * strumienia nie jest dopisywana, aby odpowiedź pozostała przerwana.
+     */
+    private static void release(OutputStream out, boolean completed) throws IOException {
+        if (out instanceof GzipResponseStream) {
+            if (completed) {
+                out.close();
+            } else {
+                ((GzipResponseStream) out).end();
+            }
+        } else if (out instanceof DeflateResponseStream) {
+            if (completed) {
+                out.close();
+            } else {
+                ((DeflateResponseStream) out).end();
+            }
+        }
+    }
+
+    private static InputStream decompressed(InputStream body, String encoding) throws IOException {
+        switch (encoding) {
+            case "gzip":
+                return new GZIPInputStream(body, 8192);
+            case "deflate":
+                return new InflaterInputStream(body);
+            default:
+                return body;
+        }
+    }
+
+    private static OutputStream compressed(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String encoding = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding == null) {
+            return response.getOutputStream();
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        if (encoding.equals("gzip")) {
+            return new GzipResponseStream(response.getOutputStream());
+        }
+        return new DeflateResponseStream(response.getOutputStream());
+    }
+
+    /**
+     * Strumień gzip odpowiedzi, którego kompresor można zwolnić bez dopisywania końcówki strumienia.
+     */
+    private static final class GzipResponseStream extends GZIPOutputStream {
+        GzipResponseStream(OutputStream out) throws IOException {
+            super(out, 8192);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * Strumień deflate odpowiedzi, którego kompresor można zwolnić bez dopisywania końcówki strumienia.
+     */
+    private static final class DeflateResponseStream extends DeflaterOutputStream {
+        DeflateResponseStream(OutputStream out) {
+            super(out);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * Wybiera kompresję odpowiedzi z nagłówka {@code Accept-Encoding}: gzip, a w drugiej kolejności deflate.
+     *
+     * @return Nazwa kodowania albo {@code null}, jeśli odpowiedź ma nie być kompresowana.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase(Locale.ROOT);
+            if (tokens.length > 1 && tokens[1].trim().matches("q=0(\\.0*)?")) {
+                continue;
+            }
+            if (name.equals("gzip")) {
+                return name;
+            }
+            deflate |= name.equals("deflate");
+        }
+        return deflate ? "deflate" : null;
+    }
+}
@@ -0,0 +1,131 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Żądanie zliczające bajty treści przeczytane przez kolejne filtry i kontrolery.
+ * Używane dla treści bez nagłówka {@code Content-Length}, której rozmiar znany jest dopiero po odczycie.
+ */
+final class CountingRequest extends HttpServletRequestWrapper {
+
+    /**
+     * Odbiorca informacji o przeczytanych bajtach. Wyjątek przerywa odczyt treści - kolejne
+     * próby odczytu zgłaszają ten sam wyjątek bez ponownego wywołania odbiorcy.
+     */
+    interface Listener {
+        /**
+         * @param total Łączna liczba bajtów przeczytanych dotąd z treści.
+         * @throws IOException aby przerwać odczyt.
+         */
+        void read(long total) throws IOException;
+    }
+
+    private final Listener listener;
+    private ServletInputStream input;
+    private BufferedReader reader;
+    private long count;
+    private IOException failure;
+
+    /**
+     * @param request  Opakowywane żądanie.
+     * @param listener Odbiorca informacji o przeczytanych bajtach.
+     */
+    CountingRequest(HttpServletRequest request, Listener listener) {
+        super(request);
+        this.listener = listener;
+    }
+
+    /**
+     * @return Liczba bajtów treści przeczytanych dotąd.
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (input == null) {
+            input = new CountingInputStream(super.getInputStream());
+        }
+        return input;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        // Czytnik opakowanego żądania omijałby zliczanie, więc jest budowany na zliczanym strumieniu
+        if (reader == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        return reader;
+    }
+
+    private final class CountingInputStream extends ServletInputStream {
+        private final ServletInputStream input;
+
+        CountingInputStream(ServletInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkFailure();
+            int b = input.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            checkFailure();
+            int read = input.read(buffer, offset, length);
+            if (read > 0) {
+                consumed(read);
+            }
+            return read;
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void consumed(int read) throws IOException {
+            count += read;
+            try {
+                listener.read(count);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return input.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return input.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            input.setReadListener(listener);
+        }
+    }
+}
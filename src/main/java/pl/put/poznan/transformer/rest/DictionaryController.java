@@ -0,0 +1,119 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import pl.put.poznan.transformer.logic.AhoCorasickAutomaton;
+import pl.put.poznan.transformer.logic.PhraseDictionaries;
+
+/**
+ * Kontroler REST do zarządzania słownikami skrótów i rozwinięć.
+ * <p>
+ * Ścieżki do plików słowników konfigurowane są właściwościami
+ * {@code transformer.dictionaries.abbreviations} i {@code transformer.dictionaries.expansions}.
+ * Pusta wartość oznacza słownik wbudowany w aplikację. Przeładowanie wymaga nagłówka
+ * {@value AdminToken#HEADER} z tokenem z właściwości {@code transformer.dictionaries.admin-token}
+ * ({@link AdminToken}); bez niego kończy się kodem 401, a gdy token nie jest skonfigurowany - kodem 403.
+ */
+@RestController
+@RequestMapping("/dictionaries")
+public class DictionaryController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryController.class);
+
+    private final String abbreviationsFile;
+    private final String expansionsFile;
+    private final AdminToken adminToken;
+
+    /**
+     * Tworzy kontroler z podanymi ścieżkami słowników.
+     *
+     * @param abbreviationsFile Ścieżka do słownika skrótów lub pusty tekst.
+     * @param expansionsFile    Ścieżka do słownika rozwinięć lub pusty tekst.
+     * @param adminToken        Token wymagany do przeładowania słowników; pusty wyłącza przeładowanie.
+     */
+    public DictionaryController(@Value("${transformer.dictionaries.abbreviations:}") String abbreviationsFile,
+                                @Value("${transformer.dictionaries.expansions:}") String expansionsFile,
+                                @Value("${transformer.dictionaries.admin-token:}") String adminToken) {
+        this.abbreviationsFile = abbreviationsFile;
+        this.expansionsFile = expansionsFile;
+        this.adminToken = new AdminToken(adminToken, "transformer.dictionaries.admin-token",
+                "Przeładowanie słowników");
+    }
+
+    /**
+     * Wczytuje skonfigurowane słowniki przy starcie aplikacji.
+     *
+     * @throws IOException jeśli nie udało się odczytać pliku słownika.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!abbreviationsFile.isEmpty() || !expansionsFile.isEmpty()) {
+            reloadAll();
+        }
+    }
+
+    /**
+     * Obsługuje żądanie przeładowania słowników z plików bez restartu aplikacji.
+     *
+     * @param token Token administracyjny.
+     * @return Odpowiedź JSON z liczbą wpisów w każdym słowniku, komunikat błędu albo kod 401 lub 403.
+     */
+    @RequestMapping(value = "/reload", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<Map<String, Object>> reload(
+            @RequestHeader(value = AdminToken.HEADER, required = false) String token) {
+        ResponseEntity<Map<String, Object>> denied = adminToken.authorize(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return ResponseEntity.ok(reloadAll());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * Zwraca rozmiary aktualnie używanych słowników.
+     *
+     * @return Odpowiedź JSON z liczbą wpisów w każdym słowniku.
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<Map<String, Object>> get() {
+        return ResponseEntity.ok(describe(PhraseDictionaries.getAbbreviations(), PhraseDictionaries.getExpansions()));
+    }
+
+    private Map<String, Object> reloadAll() throws IOException {
+        // Oba słowniki są kompilowane przed publikacją pierwszego z nich
+        AhoCorasickAutomaton abbreviations = abbreviationsFile.isEmpty() ? null
+                : PhraseDictionaries.load(Path.of(abbreviationsFile));
+        AhoCorasickAutomaton expansions = expansionsFile.isEmpty() ? null
+                : PhraseDictionaries.load(Path.of(expansionsFile));
+        abbreviations = PhraseDictionaries.publishAbbreviations(abbreviations);
+        expansions = PhraseDictionaries.publishExpansions(expansions);
+        logger.info("Przeładowano słowniki: " + abbreviations.size() + " skrótów, " + expansions.size() + " rozwinięć");
+        return describe(abbreviations, expansions);
+    }
+
+    private static Map<String, Object> describe(AhoCorasickAutomaton abbreviations, AhoCorasickAutomaton expansions) {
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        sizes.put("abbreviations", abbreviations.size());
+        sizes.put("expansions", expansions.size());
+        return sizes;
+    }
+}
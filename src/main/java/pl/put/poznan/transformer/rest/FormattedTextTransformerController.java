@@ -1,18 +1,33 @@
 package pl.put.poznan.transformer.rest;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import pl.put.poznan.transformer.logic.TextTransformerInterface;
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.BatchTransformer;
+import pl.put.poznan.transformer.logic.StreamingPipeline;
 import pl.put.poznan.transformer.logic.TransformerFactory;
 
 /**
@@ -28,6 +43,32 @@ public class FormattedTextTransformerController {
 
     private static final Logger logger = LoggerFactory.getLogger(FormattedTextTransformerController.class);
 
+    /** Sugerowany czas (w sekundach) do ponowienia zapytania odrzuconego z powodu przeciążenia. */
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private final TransformExecutor executor;
+    private final AdmissionControl admission;
+    private final long maxStreamLength;
+    private final int maxStreamPending;
+
+    /**
+     * Tworzy kontroler korzystający z podanego wykonawcy transformacji.
+     *
+     * @param executor         Wykonawca transformacji.
+     * @param admission        Sterowanie dopuszczaniem dla transformacji strumieniowych.
+     * @param maxStreamLength  Największa długość tekstu transformacji strumieniowej w znakach.
+     * @param maxStreamPending Największa długość tekstu bez granicy przetwarzania (np. białego znaku)
+     *                         w transformacji strumieniowej, w znakach.
+     */
+    public FormattedTextTransformerController(TransformExecutor executor, AdmissionControl admission,
+                                              @Value("${transformer.limits.max-stream-length:67108864}") long maxStreamLength,
+                                              @Value("${transformer.limits.max-stream-pending:1048576}") int maxStreamPending) {
+        this.executor = executor;
+        this.admission = admission;
+        this.maxStreamLength = maxStreamLength;
+        this.maxStreamPending = maxStreamPending;
+    }
+
     /**
      * Obsługuje żądanie POST dla transformacji tekstu z żądaniem JSON.
      *
@@ -35,24 +76,162 @@ public class FormattedTextTransformerController {
      * @return Odpowiedź JSON zawierająca przekształcony tekst lub komunikat błędu.
      */
     @RequestMapping(value = "/transform", method = RequestMethod.POST, produces = "application/json")
-    public ResponseEntity<String> postJson(@RequestBody TransformRequest request) {
+    public ResponseEntity<TransformResponse> postJson(@RequestBody TransformRequest request) {
 
         logger.debug("Input text: " + request.getText());
         logger.debug("Transforms: " + Arrays.toString(request.getTransforms()));
 
         try {
-            // Tworzenie dynamicznego łańcucha dekoratorów
-            TextTransformerInterface transformer = TransformerFactory.createTransformer(request.getTransforms());
-            logger.info("Utworzono obiekt");
-            String result = transformer.transform(request.getText());
+            // Skompilowany łańcuch z cache albo, dla bardzo dużych tekstów, przetwarzanie równoległe
+            String result = executor.transform(request.getTransforms(), request.getText());
+
+            // Wynik zapisywany jest przez Jacksona bezpośrednio do strumienia odpowiedzi, z poprawnym escapowaniem
+            return ResponseEntity.ok(TransformResponse.success(result));
+
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(TransformResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(TransformResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(TransformResponse.error("Serwer jest przeciążony"));
+        }
+    }
 
-            String jsonResponse = "{\"transformedText\": \"" + result + "\"}";
-            return ResponseEntity.ok(jsonResponse);
+    /**
+     * Obsługuje żądanie POST dla transformacji wielu tekstów tym samym łańcuchem.
+     * <p>
+     * Łańcuch jest kompilowany raz, a teksty przetwarzane równolegle. Wyniki zwracane są
+     * w kolejności tekstów wejściowych; błąd pojedynczego tekstu trafia do jego wyniku.
+     *
+     * @param request Obiekt {@code BatchTransformRequest} zawierający teksty i listę transformacji.
+     * @return Odpowiedź JSON z listą wyników lub komunikat błędu.
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<?> postBatch(@RequestBody BatchTransformRequest request) {
+
+        logger.debug("Transforms: " + Arrays.toString(request.getTransforms()));
+
+        if (request.getTexts() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(TransformResponse.error("Brak listy tekstów"));
+        }
+        logger.debug("Batch size: " + request.getTexts().size());
 
+        try {
+            List<BatchTransformer.Result> results = executor.transformAll(request.getTransforms(), request.getTexts());
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(TransformResponse.error(e.getMessage()));
         } catch (IllegalArgumentException e) {
             logger.error("Error: " + e.getMessage());
-            String errorResponse = "{\"error\": \"" + e.getMessage() + "\"}";
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(TransformResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(TransformResponse.error("Serwer jest przeciążony"));
+        }
+    }
+
+    /**
+     * Obsługuje żądanie POST dla strumieniowej transformacji dużych tekstów.
+     * <p>
+     * Treść żądania (zwykły tekst, UTF-8) jest czytana fragmentami, a wynik zapisywany
+     * do odpowiedzi w miarę przetwarzania, bez buforowania całego tekstu w pamięci.
+     * Długość tekstu ogranicza {@code transformer.limits.max-stream-length} oraz limit kosztu łańcucha;
+     * łańcuchy buforujące całe wejście (np. {@code inverse}) obowiązuje limit długości zwykłych zapytań.
+     * Tekst bez granicy przetwarzania (np. słowo dla {@code title}) ogranicza {@code transformer.limits.max-stream-pending}.
+     * Przekroczenie limitu przed wysłaniem części wyniku kończy się kodem 413, a później przerwaniem odpowiedzi.
+     *
+     * @param transforms Lista transformacji do zastosowania na tekście.
+     * @param request    Żądanie HTTP, z którego czytany jest tekst.
+     * @param response   Odpowiedź HTTP, do której zapisywany jest wynik.
+     * @throws IOException jeśli wystąpił błąd odczytu lub zapisu.
+     */
+    @RequestMapping(value = "/stream", method = RequestMethod.POST, consumes = "text/plain")
+    public void postStream(@RequestParam(value = "transforms", required = false) String[] transforms,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        logger.debug("Transforms: " + Arrays.toString(transforms));
+
+        StreamingPipeline pipeline;
+        long maxLength;
+        try {
+            pipeline = TransformerFactory.createStreaming(transforms, maxStreamPending);
+            maxLength = admission.checkStream(transforms,
+                    pipeline.buffersInput() ? admission.getMaxTextLength() : maxStreamLength);
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        // Liczba bajtów treści ogranicza z góry liczbę znaków; bez nagłówka przyjmowany jest najgorszy przypadek
+        long declared = request.getContentLengthLong();
+        long length = declared >= 0 ? Math.min(declared, maxLength) : maxLength;
+        try {
+            AdmissionControl.Permit permit = admission.admit(TransformerFactory.estimateCost(transforms, length));
+            try {
+                response.setContentType("text/plain");
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                pipeline.transform(new LimitedReader(request.getReader(), maxLength), response.getWriter());
+            } finally {
+                permit.close();
+            }
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            if (response.isCommitted()) {
+                // Części wyniku nie da się już wycofać - przerwanie odpowiedzi sygnalizuje błąd klientowi
+                throw new IOException(e.getMessage(), e);
+            }
+            response.reset();
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Serwer jest przeciążony");
+        }
+    }
+
+    /**
+     * Czytnik przerywający odczyt, gdy tekst przekroczy dopuszczalną długość.
+     */
+    private final class LimitedReader extends FilterReader {
+        private final long maxLength;
+        private long count;
+
+        LimitedReader(Reader in, long maxLength) {
+            super(in);
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                admission.checkStreamLength(++count, maxLength);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+                admission.checkStreamLength(count, maxLength);
+            }
+            return read;
         }
     }
 }
@@ -101,3 +280,102 @@ class TransformRequest {
         this.transforms = transforms;
     }
 }
+
+/**
+ * Klasa reprezentująca żądanie JSON dla transformacji wielu tekstów.
+ */
+class BatchTransformRequest {
+
+    private List<String> texts;
+    private String[] transforms;
+
+    /**
+     * Pobiera teksty wejściowe do przetworzenia.
+     *
+     * @return Lista tekstów wejściowych.
+     */
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    /**
+     * Ustawia teksty wejściowe do przetworzenia.
+     *
+     * @param texts Lista tekstów wejściowych.
+     */
+    public void setTexts(List<String> texts) {
+        this.texts = texts;
+    }
+
+    /**
+     * Pobiera listę transformacji do zastosowania.
+     *
+     * @return Tablica transformacji.
+     */
+    public String[] getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * Ustawia listę transformacji do zastosowania.
+     *
+     * @param transforms Tablica transformacji.
+     */
+    public void setTransforms(String[] transforms) {
+        this.transforms = transforms;
+    }
+}
+
+/**
+ * Klasa reprezentująca odpowiedź JSON z wynikiem transformacji tekstu albo komunikatem błędu.
+ * <p>
+ * Pola o wartości {@code null} są pomijane w odpowiedzi.
+ */
+class TransformResponse {
+
+    private final String transformedText;
+    private final String error;
+
+    private TransformResponse(String transformedText, String error) {
+        this.transformedText = transformedText;
+        this.error = error;
+    }
+
+    /**
+     * Tworzy odpowiedź z przekształconym tekstem.
+     *
+     * @param transformedText Przekształcony tekst.
+     * @return Odpowiedź zawierająca wynik.
+     */
+    static TransformResponse success(String transformedText) {
+        return new TransformResponse(transformedText, null);
+    }
+
+    /**
+     * Tworzy odpowiedź z komunikatem błędu.
+     *
+     * @param error Komunikat błędu.
+     * @return Odpowiedź zawierająca błąd.
+     */
+    static TransformResponse error(String error) {
+        return new TransformResponse(null, error);
+    }
+
+    /**
+     * Pobiera przekształcony tekst.
+     *
+     * @return Przekształcony tekst lub {@code null}, jeśli wystąpił błąd.
+     */
+    public String getTransformedText() {
+        return transformedText;
+    }
+
+    /**
+     * Pobiera komunikat błędu.
+     *
+     * @return Komunikat błędu lub {@code null}, jeśli transformacja się powiodła.
+     */
+    public String getError() {
+        return error;
+    }
+}
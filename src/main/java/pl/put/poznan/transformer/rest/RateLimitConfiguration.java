@@ -0,0 +1,80 @@
+package pl.put.poznan.transformer.rest;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import pl.put.poznan.transformer.logic.RateLimiter;
+
+/**
+ * Konfiguracja limitów zapytań na klucz API dla {@code /classic} i {@code /formated}.
+ * <p>
+ * Włączana właściwością {@code transformer.rate-limit.enabled=true}. Własne limity kluczy podawane są
+ * we właściwości {@code transformer.rate-limit.keys} jako lista {@code klucz:zapytania/s:bajty/s}
+ * rozdzielona przecinkami; w trakcie działania zmienia się je przez {@link RateLimitController}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transformer.rate-limit.enabled", havingValue = "true")
+public class RateLimitConfiguration {
+
+    /**
+     * Tworzy limiter z limitami z konfiguracji i rejestruje liczbę śledzonych kluczy jako metrykę.
+     *
+     * @param requestsPerSecond Domyślny limit zapytań na sekundę; 0 oznacza brak limitu.
+     * @param bytesPerSecond    Domyślny limit bajtów wejścia na sekundę; 0 oznacza brak limitu.
+     * @param burst             Czas, na jaki wystarcza pełny kubełek.
+     * @param keys              Własne limity kluczy.
+     * @param registry          Rejestr metryk Micrometer.
+     * @return Limiter zapytań.
+     * @throws IllegalArgumentException jeśli lista limitów kluczy jest niepoprawna.
+     */
+    @Bean
+    public RateLimiter rateLimiter(
+            @Value("${transformer.rate-limit.requests-per-second:50}") double requestsPerSecond,
+            @Value("${transformer.rate-limit.bytes-per-second:8388608}") long bytesPerSecond,
+            @Value("${transformer.rate-limit.burst:2s}") Duration burst,
+            @Value("${transformer.rate-limit.keys:}") String keys,
+            MeterRegistry registry) {
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limits(requestsPerSecond, bytesPerSecond), burst);
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Niepoprawny limit klucza (oczekiwano klucz:zapytania:bajty): " + entry);
+            }
+            limiter.setKeyLimits(parts[0], new RateLimiter.Limits(Double.parseDouble(parts[1]), Long.parseLong(parts[2])));
+        }
+        Gauge.builder("transformer.ratelimit.keys", limiter, RateLimiter::getTrackedKeyCount)
+                .description("Liczba kluczy API z zapamiętanym stanem limitów")
+                .register(registry);
+        return limiter;
+    }
+
+    /**
+     * Rejestruje filtr limitów przed kontrolerami transformacji, przed ograniczeniem rozmiaru treści.
+     *
+     * @param limiter  Limiter zapytań.
+     * @param header   Nazwa nagłówka z kluczem API.
+     * @param registry Rejestr metryk Micrometer.
+     * @return Rejestracja filtra.
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            RateLimiter limiter,
+            @Value("${transformer.rate-limit.header:X-API-Key}") String header,
+            MeterRegistry registry) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(limiter, header, registry));
+        registration.addUrlPatterns("/classic/*", "/formated/*");
+        registration.setOrder(0);
+        return registration;
+    }
+}
@@ -0,0 +1,213 @@
+package pl.put.poznan.transformer.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import pl.put.poznan.transformer.logic.RateLimiter;
+
+/**
+ * Kontroler REST do zmiany limitów zapytań na klucz API bez restartu aplikacji.
+ * <p>
+ * Dostępny, gdy włączono {@code transformer.rate-limit.enabled}. Każde żądanie musi zawierać nagłówek
+ * {@value #ADMIN_HEADER} z tokenem z właściwości {@code transformer.rate-limit.admin-token}
+ * ({@link AdminToken}); bez niego kończy się kodem 401, a gdy token nie jest skonfigurowany - kodem 403. Klucze API nie są zwracane
+ * w odpowiedziach ani zapisywane w dzienniku - zastępuje je ich skrót ({@link #fingerprint(String)}).
+ */
+@RestController
+@RequestMapping("/rate-limits")
+@ConditionalOnProperty(name = "transformer.rate-limit.enabled", havingValue = "true")
+public class RateLimitController {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitController.class);
+
+    /** Nagłówek z tokenem administracyjnym. */
+    static final String ADMIN_HEADER = AdminToken.HEADER;
+
+    private final RateLimiter limiter;
+    private final AdminToken adminToken;
+
+    /**
+     * Tworzy kontroler zmieniający limity podanego limitera.
+     *
+     * @param limiter    Limiter zapytań.
+     * @param adminToken Token wymagany w nagłówku {@value #ADMIN_HEADER}; pusty wyłącza kontroler.
+     */
+    public RateLimitController(RateLimiter limiter, @Value("${transformer.rate-limit.admin-token:}") String adminToken) {
+        this.limiter = limiter;
+        this.adminToken = new AdminToken(adminToken, "transformer.rate-limit.admin-token", "Zmiana limitów");
+    }
+
+    /**
+     * Zwraca limity domyślne i własne limity kluczy, z kluczami zastąpionymi ich skrótami.
+     *
+     * @param token Token administracyjny.
+     * @return Odpowiedź JSON z limitami albo kod 401 lub 403.
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<?> get(@RequestHeader(value = ADMIN_HEADER, required = false) String token) {
+        ResponseEntity<?> denied = adminToken.authorize(token);
+        if (denied != null) {
+            return denied;
+        }
+        Map<String, RateLimiter.Limits> keys = new TreeMap<>();
+        limiter.getKeyLimits().forEach((key, limits) -> keys.put(fingerprint(key), limits));
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("default", limiter.getDefaultLimits());
+        limits.put("keys", keys);
+        return ResponseEntity.ok(limits);
+    }
+
+    /**
+     * Zmienia limity kluczy bez własnych ustawień.
+     *
+     * @param token    Token administracyjny.
+     * @param settings Nowe limity.
+     * @return Odpowiedź JSON z ustawionymi limitami lub komunikat błędu.
+     */
+    @RequestMapping(value = "/default", method = RequestMethod.PUT, produces = "application/json")
+    public ResponseEntity<?> putDefault(@RequestHeader(value = ADMIN_HEADER, required = false) String token,
+                                        @RequestBody RateLimitSettings settings) {
+        ResponseEntity<?> denied = adminToken.authorize(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            RateLimiter.Limits limits = settings.toLimits();
+            limiter.setDefaultLimits(limits);
+            logger.info("Zmieniono domyślne limity zapytań");
+            return ResponseEntity.ok(limits);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Ustawia własne limity klucza API.
+     *
+     * @param token    Token administracyjny.
+     * @param key      Klucz API.
+     * @param settings Nowe limity.
+     * @return Odpowiedź JSON z ustawionymi limitami lub komunikat błędu.
+     */
+    @RequestMapping(value = "/keys/{key}", method = RequestMethod.PUT, produces = "application/json")
+    public ResponseEntity<?> putKey(@RequestHeader(value = ADMIN_HEADER, required = false) String token,
+                                    @PathVariable String key, @RequestBody RateLimitSettings settings) {
+        ResponseEntity<?> denied = adminToken.authorize(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            RateLimiter.Limits limits = settings.toLimits();
+            limiter.setKeyLimits(key, limits);
+            logger.info("Zmieniono limity zapytań klucza " + fingerprint(key));
+            return ResponseEntity.ok(limits);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Usuwa własne limity klucza API - obowiązują go odtąd limity domyślne.
+     *
+     * @param token Token administracyjny.
+     * @param key   Klucz API.
+     * @return Odpowiedź 204, 404, jeśli klucz nie miał własnych limitów, albo 401 lub 403.
+     */
+    @RequestMapping(value = "/keys/{key}", method = RequestMethod.DELETE)
+    public ResponseEntity<?> deleteKey(@RequestHeader(value = ADMIN_HEADER, required = false) String token,
+                                       @PathVariable String key) {
+        ResponseEntity<?> denied = adminToken.authorize(token);
+        if (denied != null) {
+            return denied;
+        }
+        if (!limiter.removeKeyLimits(key)) {
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Usunięto limity zapytań klucza " + fingerprint(key));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Zwraca skrót klucza API, który pozwala rozpoznać klucz bez jego ujawniania.
+     *
+     * @param key Klucz API.
+     * @return Pierwsze 16 znaków szesnastkowego skrótu SHA-256 klucza.
+     */
+    static String fingerprint(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            // Każda implementacja Javy musi obsługiwać SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
+
+/**
+ * Klasa reprezentująca żądanie JSON ze zmianą limitów zapytań.
+ */
+class RateLimitSettings {
+
+    private Double requestsPerSecond;
+    private Long bytesPerSecond;
+
+    /**
+     * @return Dopuszczalna liczba zapytań na sekundę; 0 oznacza brak limitu.
+     */
+    public Double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * @param requestsPerSecond Dopuszczalna liczba zapytań na sekundę; 0 oznacza brak limitu.
+     */
+    public void setRequestsPerSecond(Double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * @return Dopuszczalna liczba bajtów wejścia na sekundę; 0 oznacza brak limitu.
+     */
+    public Long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @param bytesPerSecond Dopuszczalna liczba bajtów wejścia na sekundę; 0 oznacza brak limitu.
+     */
+    public void setBytesPerSecond(Long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return Limity odpowiadające żądaniu.
+     * @throws IllegalArgumentException jeśli brakuje limitu lub jest on ujemny.
+     */
+    RateLimiter.Limits toLimits() {
+        if (requestsPerSecond == null || bytesPerSecond == null) {
+            throw new IllegalArgumentException("Wymagane pola: requestsPerSecond, bytesPerSecond");
+        }
+        return new RateLimiter.Limits(requestsPerSecond, bytesPerSecond);
+    }
+}
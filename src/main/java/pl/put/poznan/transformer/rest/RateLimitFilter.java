@@ -0,0 +1,115 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import pl.put.poznan.transformer.logic.RateLimiter;
+
+/**
+ * Ogranicza zapytania każdego klucza API (nagłówek {@code header}) przez {@link RateLimiter}.
+ * <p>
+ * Rozmiarem wejścia jest {@code Content-Length}, a dla żądań bez treści - długość adresu z parametrami.
+ * Treść bez podanej długości (kodowanie {@code chunked}) jest zliczana podczas czytania i pobierana
+ * z kubełka bajtów po obsłudze żądania. Własny kubełek mają tylko klucze z własnymi limitami;
+ * zapytania bez klucza i z kluczami nieskonfigurowanymi dzielą wspólny kubełek z limitami domyślnymi,
+ * więc zmiana klucza w każdym zapytaniu nie omija limitu.
+ * Odrzucone zapytania kończą się odpowiedzią 429 z nagłówkiem {@code Retry-After}.
+ * <p>
+ * Liczniki {@code transformer.ratelimit.allowed} i {@code transformer.ratelimit.throttled} mają
+ * znacznik {@code key}: klucz z własnymi limitami albo {@code anonymous} dla wspólnego kubełka,
+ * aby dowolne klucze klientów nie tworzyły nowych szeregów metryk.
+ */
+public final class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    /** Klucz wspólnego kubełka zapytań bez klucza API lub z kluczem bez własnych limitów. */
+    static final String ANONYMOUS = "anonymous";
+
+    private final RateLimiter limiter;
+    private final String header;
+    private final MeterRegistry registry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Tworzy filtr.
+     *
+     * @param limiter  Limiter zapytań.
+     * @param header   Nazwa nagłówka z kluczem API.
+     * @param registry Rejestr metryk Micrometer.
+     */
+    RateLimitFilter(RateLimiter limiter, String header, MeterRegistry registry) {
+        this.limiter = limiter;
+        this.header = header;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(header);
+        if (key == null || !limiter.hasKeyLimits(key)) {
+            key = ANONYMOUS;
+        }
+        long length = request.getContentLengthLong();
+        boolean chunked = length < 0 && request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+        long bytes = length >= 0 ? length : chunked ? 0 : inputLength(request);
+
+        RateLimiter.Decision decision = limiter.tryAcquire(key, bytes);
+        if (!decision.isAllowed()) {
+            String limit = decision.getExceeded().name().toLowerCase(Locale.ROOT);
+            counter("transformer.ratelimit.throttled", key, limit).increment();
+            logger.debug("Ograniczono zapytanie klucza " + key + ", limit: " + limit);
+            // Zaokrąglenie w górę, aby ponowienie po podanym czasie się zmieściło
+            long seconds = Math.max(1, (decision.getRetryAfter().toMillis() + 999) / 1000);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Przekroczono limit zapytań klucza API");
+            return;
+        }
+        counter("transformer.ratelimit.allowed", key, null).increment();
+        if (!chunked) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CountingRequest counting = new CountingRequest(request, total -> {
+        });
+        try {
+            chain.doFilter(counting, response);
+        } finally {
+            limiter.charge(key, counting.getCount());
+        }
+    }
+
+    private static long inputLength(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getRequestURI().length() + (query == null ? 0 : query.length() + 1);
+    }
+
+    private Counter counter(String name, String key, String limit) {
+        String id = name + '|' + key + '|' + limit;
+        return counters.computeIfAbsent(id, k -> {
+            Counter.Builder builder = Counter.builder(name).tag("key", key);
+            if (limit != null) {
+                builder.tag("limit", limit).description("Liczba zapytań odrzuconych przez limit klucza API");
+            } else {
+                builder.description("Liczba zapytań dopuszczonych przez limit klucza API");
+            }
+            return builder.register(registry);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.IOException;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+
+/**
+ * Odrzuca żądania z treścią większą niż {@code maxBodyBytes}, zanim zostanie ona wczytana do pamięci.
+ * <p>
+ * Żądania z nagłówkiem {@code Content-Length} sprawdzane są od razu i kończą się odpowiedzią 413.
+ * Treść bez podanej długości (kodowanie {@code chunked}) jest zliczana podczas czytania,
+ * a przekroczenie limitu przerywa odczyt błędem.
+ */
+public final class RequestSizeFilter extends OncePerRequestFilter {
+
+    private final long maxBodyBytes;
+    private final AdmissionControl admission;
+
+    /**
+     * Tworzy filtr.
+     *
+     * @param maxBodyBytes Największy rozmiar treści żądania w bajtach.
+     * @param admission    Sterowanie dopuszczaniem zliczające odrzucenia.
+     */
+    RequestSizeFilter(long maxBodyBytes, AdmissionControl admission) {
+        this.maxBodyBytes = maxBodyBytes;
+        this.admission = admission;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long length = request.getContentLengthLong();
+        if (length > maxBodyBytes) {
+            admission.recordRejection(AdmissionControl.Reason.BODY);
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                    "Treść żądania ma " + length + " bajtów, dopuszczalne " + maxBodyBytes);
+            return;
+        }
+        chain.doFilter(length < 0 ? new CountingRequest(request, this::checkRead) : request, response);
+    }
+
+    private void checkRead(long total) throws IOException {
+        if (total > maxBodyBytes) {
+            admission.recordRejection(AdmissionControl.Reason.BODY);
+            throw new IOException("Treść żądania przekracza " + maxBodyBytes + " bajtów");
+        }
+    }
+}
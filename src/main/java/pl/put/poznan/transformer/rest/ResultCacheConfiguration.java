@@ -0,0 +1,62 @@
+package pl.put.poznan.transformer.rest;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import pl.put.poznan.transformer.logic.TransformResultCache;
+
+/**
+ * Konfiguracja opcjonalnego cache wyników transformacji.
+ * <p>
+ * Włączana właściwością {@code transformer.result-cache.enabled=true}. Liczniki trafień, chybień,
+ * pominięć i usunięć oraz współczynnik trafień i waga cache udostępniane są przez Micrometer.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transformer.result-cache.enabled", havingValue = "true")
+public class ResultCacheConfiguration {
+
+    /**
+     * Tworzy cache wyników i rejestruje jego metryki.
+     *
+     * @param maxWeight     Maksymalna łączna waga wpisów w bajtach.
+     * @param ttl           Czas życia wpisu.
+     * @param maxTextLength Najdłuższy tekst (w znakach), którego wynik może trafić do cache.
+     * @param registry      Rejestr metryk Micrometer.
+     * @return Cache wyników.
+     */
+    @Bean
+    public TransformResultCache transformResultCache(
+            @Value("${transformer.result-cache.max-weight-bytes:67108864}") long maxWeight,
+            @Value("${transformer.result-cache.ttl:10m}") Duration ttl,
+            @Value("${transformer.result-cache.max-text-length:16384}") int maxTextLength,
+            MeterRegistry registry) {
+        TransformResultCache cache = new TransformResultCache(maxWeight, ttl, maxTextLength);
+        FunctionCounter.builder("transformer.result.cache.hits", cache, TransformResultCache::getHitCount)
+                .description("Liczba wyników zwróconych z cache")
+                .register(registry);
+        FunctionCounter.builder("transformer.result.cache.misses", cache, TransformResultCache::getMissCount)
+                .description("Liczba wyników obliczonych z powodu braku w cache")
+                .register(registry);
+        FunctionCounter.builder("transformer.result.cache.bypasses", cache, TransformResultCache::getBypassCount)
+                .description("Liczba tekstów zbyt długich dla cache")
+                .register(registry);
+        FunctionCounter.builder("transformer.result.cache.evictions", cache, TransformResultCache::getEvictionCount)
+                .description("Liczba wpisów usuniętych z cache")
+                .register(registry);
+        Gauge.builder("transformer.result.cache.hit.ratio", cache, TransformResultCache::getHitRatio)
+                .description("Udział trafień w cache wyników")
+                .register(registry);
+        Gauge.builder("transformer.result.cache.weight", cache, TransformResultCache::getWeight)
+                .description("Szacowana wielkość cache wyników")
+                .baseUnit("bytes")
+                .register(registry);
+        return cache;
+    }
+}
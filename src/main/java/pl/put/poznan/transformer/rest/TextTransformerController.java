@@ -1,9 +1,11 @@
 package pl.put.poznan.transformer.rest;
 
 import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -13,8 +15,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import pl.put.poznan.transformer.logic.TextTransformerInterface;
-import pl.put.poznan.transformer.logic.TransformerFactory;
+import pl.put.poznan.transformer.logic.AdmissionControl;
+
 
 /**
  * Kontroler REST do obsługi transformacji tekstu za pomocą zapytań GET.
@@ -37,6 +39,17 @@ public class TextTransformerController {
 
     private static final Logger logger = LoggerFactory.getLogger(TextTransformerController.class);
 
+    private final TransformExecutor executor;
+
+    /**
+     * Tworzy kontroler korzystający z podanego wykonawcy transformacji.
+     *
+     * @param executor Wykonawca transformacji.
+     */
+    public TextTransformerController(TransformExecutor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Obsługuje żądanie GET dla transformacji tekstu.
      *
@@ -52,15 +65,21 @@ public class TextTransformerController {
         logger.debug("Transforms: " + Arrays.toString(transforms));
 
         try {
-            // Tworzenie dynamicznego łańcucha dekoratorów
-            TextTransformerInterface transformer = TransformerFactory.createTransformer(transforms);
-            logger.info("Utworzono transformer");
-            String result = transformer.transform(text);
+            // Skompilowany łańcuch z cache albo, dla bardzo dużych tekstów, przetwarzanie równoległe
+            String result = executor.transform(transforms, text);
 
             return ResponseEntity.ok(result);
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("Error: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono transformację: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, FormattedTextTransformerController.RETRY_AFTER_SECONDS)
+                    .body("Serwer jest przeciążony");
         }
     }
 }
@@ -0,0 +1,217 @@
+package pl.put.poznan.transformer.rest;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.BatchTransformer;
+import pl.put.poznan.transformer.logic.TextTransformerInterface;
+import pl.put.poznan.transformer.logic.TransformResultCache;
+import pl.put.poznan.transformer.logic.TransformerFactory;
+import pl.put.poznan.transformer.logic.TransformerPipelineCache;
+
+/**
+ * Wykonuje transformacje tekstu w trybie wybranym właściwością {@code transformer.execution.mode}.
+ * <p>
+ * W trybie {@code inline} transformacja odbywa się w wątku obsługującym żądanie. W trybie
+ * {@code bounded} teksty dłuższe niż {@code transformer.execution.inline-threshold} znaków
+ * przetwarzane są w ograniczonej puli wątków obliczeniowych, więc duże zadania zajmują
+ * co najwyżej {@code transformer.execution.cpu-threads} rdzeni, a krótkie teksty nie czekają
+ * za nimi w kolejce. Wątek żądania czeka na wynik - przy włączonych wątkach wirtualnych
+ * ({@code spring.threads.virtual.enabled}, Java 21+) czekanie nie blokuje wątku platformy.
+ * <p>
+ * Teksty dłuższe niż {@code transformer.execution.parallel-threshold} znaków dzielone są na fragmenty
+ * przetwarzane równolegle w puli fork-join o tej samej liczbie wątków; takie łańcuchy również są
+ * przechowywane w cache.
+ * <p>
+ * Jeśli skonfigurowano {@link TransformResultCache}, powtarzające się zapytania obsługiwane są z cache.
+ * <p>
+ * Przed wykonaniem zapytanie sprawdzane jest przez {@link AdmissionControl}: przekroczenie limitów
+ * rozmiaru i kosztu kończy się {@link AdmissionControl.LimitExceededException}, a kosztowne zapytania
+ * przy dużym obciążeniu czekają na dopuszczenie albo są odrzucane.
+ */
+@Component
+public class TransformExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransformExecutor.class);
+
+    /** Maksymalna liczba łańcuchów równoległych przechowywanych w cache. */
+    private static final int PARALLEL_PIPELINE_CACHE_SIZE = 256;
+
+    private final ThreadPoolExecutor executor;
+    private final ForkJoinPool parallelPool;
+    private final TransformerPipelineCache parallelPipelines;
+    private final int inlineThreshold;
+    private final int parallelThreshold;
+    private final TransformResultCache resultCache;
+    private final AdmissionControl admission;
+
+    /**
+     * Tworzy wykonawcę transformacji.
+     *
+     * @param mode            Tryb wykonania: {@code inline} lub {@code bounded}.
+     * @param cpuThreads      Liczba wątków obliczeniowych; 0 oznacza liczbę dostępnych procesorów.
+     * @param queueCapacity   Maksymalna liczba zadań oczekujących na wątek obliczeniowy.
+     * @param inlineThreshold Długość tekstu, do której transformacja zawsze odbywa się w wątku żądania.
+     * @param parallelThreshold Długość tekstu, od której jest on dzielony na fragmenty przetwarzane równolegle.
+     * @param resultCache     Cache wyników, jeśli jest włączony.
+     * @param admission       Limity rozmiaru zapytań i sterowanie dopuszczaniem.
+     */
+    public TransformExecutor(@Value("${transformer.execution.mode:bounded}") String mode,
+                             @Value("${transformer.execution.cpu-threads:0}") int cpuThreads,
+                             @Value("${transformer.execution.queue-capacity:256}") int queueCapacity,
+                             @Value("${transformer.execution.inline-threshold:16384}") int inlineThreshold,
+                             @Value("${transformer.execution.parallel-threshold:1048576}") int parallelThreshold,
+                             ObjectProvider<TransformResultCache> resultCache,
+                             AdmissionControl admission) {
+        int threads = cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        if ("inline".equals(mode)) {
+            this.executor = null;
+        } else if ("bounded".equals(mode)) {
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+            logger.info("Transformacje dużych tekstów w puli " + threads + " wątków, kolejka " + queueCapacity);
+        } else {
+            throw new IllegalArgumentException("Nieznany tryb wykonania: " + mode);
+        }
+        this.parallelPool = new ForkJoinPool(threads);
+        this.parallelPipelines = new TransformerPipelineCache(PARALLEL_PIPELINE_CACHE_SIZE,
+                names -> TransformerFactory.createParallel(names, parallelPool));
+        this.inlineThreshold = inlineThreshold;
+        this.parallelThreshold = parallelThreshold;
+        this.resultCache = resultCache.getIfAvailable();
+        this.admission = admission;
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "transform-cpu-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Wykonuje łańcuch transformacji o podanych nazwach i czeka na jego wynik.
+     * <p>
+     * Bardzo duże teksty przetwarzane są równolegle we fragmentach, pozostałe - łańcuchem z cache.
+     * Wynik może pochodzić z cache wyników, jeśli jest włączony - wtedy nie czeka na dopuszczenie.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param text       Tekst wejściowy.
+     * @return Przekształcony tekst.
+     * @throws AdmissionControl.LimitExceededException jeśli zapytanie przekracza limit rozmiaru lub kosztu.
+     * @throws IllegalArgumentException   jeśli nazwa transformacji jest nieznana.
+     * @throws RejectedExecutionException jeśli serwer jest przeciążony, kolejka puli obliczeniowej jest pełna
+     *                                    lub oczekiwanie przerwano.
+     */
+    public String transform(String[] transforms, String text) {
+        long cost = admission.checkLimits(transforms, text == null ? 0 : text.length());
+        if (resultCache != null) {
+            return resultCache.get(transforms, text, input -> compute(transforms, input, cost));
+        }
+        return compute(transforms, text, cost);
+    }
+
+    private String compute(String[] transforms, String text, long cost) {
+        AdmissionControl.Permit permit = admission.admit(cost);
+        try {
+            if (text != null && text.length() >= parallelThreshold) {
+                return parallelPipelines.get(transforms).transform(text);
+            }
+            return transform(TransformerFactory.getTransformer(transforms), text);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Wykonuje łańcuch transformacji na wielu tekstach przez {@link BatchTransformer}.
+     * Duże batche dzielone są między wątki puli fork-join wykonawcy, a nie wspólnej puli JVM.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param texts      Teksty wejściowe.
+     * @return Wyniki w kolejności odpowiadającej tekstom wejściowym.
+     * @throws AdmissionControl.LimitExceededException jeśli zapytanie przekracza limit rozmiaru lub kosztu.
+     * @throws IllegalArgumentException   jeśli nazwa transformacji jest nieznana.
+     * @throws RejectedExecutionException jeśli serwer jest przeciążony lub oczekiwanie przerwano.
+     */
+    public List<BatchTransformer.Result> transformAll(String[] transforms, List<String> texts) {
+        long cost = admission.checkLimits(transforms, texts);
+        AdmissionControl.Permit permit = admission.admit(cost);
+        try {
+            return transformBatch(transforms, texts);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Wykonuje łańcuch transformacji na wielu tekstach w puli fork-join wykonawcy,
+     * bez sprawdzania limitów i dopuszczania.
+     *
+     * @param transforms Tablica nazw transformacji, które mają zostać zastosowane w kolejności.
+     * @param texts      Teksty wejściowe.
+     * @return Wyniki w kolejności odpowiadającej tekstom wejściowym.
+     * @throws IllegalArgumentException jeśli nazwa transformacji jest nieznana.
+     */
+    public List<BatchTransformer.Result> transformBatch(String[] transforms, List<String> texts) {
+        return BatchTransformer.transformAll(transforms, texts, parallelPool);
+    }
+
+    /**
+     * Wykonuje transformację i czeka na jej wynik.
+     *
+     * @param transformer Łańcuch transformacji.
+     * @param text        Tekst wejściowy.
+     * @return Przekształcony tekst.
+     * @throws RejectedExecutionException jeśli kolejka puli obliczeniowej jest pełna lub oczekiwanie przerwano.
+     */
+    public String transform(TextTransformerInterface transformer, String text) {
+        if (executor == null || text == null || text.length() <= inlineThreshold) {
+            return transformer.transform(text);
+        }
+        Future<String> result = executor.submit(() -> transformer.transform(text));
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Przerwano oczekiwanie na transformację", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Zatrzymuje pule wątków obliczeniowych przy zamykaniu kontekstu aplikacji.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        parallelPool.shutdownNow();
+    }
+}
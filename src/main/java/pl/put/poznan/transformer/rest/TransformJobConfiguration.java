@@ -0,0 +1,69 @@
+package pl.put.poznan.transformer.rest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import pl.put.poznan.transformer.logic.TransformJobs;
+
+/**
+ * Konfiguracja kolejki zadań asynchronicznych ({@code /jobs}).
+ * <p>
+ * Liczba zadań oczekujących i wykonywanych oraz liczba odrzuconych zgłoszeń udostępniane są przez Micrometer.
+ */
+@Configuration
+public class TransformJobConfiguration {
+
+    /**
+     * Tworzy kolejkę zadań i rejestruje jej metryki.
+     *
+     * @param workers        Liczba wątków wykonujących zadania; 0 oznacza połowę dostępnych procesorów.
+     * @param queueCapacity  Największa liczba zadań oczekujących na wykonanie.
+     * @param spoolThreshold Długość wyniku (w znakach), od której jest on zapisywany na dysku.
+     * @param spoolDirectory Katalog plików z wynikami; pusty oznacza podkatalog katalogu tymczasowego.
+     * @param retention      Czas przechowywania zakończonych zadań i ich wyników.
+     * @param maxFinished    Największa liczba przechowywanych zakończonych zadań.
+     * @param maxResultMemory Największa łączna długość (w znakach) wyników przechowywanych w pamięci.
+     * @param registry       Rejestr metryk Micrometer.
+     * @return Kolejka zadań; wątki są zatrzymywane przy zamykaniu kontekstu.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public TransformJobs transformJobs(
+            @Value("${transformer.jobs.workers:0}") int workers,
+            @Value("${transformer.jobs.queue-capacity:64}") int queueCapacity,
+            @Value("${transformer.jobs.spool-threshold:1048576}") int spoolThreshold,
+            @Value("${transformer.jobs.spool-directory:}") String spoolDirectory,
+            @Value("${transformer.jobs.retention:15m}") Duration retention,
+            @Value("${transformer.jobs.max-finished:256}") int maxFinished,
+            @Value("${transformer.jobs.max-result-memory:16777216}") long maxResultMemory,
+            MeterRegistry registry) {
+        int threads = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        Path directory = spoolDirectory.isEmpty()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "transformer-jobs")
+                : Path.of(spoolDirectory);
+        TransformJobs jobs = new TransformJobs(threads, queueCapacity, spoolThreshold, directory, retention,
+                maxFinished, maxResultMemory);
+        Gauge.builder("transformer.jobs.queued", jobs, TransformJobs::getQueuedCount)
+                .description("Liczba zadań oczekujących na wykonanie")
+                .register(registry);
+        Gauge.builder("transformer.jobs.running", jobs, TransformJobs::getRunningCount)
+                .description("Liczba wykonywanych zadań")
+                .register(registry);
+        Gauge.builder("transformer.jobs.finished", jobs, TransformJobs::getFinishedCount)
+                .description("Liczba przechowywanych zakończonych zadań")
+                .register(registry);
+        Gauge.builder("transformer.jobs.result.memory", jobs, TransformJobs::getResultMemory)
+                .description("Łączna długość wyników zadań przechowywanych w pamięci (znaki)")
+                .register(registry);
+        FunctionCounter.builder("transformer.jobs.rejected", jobs, TransformJobs::getRejectedCount)
+                .description("Liczba zgłoszeń odrzuconych z powodu pełnej kolejki")
+                .register(registry);
+        return jobs;
+    }
+}
@@ -0,0 +1,271 @@
+package pl.put.poznan.transformer.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.TransformJobs;
+
+/**
+ * Kontroler REST zadań asynchronicznych dla długotrwałych transformacji dużych tekstów.
+ * <p>
+ * Zadanie zgłaszane jest żądaniem POST, a jego stan i postęp odczytywane żądaniem GET. Po zakończeniu
+ * wynik pobiera się osobno jako zwykły tekst. Zadania wykonuje osobna pula wątków
+ * ({@link TransformJobs}), więc nie zajmują wątków obsługujących żądania interaktywne.
+ * Zgłoszenie podlega limitom długości łańcucha, tekstu i kosztu {@link AdmissionControl} (kod 413);
+ * liczbę wykonywanych naraz zadań ogranicza pula, a gdy kolejka zadań jest pełna, zgłoszenie kończy się kodem 429.
+ */
+@RestController
+@RequestMapping("/jobs")
+@CrossOrigin
+public class TransformJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransformJobController.class);
+
+    /** Sugerowany czas (w sekundach) przed ponownym zgłoszeniem odrzuconego zadania. */
+    static final int RETRY_AFTER_SECONDS = 5;
+
+    private final TransformJobs jobs;
+    private final AdmissionControl admission;
+
+    /**
+     * Tworzy kontroler korzystający z podanej kolejki zadań.
+     *
+     * @param jobs      Kolejka zadań.
+     * @param admission Sterowanie dopuszczaniem sprawdzające limity zgłoszeń.
+     */
+    public TransformJobController(TransformJobs jobs, AdmissionControl admission) {
+        this.jobs = jobs;
+        this.admission = admission;
+    }
+
+    /**
+     * Zgłasza zadanie transformacji tekstu.
+     *
+     * @param request Obiekt {@code TransformJobRequest} z tekstem, listą transformacji i opcjonalnym priorytetem.
+     * @return Stan zgłoszonego zadania (kod 202) z adresem w nagłówku {@code Location}, kod 400 dla
+     * niepoprawnego żądania, 413 dla zapytania przekraczającego limity albo 429, jeśli kolejka jest pełna.
+     */
+    @RequestMapping(method = RequestMethod.POST, produces = "application/json")
+    public ResponseEntity<?> submit(@RequestBody TransformJobRequest request) {
+
+        logger.debug("Transforms: " + Arrays.toString(request.getTransforms()));
+
+        int priority = request.getPriority() != null ? request.getPriority() : TransformJobs.DEFAULT_PRIORITY;
+        try {
+            String text = request.getText();
+            admission.checkLimits(request.getTransforms(), text != null ? text.length() : 0);
+            TransformJobs.Job job = jobs.submit(request.getTransforms(), request.getText(), priority);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/jobs/" + job.getId()))
+                    .body(new TransformJobStatus(job));
+        } catch (AdmissionControl.LimitExceededException e) {
+            logger.warn("Odrzucono zadanie: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(TransformResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.error("Error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(TransformResponse.error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Odrzucono zadanie: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body(TransformResponse.error("Kolejka zadań jest pełna"));
+        }
+    }
+
+    /**
+     * Zwraca stan i postęp zadania.
+     *
+     * @param id Identyfikator zadania.
+     * @return Stan zadania albo kod 404, jeśli zadanie nie istnieje.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = "application/json")
+    public ResponseEntity<TransformJobStatus> status(@PathVariable String id) {
+        TransformJobs.Job job = jobs.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new TransformJobStatus(job));
+    }
+
+    /**
+     * Zapisuje do odpowiedzi wynik zakończonego zadania (zwykły tekst, UTF-8).
+     *
+     * @param id       Identyfikator zadania.
+     * @param response Odpowiedź HTTP; kod 404, jeśli zadanie nie istnieje, albo 409, jeśli nie ma wyniku.
+     * @throws IOException jeśli wystąpił błąd odczytu wyniku lub zapisu odpowiedzi.
+     */
+    @RequestMapping(value = "/{id}/result", method = RequestMethod.GET)
+    public void result(@PathVariable String id, HttpServletResponse response) throws IOException {
+        TransformJobs.Job job = jobs.get(id);
+        if (job == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        InputStream result;
+        try {
+            // Otwarty wynik nie zostanie usunięty przez anulowanie ani wygaśnięcie zadania w trakcie zapisu
+            result = job.openResult();
+        } catch (IllegalStateException e) {
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
+        }
+        try (result) {
+            response.setContentType("text/plain");
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            result.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Anuluje zadanie albo, jeśli się zakończyło, usuwa je razem z wynikiem.
+     *
+     * @param id Identyfikator zadania.
+     * @return Stan zadania albo kod 404, jeśli zadanie nie istnieje.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.DELETE, produces = "application/json")
+    public ResponseEntity<TransformJobStatus> cancel(@PathVariable String id) {
+        TransformJobs.Job job = jobs.cancel(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new TransformJobStatus(job));
+    }
+}
+
+/**
+ * Klasa reprezentująca żądanie JSON zgłoszenia zadania transformacji.
+ */
+class TransformJobRequest {
+
+    private String text;
+    private String[] transforms;
+    private Integer priority;
+
+    /**
+     * Pobiera tekst wejściowy do przetworzenia.
+     *
+     * @return Tekst wejściowy.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Ustawia tekst wejściowy do przetworzenia.
+     *
+     * @param text Tekst wejściowy.
+     */
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Pobiera listę transformacji do zastosowania.
+     *
+     * @return Tablica transformacji.
+     */
+    public String[] getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * Ustawia listę transformacji do zastosowania.
+     *
+     * @param transforms Tablica transformacji.
+     */
+    public void setTransforms(String[] transforms) {
+        this.transforms = transforms;
+    }
+
+    /**
+     * Pobiera priorytet zadania.
+     *
+     * @return Priorytet (0-9, wyższy wykonywany wcześniej) lub {@code null} dla domyślnego.
+     */
+    public Integer getPriority() {
+        return priority;
+    }
+
+    /**
+     * Ustawia priorytet zadania.
+     *
+     * @param priority Priorytet (0-9, wyższy wykonywany wcześniej).
+     */
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+}
+
+/**
+ * Klasa reprezentująca odpowiedź JSON ze stanem zadania transformacji.
+ */
+class TransformJobStatus {
+
+    private final String id;
+    private final String state;
+    private final int priority;
+    private final double progress;
+    private final String error;
+
+    TransformJobStatus(TransformJobs.Job job) {
+        this.id = job.getId();
+        this.state = job.getState().name();
+        this.priority = job.getPriority();
+        this.progress = job.getProgress();
+        this.error = job.getError();
+    }
+
+    /**
+     * @return Identyfikator zadania.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return Stan zadania: {@code QUEUED}, {@code RUNNING}, {@code DONE}, {@code FAILED} lub {@code CANCELLED}.
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * @return Priorytet zadania.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return Postęp od 0 do 1.
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return Komunikat błędu lub {@code null}, jeśli zadanie nie zakończyło się błędem.
+     */
+    public String getError() {
+        return error;
+    }
+}
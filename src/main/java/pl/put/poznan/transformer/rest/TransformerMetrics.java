@@ -0,0 +1,128 @@
+package pl.put.poznan.transformer.rest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import pl.put.poznan.transformer.logic.StageMetrics;
+import pl.put.poznan.transformer.logic.TransformerFactory;
+import pl.put.poznan.transformer.logic.TransformerPipelineCache;
+
+/**
+ * Pomiar etapów łańcuchów transformacji udostępniany przez Micrometer (Spring Boot Actuator).
+ * <p>
+ * Włączany właściwością {@code transformer.metrics.enabled=true}. Dla każdego etapu rejestruje
+ * czas wykonania ({@code transformer.stage}, z percentylami), rozmiar wejścia i wyjścia
+ * ({@code transformer.stage.input}, {@code transformer.stage.output}) oraz liczbę błędów
+ * ({@code transformer.stage.errors}). Znacznik {@code stage} to nazwa transformacji albo {@code fused}
+ * dla połączonych transformacji znakowych, więc liczba serii nie zależy od łańcuchów w zapytaniach. Metryki cache łańcuchów rejestrowane są zawsze, gdy komponent działa.
+ */
+@Component
+@ConditionalOnProperty(name = "transformer.metrics.enabled", havingValue = "true")
+public class TransformerMetrics implements StageMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    /**
+     * Mierniki jednego etapu, tworzone przy jego pierwszym wykonaniu.
+     */
+    private static final class StageMeters {
+        private final Timer timer;
+        private final DistributionSummary input;
+        private final DistributionSummary output;
+        private final Counter errors;
+
+        private StageMeters(MeterRegistry registry, String stage) {
+            this.timer = Timer.builder("transformer.stage")
+                    .description("Czas wykonania etapu łańcucha transformacji")
+                    .tag("stage", stage)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.input = DistributionSummary.builder("transformer.stage.input")
+                    .description("Długość tekstu wejściowego etapu")
+                    .baseUnit("chars")
+                    .tag("stage", stage)
+                    .register(registry);
+            this.output = DistributionSummary.builder("transformer.stage.output")
+                    .description("Długość tekstu wynikowego etapu")
+                    .baseUnit("chars")
+                    .tag("stage", stage)
+                    .register(registry);
+            this.errors = Counter.builder("transformer.stage.errors")
+                    .description("Liczba błędów etapu")
+                    .tag("stage", stage)
+                    .register(registry);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, StageMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Tworzy komponent rejestrujący metryki w podanym rejestrze.
+     *
+     * @param registry Rejestr metryk Micrometer.
+     */
+    public TransformerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Instaluje pomiar etapów i rejestruje metryki cache łańcuchów.
+     */
+    @PostConstruct
+    public void install() {
+        TransformerPipelineCache cache = TransformerFactory.getPipelineCache();
+        FunctionCounter.builder("transformer.pipeline.cache.hits", cache, TransformerPipelineCache::getHitCount)
+                .description("Liczba trafień w cache łańcuchów transformacji")
+                .register(registry);
+        FunctionCounter.builder("transformer.pipeline.cache.misses", cache, TransformerPipelineCache::getMissCount)
+                .description("Liczba chybień w cache łańcuchów transformacji")
+                .register(registry);
+        Gauge.builder("transformer.pipeline.cache.size", cache, TransformerPipelineCache::size)
+                .description("Liczba łańcuchów w cache")
+                .register(registry);
+        TransformerFactory.setStageMetrics(this);
+    }
+
+    /**
+     * Wyłącza pomiar etapów przy zamykaniu kontekstu aplikacji.
+     */
+    @PreDestroy
+    public void uninstall() {
+        if (TransformerFactory.getStageMetrics() == this) {
+            TransformerFactory.setStageMetrics(null);
+        }
+    }
+
+    @Override
+    public void record(String stage, long nanos, int inputLength, int outputLength) {
+        StageMeters stageMeters = meters(stage);
+        stageMeters.timer.record(nanos, TimeUnit.NANOSECONDS);
+        stageMeters.input.record(inputLength);
+        stageMeters.output.record(outputLength);
+    }
+
+    @Override
+    public void recordError(String stage, RuntimeException error) {
+        meters(stage).errors.increment();
+    }
+
+    private StageMeters meters(String stage) {
+        StageMeters stageMeters = meters.get(stage);
+        return stageMeters != null ? stageMeters : meters.computeIfAbsent(stage, name -> new StageMeters(registry, name));
+    }
+}
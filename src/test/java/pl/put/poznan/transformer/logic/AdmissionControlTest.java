@@ -0,0 +1,162 @@
+package pl.put.poznan.transformer.logic;
+
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private static AdmissionControl admission(double cpu, double heap, Duration maxWait) {
+        return new AdmissionControl(8, 1000, 100_000, 1000, 2, 4, maxWait, 0.9, 0.85, () -> cpu, () -> heap);
+    }
+
+    /** Pula pamięci o podanej zajętości po ostatnim odśmiecaniu. */
+    private static MemoryPoolMXBean pool(String name, MemoryType type, long used, long max) {
+        MemoryUsage collected = new MemoryUsage(0, used, max, max);
+        return (MemoryPoolMXBean) Proxy.newProxyInstance(MemoryPoolMXBean.class.getClassLoader(),
+                new Class<?>[]{MemoryPoolMXBean.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getName":
+                            return name;
+                        case "getType":
+                            return type;
+                        case "getCollectionUsage":
+                            return collected;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    void testHeapUsageIgnoresFullSurvivorSpace() {
+        // Arrange
+        List<MemoryPoolMXBean> parallel = List.of(
+                pool("PS Eden Space", MemoryType.HEAP, 0, 1000),
+                pool("PS Survivor Space", MemoryType.HEAP, 86, 100),
+                pool("PS Old Gen", MemoryType.HEAP, 50, 1000),
+                pool("Metaspace", MemoryType.NON_HEAP, 99, 100));
+        List<MemoryPoolMXBean> single = List.of(
+                pool("ZHeap", MemoryType.HEAP, 600, 1000),
+                pool("CodeHeap 'non-nmethods'", MemoryType.NON_HEAP, 99, 100));
+
+        // Act
+        double parallelUsage = AdmissionControl.heapUsageAfterGc(parallel);
+        double singleUsage = AdmissionControl.heapUsageAfterGc(single);
+
+        // Assert
+        assertEquals(0.05, parallelUsage, 1e-9);
+        assertEquals(0.6, singleUsage, 1e-9);
+    }
+
+    @Test
+    void testLimitsRejectLongChainsTextsAndCost() {
+        // Arrange
+        AdmissionControl admission = admission(0, 0, Duration.ZERO);
+        String[] latex = Collections.nCopies(8, "latex").toArray(new String[0]);
+
+        // Act & Assert
+        // upper: 100 x 1, inverse: do 300 znaków po upper ("ΐ" -> 3 znaki) x 2
+        assertEquals(700, admission.checkLimits(new String[]{"upper", "inverse"}, 100));
+        AdmissionControl.LimitExceededException chain = assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkLimits(new String[9], 10));
+        assertEquals(AdmissionControl.Reason.CHAIN, chain.getReason());
+        assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkLimits(new String[]{"upper"}, 1001));
+        assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkLimits(new String[]{"upper"}, List.of("a", "b".repeat(1001))));
+        // Każdy latex może zwiększyć tekst czterokrotnie, więc koszt rośnie wykładniczo z długością łańcucha
+        AdmissionControl.LimitExceededException cost = assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkLimits(latex, 10));
+        assertEquals(AdmissionControl.Reason.COST, cost.getReason());
+        assertThrows(IllegalArgumentException.class, () -> admission.checkLimits(new String[]{"nieznana"}, 10));
+        assertEquals(1, admission.getRejectedCount(AdmissionControl.Reason.CHAIN));
+        assertEquals(2, admission.getRejectedCount(AdmissionControl.Reason.TEXT));
+        assertEquals(1, admission.getRejectedCount(AdmissionControl.Reason.COST));
+    }
+
+    @Test
+    void testStreamLengthIsBoundedByChainCost() {
+        // Arrange
+        AdmissionControl admission = admission(0, 0, Duration.ZERO);
+
+        // Act
+        long plain = admission.checkStream(null, 500_000);
+        long upper = admission.checkStream(new String[]{"upper"}, 500_000);
+        long upperInverse = admission.checkStream(new String[]{"upper", "inverse"}, 500_000);
+
+        // Assert
+        assertEquals(500_000, plain);
+        // Koszt 100 000 przy koszcie 1 i 7 na znak
+        assertEquals(100_000, upper);
+        assertEquals(14_285, upperInverse);
+        assertThrows(AdmissionControl.LimitExceededException.class, () -> admission.checkStream(new String[9], 10));
+        admission.checkStreamLength(upper, upper);
+        AdmissionControl.LimitExceededException text = assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkStreamLength(upper + 1, upper));
+        assertEquals(AdmissionControl.Reason.TEXT, text.getReason());
+        AdmissionControl.LimitExceededException body = assertThrows(AdmissionControl.LimitExceededException.class,
+                () -> admission.checkBody(2049, 2048));
+        assertEquals(AdmissionControl.Reason.BODY, body.getReason());
+        assertEquals(1, admission.getRejectedCount(AdmissionControl.Reason.BODY));
+    }
+
+    @Test
+    void testRepeatedIdempotentTransformsAreCostedOnce() {
+        // Arrange
+        String[] repeated = Collections.nCopies(50, "removeduplicates").toArray(new String[0]);
+
+        // Act
+        long cost = TransformerFactory.estimateCost(repeated, 1000);
+
+        // Assert
+        assertEquals(TransformerFactory.estimateCost(new String[]{"removeduplicates"}, 1000), cost);
+        assertEquals(0, TransformerFactory.estimateCost(null, 1000));
+    }
+
+    @Test
+    void testExpensiveRequestsAreShedOnHeapPressure() {
+        // Arrange
+        AdmissionControl admission = admission(0, 0.9, Duration.ofSeconds(1));
+
+        // Act & Assert
+        admission.admit(999).close();
+        assertThrows(RejectedExecutionException.class, () -> admission.admit(1000));
+        assertEquals(1, admission.getAdmittedCheapCount());
+        assertEquals(1, admission.getRejectedCount(AdmissionControl.Reason.HEAP));
+    }
+
+    @Test
+    void testExpensiveRequestsRunOneAtATimeUnderCpuLoad() throws Exception {
+        // Arrange
+        AdmissionControl admission = admission(0.95, 0, Duration.ofMillis(100));
+        AdmissionControl.Permit first = admission.admit(5000);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> admission.admit(5000));
+        assertEquals(1, admission.getRejectedCount(AdmissionControl.Reason.CPU));
+
+        AdmissionControl patient = admission(0.95, 0, Duration.ofSeconds(10));
+        AdmissionControl.Permit running = patient.admit(5000);
+        CompletableFuture<AdmissionControl.Permit> waiting = CompletableFuture.supplyAsync(() -> patient.admit(5000));
+        while (patient.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        running.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        first.close();
+        assertEquals(0, patient.getRunning());
+        assertEquals(2, patient.getAdmittedExpensiveCount());
+    }
+}
@@ -0,0 +1,93 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickAutomatonTest {
+
+    private static AhoCorasickAutomaton automaton(String... entries) {
+        Map<String, String> dictionary = new LinkedHashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            dictionary.put(entries[i], entries[i + 1]);
+        }
+        return AhoCorasickAutomaton.compile(dictionary);
+    }
+
+    @Test
+    void testLongestMatchWins() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton("i tak", "X", "i tak dalej", "itd.");
+
+        // Act
+        String result = automaton.replaceAll("raz, dwa i tak dalej");
+
+        // Assert
+        assertEquals("raz, dwa itd.", result);
+    }
+
+    @Test
+    void testLeftmostMatchWinsOverLongerOverlappingMatch() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton("ab", "1", "bcde", "2");
+
+        // Act
+        String result = automaton.replaceAll("abcde");
+
+        // Assert
+        assertEquals("1cde", result);
+    }
+
+    @Test
+    void testShorterMatchAfterReplacedMatchIsKept() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton("a", "1", "abcd", "2", "b", "3");
+
+        // Act
+        String result = automaton.replaceAll("abx ab");
+
+        // Assert
+        assertEquals("13x 13", result);
+    }
+
+    @Test
+    void testCaseInsensitiveWithPolishLetters() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton("między innymi", "m.in.");
+
+        // Act
+        String result = automaton.replaceAll("MIĘDZY INNYMI oraz Między innymi");
+
+        // Assert
+        assertEquals("m.in. oraz m.in.", result);
+    }
+
+    @Test
+    void testNoMatchReturnsSameInstance() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton("np.", "na przykład");
+        String input = "brak skrótów";
+
+        // Act
+        String result = automaton.replaceAll(input);
+
+        // Assert
+        assertSame(input, result);
+    }
+
+    @Test
+    void testEmptyDictionary() {
+        // Arrange
+        AhoCorasickAutomaton automaton = automaton();
+
+        // Act
+        String result = automaton.replaceAll("tekst");
+
+        // Assert
+        assertEquals("tekst", result);
+        assertEquals(0, automaton.size());
+    }
+}
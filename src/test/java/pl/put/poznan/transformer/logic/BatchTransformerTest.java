@@ -0,0 +1,84 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTransformerTest {
+
+    @Test
+    void testResultsKeepInputOrder() {
+        // Arrange
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            texts.add("tekst " + i + " & więcej");
+        }
+
+        // Act
+        List<BatchTransformer.Result> results = BatchTransformer.transformAll(new String[]{"upper", "latex"}, texts);
+
+        // Assert
+        assertEquals(texts.size(), results.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals("TEKST " + i + " \\& WIĘCEJ", results.get(i).getTransformedText());
+            assertNull(results.get(i).getError());
+        }
+    }
+
+    @Test
+    void testLargeBatchRunsInGivenPool() {
+        // Arrange
+        AtomicInteger workers = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2, p -> {
+            workers.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        }, null, false);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < BatchTransformer.PARALLEL_THRESHOLD * 4; i++) {
+            texts.add("tekst " + i);
+        }
+
+        try {
+            // Act
+            List<BatchTransformer.Result> results = BatchTransformer.transformAll(new String[]{"upper"}, texts, pool);
+
+            // Assert
+            for (int i = 0; i < texts.size(); i++) {
+                assertEquals("TEKST " + i, results.get(i).getTransformedText());
+            }
+            assertTrue(workers.get() > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testErrorIsReportedPerItem() {
+        // Arrange
+        List<String> texts = Arrays.asList("a", null, "c");
+
+        // Act
+        List<BatchTransformer.Result> results = BatchTransformer.transformAll(new String[]{"upper"}, texts);
+
+        // Assert
+        assertEquals("A", results.get(0).getTransformedText());
+        assertNull(results.get(1).getTransformedText());
+        assertNotNull(results.get(1).getError());
+        assertEquals("C", results.get(2).getTransformedText());
+    }
+
+    @Test
+    void testUnknownTransformRejectsWholeBatch() {
+        // Arrange
+        List<String> texts = List.of("a");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> BatchTransformer.transformAll(new String[]{"nope"}, texts));
+    }
+}
@@ -0,0 +1,111 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryProtocolTest {
+
+    @Test
+    void testRegistryRoundTrip() {
+        // Arrange
+        TransformType[] types = TransformType.values();
+
+        for (TransformType type : types) {
+            // Act
+            TransformType decoded = BinaryProtocol.fromId(BinaryProtocol.idOf(type));
+
+            // Assert
+            assertEquals(type, decoded);
+            assertEquals(BinaryProtocol.idOf(type), BinaryProtocol.registry().get(type.getName()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.fromId(types.length + 1));
+    }
+
+    @Test
+    void testRequestRoundTrip() throws IOException {
+        // Arrange
+        String[] texts = {"", "Zażółć gęślą jaźń 😀", "x".repeat(300)};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder(bytes);
+        encoder.writeRequestHeader(new TransformType[]{TransformType.UPPER, TransformType.INVERSE}, texts.length);
+        for (String text : texts) {
+            encoder.writeText(text);
+        }
+        encoder.flush();
+
+        // Act
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder(new ByteArrayInputStream(bytes.toByteArray()), 1024);
+        String[] transforms = decoder.readRequestHeader();
+        String[] decoded = new String[decoder.readCount()];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = decoder.readText();
+        }
+
+        // Assert
+        assertArrayEquals(new String[]{"upper", "inverse"}, transforms);
+        assertEquals(Arrays.asList(texts), Arrays.asList(decoded));
+        // wersja, 2 transformacje, liczba tekstów, ramki: 1+0, 1+31 i 2+300 bajtów
+        assertEquals(1 + 1 + 2 + 1 + 1 + 32 + 302, bytes.size());
+    }
+
+    @Test
+    void testResponseRoundTrip() throws IOException {
+        // Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder(bytes);
+        encoder.writeResponseHeader(2);
+        encoder.writeResult("OK");
+        encoder.writeError("Brak tekstu");
+        encoder.flush();
+
+        // Act
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder(new ByteArrayInputStream(bytes.toByteArray()), 1024);
+        decoder.readResponseHeader();
+        int count = decoder.readCount();
+        int firstStatus = decoder.readStatus();
+        String first = decoder.readText();
+        int secondStatus = decoder.readStatus();
+        String second = decoder.readText();
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals(BinaryProtocol.STATUS_OK, firstStatus);
+        assertEquals("OK", first);
+        assertEquals(BinaryProtocol.STATUS_ERROR, secondStatus);
+        assertEquals("Brak tekstu", second);
+    }
+
+    @Test
+    void testMalformedFramesAreRejected() {
+        // Arrange
+        byte[] unknownVersion = {2, 0, 0};
+        byte[] unknownTransform = {1, 1, 99, 0};
+        byte[] truncated = {1, 0, 1, 5, 'a', 'b'};
+        byte[] tooLarge = {1, 0, 1, (byte) 0x80, 0x10};
+        byte[] overlongVarint = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F};
+
+        // Act & Assert
+        assertThrows(BinaryProtocol.ProtocolException.class, () -> decoder(unknownVersion).readRequestHeader());
+        assertThrows(BinaryProtocol.ProtocolException.class, () -> decoder(unknownTransform).readRequestHeader());
+        assertThrows(BinaryProtocol.ProtocolException.class, () -> readFirstText(truncated));
+        assertThrows(BinaryProtocol.ProtocolException.class, () -> readFirstText(tooLarge));
+        assertThrows(BinaryProtocol.ProtocolException.class, () -> decoder(overlongVarint).readRequestHeader());
+    }
+
+    private static BinaryProtocol.Decoder decoder(byte[] bytes) {
+        return new BinaryProtocol.Decoder(new ByteArrayInputStream(bytes), 1024);
+    }
+
+    private static String readFirstText(byte[] bytes) throws IOException {
+        BinaryProtocol.Decoder decoder = decoder(bytes);
+        decoder.readRequestHeader();
+        decoder.readCount();
+        return decoder.readText();
+    }
+}
@@ -0,0 +1,102 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseTransformerTest {
+
+    TextTransformerInterface transformers = new BaseTransformer();
+
+    @Test
+    void testUppercaseIgnoresDefaultLocale() {
+        // Arrange
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            UppercaseTransformer transformer = new UppercaseTransformer(transformers);
+
+            // Act
+            String result = transformer.transform("zażółć ißę");
+
+            // Assert
+            assertEquals("ZAŻÓŁĆ ISSĘ", result);
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void testUppercaseWithExplicitLocale() {
+        // Arrange
+        UppercaseTransformer transformer = new UppercaseTransformer(transformers, Locale.forLanguageTag("tr-TR"));
+
+        // Act
+        String result = transformer.transform("istanbul");
+
+        // Assert
+        assertEquals("İSTANBUL", result);
+    }
+
+    @Test
+    void testTextInTargetCaseIsReturnedUnchanged() {
+        // Arrange
+        String input = "już małe litery, 123 ąę";
+
+        // Act
+        CharSequence result = CaseMappingStage.LOWER.apply(input, new StringBuilder());
+
+        // Assert
+        assertSame(input, result);
+    }
+
+    @Test
+    void testToggleCase() {
+        // Arrange
+        ToggleCaseTransformer transformer = new ToggleCaseTransformer(transformers);
+
+        // Act
+        String result = transformer.transform("Żółw ma 3 NOGI i ß");
+
+        // Assert
+        assertEquals("żÓŁW MA 3 nogi I SS", result);
+    }
+
+    @Test
+    void testTitleCase() {
+        // Arrange
+        TitleCaseTransformer transformer = new TitleCaseTransformer(transformers);
+
+        // Act
+        String result = transformer.transform("ŻÓŁTY żółw don't-STOP 3d");
+
+        // Assert
+        assertEquals("Żółty Żółw Don't-Stop 3d", result);
+    }
+
+    @Test
+    void testSentenceCase() {
+        // Arrange
+        SentenceCaseTransformer transformer = new SentenceCaseTransformer(transformers);
+
+        // Act
+        String result = transformer.transform("ALA MA KOTA. kot ma Alę! czy 3.5 to DUŻO?  tak");
+
+        // Assert
+        assertEquals("Ala ma kota. Kot ma alę! Czy 3.5 to dużo?  Tak", result);
+    }
+
+    @Test
+    void testCapitalizeSupplementaryCharacter() {
+        // Arrange
+        CapitalizeTransformer transformer = new CapitalizeTransformer(transformers);
+
+        // Act
+        String result = transformer.transform("𐐨abc");
+
+        // Assert
+        assertEquals("𐐀abc", result);
+    }
+}
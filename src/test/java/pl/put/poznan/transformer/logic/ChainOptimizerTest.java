@@ -0,0 +1,95 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.put.poznan.transformer.logic.TransformType.*;
+
+class ChainOptimizerTest {
+
+    @Test
+    void testRedundantCaseConversionsAreRemoved() {
+        // Arrange
+        List<TransformType> chain = List.of(UPPER, LOWER, UPPER, UPPER, LATEX, LOWER, LOWER);
+
+        // Act
+        List<TransformType> optimized = ChainOptimizer.optimize(chain);
+
+        // Assert
+        assertEquals(List.of(LOWER, UPPER, LATEX, LOWER), optimized);
+    }
+
+    @Test
+    void testCapitalizeIsOverriddenByUpper() {
+        // Arrange
+        List<TransformType> chain = CompiledPipeline.order(List.of(UPPER, CAPITALIZE, CAPITALIZE, NUMBER_TO_TEXT));
+
+        // Act
+        List<TransformType> optimized = ChainOptimizer.optimize(chain);
+
+        // Assert
+        assertEquals(List.of(UPPER, NUMBER_TO_TEXT), optimized);
+    }
+
+    @Test
+    void testNonIdempotentTransformsAreKept() {
+        // Arrange
+        List<TransformType> chain = List.of(LATEX, LATEX, ABBREVIATE, ABBREVIATE, EXPAND, EXPAND, UPPER, LOWER);
+
+        // Act
+        List<TransformType> optimized = ChainOptimizer.optimize(chain);
+
+        // Assert
+        assertEquals(chain, optimized);
+    }
+
+    @Test
+    void testCaseRewritesHoldForEveryCodePoint() {
+        // Arrange
+        // Odwzorowania znakowe nie zależą od kontekstu, więc jeden tekst ze wszystkimi znakami wystarcza
+        StringBuilder all = new StringBuilder();
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            if (!Character.isSurrogate((char) codePoint) || codePoint > Character.MAX_VALUE) {
+                all.appendCodePoint(codePoint).append(' ');
+            }
+        }
+        String text = all.toString();
+        String[][] chains = {{"upper", "upper"}, {"lower", "lower"}, {"upper", "lower", "upper"}, {"upper", "capitalize"}};
+
+        for (String[] chain : chains) {
+            // Act
+            String optimized = TransformerFactory.compile(chain).transform(text);
+
+            // Assert
+            assertEquals(TransformerFactory.createTransformer(chain).transform(text), optimized, String.join(",", chain));
+        }
+    }
+
+    @Test
+    void testIdempotentTransformsMatchDecoratorChain() {
+        // Arrange
+        String[] words = {"to", "To", "TO", "1", "-5", "3.05", "12abc", "x1", "i", "ß", ",", ".", "-", "  ", "\n", "Żółw"};
+        Random random = new Random(7);
+        String[][] chains = {{"removeduplicates", "removeduplicates"}, {"numbertotext", "numbertotext"},
+                {"capitalize", "capitalize"}};
+
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                input.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+            }
+            String text = input.toString();
+
+            for (String[] chain : chains) {
+                // Act
+                String optimized = TransformerFactory.compile(chain).transform(text);
+
+                // Assert
+                assertEquals(TransformerFactory.createTransformer(chain).transform(text), optimized, text);
+            }
+        }
+    }
+}
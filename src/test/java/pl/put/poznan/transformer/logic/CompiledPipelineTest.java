@@ -0,0 +1,207 @@
+package pl.put.poznan.transformer.logic;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPipelineTest {
+
+    private static final String[] INPUTS = {
+            "",
+            "Tom&Jerry kosztują 40$ i 100% {radości} ~ ^_^",
+            "Zażółć gęślą jaźń, na przykład w 13 lat i tak dalej.",
+            "straße i m.in. itp. to to To słowa",
+            "Hello Ma 1 2 3 #tag"
+    };
+
+    @Test
+    void testCompiledPipelineMatchesDecoratorChain() {
+        // Arrange
+        String[] names = namesOf(TransformType.values());
+        Random random = new Random(42);
+
+        for (int iteration = 0; iteration < 500; iteration++) {
+            String[] chain = new String[random.nextInt(5)];
+            for (int i = 0; i < chain.length; i++) {
+                chain[i] = names[random.nextInt(names.length)];
+            }
+            TextTransformerInterface expected = TransformerFactory.createTransformer(chain);
+
+            // Act
+            TextTransformerInterface compiled = TransformerFactory.compile(chain);
+
+            // Assert
+            for (String input : INPUTS) {
+                assertEquals(expected.transform(input), compiled.transform(input), String.join(",", chain));
+            }
+        }
+    }
+
+    @Test
+    void testAdjacentCharacterStagesAreFused() {
+        // Arrange
+        List<TransformType> types = TransformerFactory.parse(new String[]{"upper", "latex", "lower", "abbreviate", "upper"});
+
+        // Act
+        CompiledPipeline pipeline = CompiledPipeline.compile(types);
+
+        // Assert
+        assertEquals(3, pipeline.stageCount());
+    }
+
+    @Test
+    void testStagesFollowDecoratorNesting() {
+        // Arrange
+        List<TransformType> types = TransformerFactory.parse(new String[]{"upper", "inverse", "lower", "capitalize"});
+
+        // Act
+        List<TransformType> ordered = CompiledPipeline.order(types);
+
+        // Assert
+        assertEquals(List.of(TransformType.CAPITALIZE, TransformType.UPPER, TransformType.INVERSE, TransformType.LOWER), ordered);
+    }
+
+    @Test
+    void testFusedStagesExpandCharacters() {
+        // Arrange
+        TextTransformerInterface pipeline = TransformerFactory.compile(new String[]{"latex", "upper", "lower"});
+
+        // Act
+        String result = pipeline.transform("Straße & ~");
+
+        // Assert
+        assertEquals("strasse \\& \\~{}", result);
+    }
+
+    @Test
+    void testFusedTableMatchesStagesForAllCodePoints() {
+        // Arrange
+        StringBuilder text = new StringBuilder();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (!Character.isSurrogate((char) c)) {
+                text.append((char) c);
+            }
+        }
+        for (int c = 0x10400; c < 0x10500; c++) {
+            text.appendCodePoint(c);
+        }
+        // Para surogatów i samotne surogaty na granicy fragmentu przetwarzanego w tablicy
+        text.insert(8191, "😀").append("\uD800a\uDC00");
+        String input = text.toString();
+        TransformType[] mappings = {TransformType.UPPER, TransformType.LOWER, TransformType.LATEX, TransformType.TOGGLE};
+
+        for (TransformType first : mappings) {
+            for (TransformType second : mappings) {
+                String[] chain = {first.getName(), second.getName()};
+                List<CharMappingStage> stages = List.of(first.mapping(), second.mapping());
+
+                // Act
+                FusedCharStage withTable = new FusedCharStage(stages, FusedCharStage.buildTable(stages));
+                CharSequence fused = withTable.apply(input, new StringBuilder());
+                CharSequence withoutTable = new FusedCharStage(stages, null).apply(input, new StringBuilder());
+
+                // Assert
+                String expected = second.stage().apply(first.stage().apply(input, new StringBuilder()),
+                        new StringBuilder()).toString();
+                assertEquals(expected, fused.toString(), String.join(",", chain));
+                assertEquals(expected, withoutTable.toString(), String.join(",", chain));
+            }
+        }
+    }
+
+    @Test
+    void testFusedTablesAreBounded() {
+        // Arrange
+        TransformType[] mappings = {TransformType.UPPER, TransformType.LOWER, TransformType.LATEX, TransformType.TOGGLE};
+        Random random = new Random(7);
+
+        for (int i = 0; i < FusedCharStage.MAX_TABLES * 2; i++) {
+            List<CharMappingStage> stages = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                stages.add(mappings[random.nextInt(mappings.length)].mapping());
+            }
+
+            // Act
+            CharSequence result = new FusedCharStage(stages).apply("Tom & Jerry", new StringBuilder());
+
+            // Assert
+            assertEquals(new FusedCharStage(stages, null).apply("Tom & Jerry", new StringBuilder()).toString(),
+                    result.toString());
+        }
+        assertTrue(FusedCharStage.cachedTableCount() <= FusedCharStage.MAX_TABLES);
+    }
+
+    @Test
+    void testUnchangedTextReturnsSameInstance() {
+        // Arrange
+        TextTransformerInterface pipeline = TransformerFactory.compile(new String[]{"lower", "latex"});
+        String input = "bez zmian";
+
+        // Act
+        String result = pipeline.transform(input);
+
+        // Assert
+        assertSame(input, result);
+    }
+
+    @Test
+    void testUnchangedTextAllocatesNoBuffers() {
+        // Arrange
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        TextTransformerInterface pipeline = TransformerFactory.compile(new String[]{"lower", "abbreviate", "latex"});
+        String input = "ala ma kota, a kot ma ale ".repeat(160_000);
+        pipeline.transform("rozgrzewka");
+        long threadId = Thread.currentThread().getId();
+
+        // Act
+        long before = threads.getThreadAllocatedBytes(threadId);
+        String result = pipeline.transform(input);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Assert
+        assertSame(input, result);
+        // Bufor na kopię tekstu miałby 8 MB
+        assertTrue(allocated < 64 * 1024, "zaalokowano " + allocated + " bajtów");
+    }
+
+    @Test
+    void testInstrumentedStagesReportNamesAndSizes() {
+        // Arrange
+        List<String> recorded = new ArrayList<>();
+        StageMetrics metrics = new StageMetrics() {
+            @Override
+            public void record(String stage, long nanos, int inputLength, int outputLength) {
+                recorded.add(stage + ":" + inputLength + "->" + outputLength);
+            }
+
+            @Override
+            public void recordError(String stage, RuntimeException error) {
+                recorded.add(stage + ":error");
+            }
+        };
+        List<TransformType> types = TransformerFactory.parse(new String[]{"upper", "latex", "abbreviate"});
+
+        // Act
+        String result = CompiledPipeline.compile(types, metrics).transform("a & b");
+
+        // Assert
+        assertEquals("A \\& B", result);
+        assertEquals(List.of("fused:5->6", "abbreviate:6->6"), recorded);
+    }
+
+    private static String[] namesOf(TransformType[] types) {
+        String[] names = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = types[i].getName();
+        }
+        return names;
+    }
+}
@@ -0,0 +1,111 @@
+package pl.put.poznan.transformer.logic;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateWordRemoverTest {
+
+    private static final Pattern LEGACY = Pattern.compile("\\b(\\w+)(\\s+\\1)+\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final String[] TOKENS = {"to", "To", "TO", "ab", "abab", "a_b", "12", " ", "  ", "\n", ",", ".", "-"};
+
+    @Test
+    void testAsciiModeMatchesLegacyRegex() {
+        // Arrange
+        DuplicateWordRemover remover = new DuplicateWordRemover(false, false, 1);
+        Random random = new Random(11);
+
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                input.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            String expected = LEGACY.matcher(input).replaceAll("$1");
+
+            // Act
+            String result = remover.removeAll(input.toString());
+
+            // Assert
+            assertEquals(expected, result, input.toString());
+        }
+    }
+
+    @Test
+    void testPolishWordsAreDeduplicated() {
+        // Arrange
+        RemoveDuplicatesTransformer transformer = new RemoveDuplicatesTransformer(new BaseTransformer());
+
+        // Act
+        String result = transformer.transform("Żółw żółw ŻÓŁW idzie, idzie idzie.");
+
+        // Assert
+        assertEquals("Żółw idzie, idzie.", result);
+    }
+
+    @Test
+    void testCaseSensitiveKeepsDifferentCase() {
+        // Arrange
+        DuplicateWordRemover remover = new DuplicateWordRemover(true, true, 1);
+
+        // Act
+        String result = remover.removeAll("To to to jest");
+
+        // Assert
+        assertEquals("To to jest", result);
+    }
+
+    @Test
+    void testWindowRemovesRepeatsWithinLastWords() {
+        // Arrange
+        DuplicateWordRemover remover = new DuplicateWordRemover(false, true, 2);
+
+        // Act
+        String result = remover.removeAll("raz dwa raz trzy raz. raz");
+
+        // Assert
+        assertEquals("raz dwa trzy raz. raz", result);
+    }
+
+    @Test
+    void testWrappedTransformerIsApplied() {
+        // Arrange
+        TextTransformerInterface transformer = TransformerFactory.createTransformer(new String[]{"upper", "removeduplicates"});
+
+        // Act
+        String result = transformer.transform("ala Ala ma kota");
+
+        // Assert
+        assertEquals("ALA MA KOTA", result);
+    }
+
+    @Test
+    void testLongRunOfRepeatsIsLinear() {
+        // Arrange
+        String input = "słowo " + "słowo ".repeat(200_000) + "koniec";
+
+        // Act
+        String result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> DuplicateWordRemover.DEFAULT.removeAll(input));
+
+        // Assert
+        assertEquals("słowo koniec", result);
+    }
+
+    @Test
+    void testSafePrefixDoesNotSplitRepeatedWords() {
+        // Arrange
+        String pending = "raz dwa dwa dwa";
+
+        // Act
+        int cut = DuplicateWordRemover.DEFAULT.safePrefix(pending + " trzy ");
+
+        // Assert
+        assertEquals(pending.indexOf("dwa"), DuplicateWordRemover.DEFAULT.safePrefix(pending + " "));
+        assertEquals(pending.length() + 1, cut);
+    }
+}
@@ -1,5 +1,10 @@
 package pl.put.poznan.transformer.logic;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -63,4 +68,57 @@ class InverseTransformerTest {
         // Assert
         assertEquals(expectedOutput, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testInverseAppliesWrappedTransformer() {
+        // Arrange
+        InverseTransformer transformer = new InverseTransformer(new UppercaseTransformer(transformers));
+
+        // Act
+        String result = transformer.transform("abc");
+
+        // Assert
+        assertEquals("CBA", result);
+    }
+
+    @Test
+    void testInverseKeepsGraphemeClusters() {
+        // Arrange
+        String family = "👨\u200D👩\u200D👧";
+        String input = "Ae\u0301😀👍🏽🇵🇱" + family + "\r\n";
+        InverseTransformer transformer = new InverseTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertEquals("\r\n" + family + "🇵🇱👍🏽😀e\u0301a", result);
+    }
+
+    @Test
+    void testInverseMatchesForwardSegmentation() {
+        // Arrange
+        String[] pieces = {"a", "B", "ż", "Ł", "\u0301", "\u200D", "😀", "🏽", "🇵", "🇱", "\r", "\n", "\uD83D", " ", "\u0007"};
+        Random random = new Random(3);
+
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(10); i > 0; i--) {
+                input.append(pieces[random.nextInt(pieces.length)]);
+            }
+            List<String> clusters = new ArrayList<>();
+            for (int start = 0; start < input.length(); ) {
+                int end = GraphemeReverser.clusterEnd(input, start);
+                clusters.add(input.substring(start, end));
+                start = end;
+            }
+            Collections.reverse(clusters);
+
+            // Act
+            String result = GraphemeReverser.reverse(input, new StringBuilder()).toString();
+
+            // Assert
+            assertEquals(String.join("", clusters).toLowerCase(), result.toLowerCase(), input.toString());
+        }
+    }
+}
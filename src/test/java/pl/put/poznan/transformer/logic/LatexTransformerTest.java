@@ -63,4 +63,31 @@ class LatexTransformerTest {
         // Assert
         assertEquals(expectedOutput, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLatexAllSpecialCharacters() {
+        // Arrange
+        String input = "&$%#_{}~^ żółć";
+        String expectedOutput = "\\&\\$\\%\\#\\_\\{\\}\\~{}\\^{} żółć";
+        LatexTransformer transformer = new LatexTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertEquals(expectedOutput, result);
+    }
+
+    @Test
+    void testLatexWithoutSpecialCharactersReturnsSameInstance() {
+        // Arrange
+        String input = "Zwykły tekst bez znaków specjalnych";
+        LatexTransformer transformer = new LatexTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertSame(input, result);
+    }
+}
@@ -0,0 +1,92 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileReaderTest {
+
+    private static final String TEXT = "Zażółć gęślą jaźń 😀👍🏽 na przykład 12 € 𝄞 koniec";
+
+    @TempDir
+    Path directory;
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = directory.resolve("input.txt");
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static String readAll(Reader reader, int bufferSize) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        int read;
+        while ((read = reader.read(buffer, 0, bufferSize)) >= 0) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+
+    @Test
+    void testSequencesSplitAcrossRegionsAreDecoded() throws IOException {
+        // Arrange
+        Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        for (int regionSize = 4; regionSize <= 9; regionSize++) {
+            for (int bufferSize : new int[]{1, 2, 3, 8192}) {
+                // Act
+                String text;
+                try (Reader reader = new MappedFileReader(file, regionSize)) {
+                    text = readAll(reader, bufferSize);
+                }
+
+                // Assert
+                assertEquals(TEXT, text, "okno " + regionSize + ", bufor " + bufferSize);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyFileAndMalformedInput() throws IOException {
+        // Arrange
+        Path empty = write(new byte[0]);
+
+        // Act & Assert
+        try (Reader reader = new MappedFileReader(empty)) {
+            assertEquals(-1, reader.read(new char[16]));
+        }
+        Path malformed = write(new byte[]{'a', 'b', (byte) 0xC5});
+        try (Reader reader = new MappedFileReader(malformed, 4)) {
+            assertThrows(MalformedInputException.class, () -> readAll(reader, 16));
+        }
+    }
+
+    @Test
+    void testStreamingPipelineOverMappedFile() throws IOException {
+        // Arrange
+        String[] transforms = {"latex", "numbertotext", "capitalize"};
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            input.append("zażółć ").append(i % 150).append(" & 😀 ");
+        }
+        Path file = write(input.toString().getBytes(StandardCharsets.UTF_8));
+        StringWriter output = new StringWriter();
+
+        // Act
+        try (Reader reader = new MappedFileReader(file, 1000)) {
+            TransformerFactory.createStreaming(transforms).transform(reader, output);
+        }
+
+        // Assert
+        assertEquals(TransformerFactory.createTransformer(transforms).transform(input.toString()), output.toString());
+    }
+}
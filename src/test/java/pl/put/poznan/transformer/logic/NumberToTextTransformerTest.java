@@ -63,4 +63,61 @@ class NumberToTextTransformerTest {
         // Assert
         assertEquals(expectedOutput, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNumberToTextDeclinesThousandsAndMillions() {
+        // Arrange
+        String input = "1000 2000 5000 22000 112000 1000000 3000000 25000000";
+        String expectedOutput = "tysiąc dwa tysiące pięć tysięcy dwadzieścia dwa tysiące sto dwanaście tysięcy"
+                + " milion trzy miliony dwadzieścia pięć milionów";
+        NumberToTextTransformer transformer = new NumberToTextTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertEquals(expectedOutput, result);
+    }
+
+    @Test
+    void testNumberToTextFullLongRange() {
+        // Act
+        String max = NumberToTextTransformer.numberToText(Long.MAX_VALUE);
+        String min = NumberToTextTransformer.numberToText(Long.MIN_VALUE);
+
+        // Assert
+        assertEquals("dziewięć trylionów dwieście dwadzieścia trzy biliardy trzysta siedemdziesiąt dwa biliony"
+                + " trzydzieści sześć miliardów osiemset pięćdziesiąt cztery miliony siedemset siedemdziesiąt pięć"
+                + " tysięcy osiemset siedem", max);
+        assertEquals("minus dziewięć trylionów dwieście dwadzieścia trzy biliardy trzysta siedemdziesiąt dwa biliony"
+                + " trzydzieści sześć miliardów osiemset pięćdziesiąt cztery miliony siedemset siedemdziesiąt pięć"
+                + " tysięcy osiemset osiem", min);
+    }
+
+    @Test
+    void testNumberToTextNegativesAndDecimals() {
+        // Arrange
+        String input = "od -3.5 do 2.05, nie 10-5 ani 3kg";
+        String expectedOutput = "od minus trzy koma pięć do dwa koma zero pięć, nie dziesięć-pięć ani 3kg";
+        NumberToTextTransformer transformer = new NumberToTextTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertEquals(expectedOutput, result);
+    }
+
+    @Test
+    void testNumberToTextLeavesOutOfRangeNumbers() {
+        // Arrange
+        String input = "9223372036854775808 i -9223372036854775809";
+        NumberToTextTransformer transformer = new NumberToTextTransformer(transformers);
+
+        // Act
+        String result = transformer.transform(input);
+
+        // Assert
+        assertSame(input, result);
+    }
+}
@@ -0,0 +1,127 @@
+package pl.put.poznan.transformer.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPipelineTest {
+
+    private static final String[] WORDS = {
+            "na", "przykład", "i", "tak", "dalej", "np.", "m.in.", "to", "To", "ala", "12", "-3", "3.5", "&", "{x}",
+            "żółw", "Żółw", "straße", "😀", " ", "  ", "\n", ",", "między", "innymi", "a", "1000"
+    };
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testParallelMatchesCompiledPipeline() {
+        // Arrange
+        Random random = new Random(3);
+        TransformType[] types = TransformType.values();
+
+        for (int iteration = 0; iteration < 300; iteration++) {
+            String[] chain = new String[1 + random.nextInt(4)];
+            for (int i = 0; i < chain.length; i++) {
+                chain[i] = types[random.nextInt(types.length)].getName();
+            }
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(200); i > 0; i--) {
+                input.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : "");
+            }
+            String expected = TransformerFactory.compile(chain).transform(input.toString());
+            ParallelPipeline pipeline = new ParallelPipeline(TransformerFactory.parse(chain), pool, 1 + random.nextInt(40));
+
+            // Act
+            String result = pipeline.transform(input.toString());
+
+            // Assert
+            assertEquals(expected, result, String.join(",", chain) + " <- " + input);
+        }
+    }
+
+    @Test
+    void testCapitalizeAppliesOnlyToFirstChunk() {
+        // Arrange
+        String input = "ala ma kota. ".repeat(100);
+        ParallelPipeline pipeline = new ParallelPipeline(List.of(TransformType.CAPITALIZE), pool, 16);
+
+        // Act
+        String result = pipeline.transform(input);
+
+        // Assert
+        assertEquals("A" + input.substring(1), result);
+    }
+
+    @Test
+    void testDictionaryCutAvoidsPhrases() {
+        // Arrange
+        AhoCorasickAutomaton automaton = PhraseDictionaries.getAbbreviations();
+        String text = "to na przykład test";
+
+        // Act
+        boolean insidePhrase = automaton.isSafeCut(text, text.indexOf("przykład"));
+        boolean beforePhrase = automaton.isSafeCut(text, text.indexOf("na"));
+
+        // Assert
+        assertFalse(insidePhrase);
+        assertTrue(beforePhrase);
+    }
+
+    @Test
+    void testCachedPipelineMeasuresWholeSteps() {
+        // Arrange
+        List<String> recorded = new ArrayList<>();
+        StageMetrics metrics = new StageMetrics() {
+            @Override
+            public synchronized void record(String stage, long nanos, int inputLength, int outputLength) {
+                recorded.add(stage + ":" + inputLength + "->" + outputLength);
+            }
+
+            @Override
+            public synchronized void recordError(String stage, RuntimeException error) {
+                recorded.add(stage + ":error");
+            }
+        };
+        TransformerPipelineCache cache = new TransformerPipelineCache(4,
+                names -> new ParallelPipeline(TransformerFactory.parse(names), pool, 16));
+        String input = "a & b na przykład ".repeat(20);
+        String expected = TransformerFactory.compile(new String[]{"upper", "latex", "abbreviate"}).transform(input);
+
+        TransformerFactory.setStageMetrics(metrics);
+        try {
+            // Act
+            String result = cache.get(new String[]{"upper", "latex", "abbreviate"}).transform(input);
+            String again = cache.get(new String[]{"UPPER", "latex", "abbreviate"}).transform(input);
+
+            // Assert
+            assertEquals(expected, result);
+            assertEquals(result, again);
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.size());
+            // Każdy etap mierzony jest raz, na całym tekście, a nie na poszczególnych fragmentach
+            int escaped = input.length() + 20;
+            assertEquals(List.of("fused:" + input.length() + "->" + escaped, "abbreviate:" + escaped + "->" + result.length()),
+                    recorded.subList(0, 2));
+            assertEquals(4, recorded.size());
+        } finally {
+            TransformerFactory.setStageMetrics(null);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhraseDictionariesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseSkipsCommentsAndBlankLines() throws IOException {
+        // Arrange
+        String content = "# komentarz\n\nna przykład = np.\nto jest=tj.\n";
+
+        // Act
+        Map<String, String> dictionary = PhraseDictionaries.parse(new StringReader(content));
+
+        // Assert
+        assertEquals(Map.of("na przykład", "np.", "to jest", "tj."), dictionary);
+    }
+
+    @Test
+    void testParseRejectsLineWithoutSeparator() {
+        // Arrange
+        String content = "na przykład np.\n";
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> PhraseDictionaries.parse(new StringReader(content)));
+    }
+
+    @Test
+    void testReloadedDictionaryIsUsedByAbbreviateTransformer() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("abbreviations.txt");
+        Files.writeString(file, "to jest=tj.\n", StandardCharsets.UTF_8);
+        AbbreviateTransformer transformer = new AbbreviateTransformer(new BaseTransformer());
+
+        try {
+            // Act
+            PhraseDictionaries.publishAbbreviations(PhraseDictionaries.load(file));
+
+            // Assert
+            assertEquals("tj. test, na przykład", transformer.transform("to jest test, na przykład"));
+        } finally {
+            PhraseDictionaries.publishAbbreviations(null);
+        }
+        assertEquals("to jest test, np.", transformer.transform("to jest test, na przykład"));
+    }
+}
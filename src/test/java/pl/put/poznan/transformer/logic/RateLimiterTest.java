@@ -0,0 +1,121 @@
+package pl.put.poznan.transformer.logic;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private RateLimiter limiter(double requestsPerSecond, long bytesPerSecond) {
+        return new RateLimiter(new RateLimiter.Limits(requestsPerSecond, bytesPerSecond), Duration.ofSeconds(1), clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void testBurstIsThrottledUntilTokensRefill() {
+        // Arrange
+        RateLimiter limiter = limiter(10, 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("zespol-a", 0).isAllowed());
+        }
+
+        // Act
+        RateLimiter.Decision throttled = limiter.tryAcquire("zespol-a", 0);
+        advance(Duration.ofMillis(100));
+        RateLimiter.Decision refilled = limiter.tryAcquire("zespol-a", 0);
+
+        // Assert
+        assertEquals(RateLimiter.Limit.REQUESTS, throttled.getExceeded());
+        assertEquals(Duration.ofMillis(100), throttled.getRetryAfter());
+        assertTrue(refilled.isAllowed());
+        assertFalse(limiter.tryAcquire("zespol-a", 0).isAllowed());
+    }
+
+    @Test
+    void testByteLimitReturnsRequestTokenAndAllowsOversizedRequestOnlyWhenFull() {
+        // Arrange
+        RateLimiter limiter = limiter(100, 1000);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire("zespol-a", 800).isAllowed());
+        RateLimiter.Decision bytes = limiter.tryAcquire("zespol-a", 300);
+        assertEquals(RateLimiter.Limit.BYTES, bytes.getExceeded());
+        assertEquals(Duration.ofMillis(100), bytes.getRetryAfter());
+        // Odrzucone zapytanie nie zużyło żetonu zapytań: zostało 99 z 100
+        for (int i = 0; i < 99; i++) {
+            assertTrue(limiter.tryAcquire("zespol-a", 0).isAllowed());
+        }
+        assertEquals(RateLimiter.Limit.REQUESTS, limiter.tryAcquire("zespol-a", 0).getExceeded());
+
+        assertTrue(limiter.tryAcquire("zespol-b", 5000).isAllowed());
+        assertFalse(limiter.tryAcquire("zespol-b", 1).isAllowed());
+        advance(Duration.ofSeconds(5));
+        assertTrue(limiter.tryAcquire("zespol-b", 1).isAllowed());
+        limiter.charge("zespol-b", 3000);
+        assertEquals(RateLimiter.Limit.BYTES, limiter.tryAcquire("zespol-b", 1).getExceeded());
+    }
+
+    @Test
+    void testKeysAreIsolatedAndLimitsChangeAtRuntime() {
+        // Arrange
+        RateLimiter limiter = limiter(1, 0);
+        limiter.tryAcquire("zespol-a", 0);
+
+        // Act & Assert
+        assertFalse(limiter.tryAcquire("zespol-a", 0).isAllowed());
+        assertTrue(limiter.tryAcquire("zespol-b", 0).isAllowed());
+        limiter.setKeyLimits("zespol-a", new RateLimiter.Limits(0, 0));
+        assertTrue(limiter.tryAcquire("zespol-a", 0).isAllowed());
+        assertTrue(limiter.removeKeyLimits("zespol-a"));
+        assertFalse(limiter.tryAcquire("zespol-a", 0).isAllowed());
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter.Limits(Double.NaN, 0));
+    }
+
+    @Test
+    void testConcurrentAcquiresNeverExceedBucket() throws Exception {
+        // Arrange
+        RateLimiter limiter = limiter(500, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                int allowed = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("zespol-a", 0).isAllowed()) {
+                        allowed++;
+                    }
+                }
+                return allowed;
+            });
+        }
+
+        // Act
+        int allowed = 0;
+        try {
+            for (Future<Integer> result : pool.invokeAll(tasks)) {
+                allowed += result.get();
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        assertEquals(500, allowed);
+    }
+}
@@ -0,0 +1,167 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingPipelineTest {
+
+    private static final String[] WORDS = {
+            "na", "przykład", "i", "tak", "dalej", "np.", "m.in.", "to", "To", "ala", "12", "3.5", "&", "{x}",
+            "żółw", "Żółw", "straße", "😀", " ", "  ", "\n", ",", "między", "innymi", "ża", "a", "1.25"
+    };
+
+    /**
+     * Czytnik zwracający losowo małe fragmenty, aby granice fragmentów wypadały w dowolnych miejscach.
+     */
+    private static final class ChoppyReader extends Reader {
+        private final Reader delegate;
+        private final Random random;
+
+        ChoppyReader(String text, Random random) {
+            this.delegate = new StringReader(text);
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return delegate.read(buffer, offset, Math.min(length, 1 + random.nextInt(7)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Bufor zliczający odczyty znaków, aby sprawdzić, ile razy granica przegląda tekst.
+     */
+    private static final class CountingText implements CharSequence {
+        private final StringBuilder text = new StringBuilder();
+        private long reads;
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            reads++;
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Dopisuje do bufora fragmenty tekstu, jak {@link StreamingPipeline}, usuwając początki zwracane przez granicę.
+     *
+     * @return Liczba odczytów znaków przez granicę.
+     */
+    private static long scan(StreamingPipeline.Boundary boundary, String chunk, int chunks) {
+        CountingText pending = new CountingText();
+        for (int i = 0; i < chunks; i++) {
+            pending.text.append(chunk);
+            int cut = boundary.safePrefix(pending);
+            pending.text.delete(0, cut);
+        }
+        return pending.reads;
+    }
+
+    @Test
+    void testStreamingMatchesCompiledPipeline() throws IOException {
+        // Arrange
+        Random random = new Random(7);
+        TransformType[] types = TransformType.values();
+
+        for (int iteration = 0; iteration < 300; iteration++) {
+            String[] chain = new String[1 + random.nextInt(4)];
+            for (int i = 0; i < chain.length; i++) {
+                chain[i] = types[random.nextInt(types.length)].getName();
+            }
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(60); i > 0; i--) {
+                input.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : "");
+            }
+            String expected = TransformerFactory.compile(chain).transform(input.toString());
+
+            // Act
+            StringWriter output = new StringWriter();
+            TransformerFactory.createStreaming(chain).transform(new ChoppyReader(input.toString(), random), output);
+
+            // Assert
+            assertEquals(expected, output.toString(), String.join(",", chain) + " <- " + input);
+        }
+    }
+
+    @Test
+    void testPhraseSplitAcrossChunksIsAbbreviated() throws IOException {
+        // Arrange
+        StreamingPipeline pipeline = TransformerFactory.createStreaming(new String[]{"abbreviate", "upper"});
+        StringWriter output = new StringWriter();
+
+        // Act
+        pipeline.transform(new ChoppyReader("to jest na przykład test", new Random(1)), output);
+
+        // Assert
+        assertEquals("TO JEST NP. TEST", output.toString());
+    }
+
+    @Test
+    void testBoundariesReadEachCharacterOnce() {
+        // Arrange
+        int chunks = 200;
+        String word = "a".repeat(StreamingPipeline.CHUNK_SIZE);
+        String unterminated = "bez kropki ".repeat(StreamingPipeline.CHUNK_SIZE / 11);
+        String repeated = "a ".repeat(StreamingPipeline.CHUNK_SIZE / 2);
+        long total = (long) chunks * StreamingPipeline.CHUNK_SIZE;
+
+        // Act
+        long whitespaceReads = scan(StreamingPipeline.whitespaceBoundary(), word, chunks);
+        long sentenceReads = scan(CaseStyleStage.sentenceBoundary(), unterminated, chunks);
+        long repeatedReads = scan(DuplicateWordRemover.DEFAULT.streamBoundary(), repeated, chunks);
+        long wordReads = scan(DuplicateWordRemover.DEFAULT.streamBoundary(), word, chunks);
+
+        // Assert
+        // Przeglądanie całego bufora przy każdym fragmencie wymagałoby około total * chunks / 2 odczytów
+        assertTrue(whitespaceReads <= total, "odczyty: " + whitespaceReads);
+        assertTrue(sentenceReads <= 2 * total, "odczyty: " + sentenceReads);
+        // Znaki słów są czytane przy wyznaczaniu końca słowa i przy porównaniu z poprzednim słowem
+        assertTrue(repeatedReads <= 4 * total, "odczyty: " + repeatedReads);
+        assertTrue(wordReads <= 2 * total, "odczyty: " + wordReads);
+    }
+
+    @Test
+    void testBoundaryFreeTextIsBufferedUpToLimit() throws IOException {
+        // Arrange
+        String word = "ą".repeat(300_000);
+        String unterminated = "zdanie bez końca ".repeat(20_000);
+        String repeated = "raz dwa" + " dwa".repeat(100_000) + " trzy";
+
+        for (String[] chain : new String[][]{{"title"}, {"numbertotext"}, {"sentence"}, {"removeduplicates"}}) {
+            String input = chain[0].equals("sentence") ? unterminated
+                    : chain[0].equals("removeduplicates") ? repeated : word;
+            StringWriter output = new StringWriter();
+
+            // Act
+            TransformerFactory.createStreaming(chain, input.length()).transform(new StringReader(input), output);
+
+            // Assert
+            assertEquals(TransformerFactory.compile(chain).transform(input), output.toString(), chain[0]);
+            AdmissionControl.LimitExceededException limit = assertThrows(AdmissionControl.LimitExceededException.class,
+                    () -> TransformerFactory.createStreaming(chain, 65_536)
+                            .transform(new StringReader(input), new StringWriter()));
+            assertEquals(AdmissionControl.Reason.TEXT, limit.getReason());
+        }
+    }
+}
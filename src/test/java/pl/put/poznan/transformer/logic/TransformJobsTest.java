@@ -0,0 +1,192 @@
+package pl.put.poznan.transformer.logic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformJobsTest {
+
+    private static final String[] CHAIN = {"latex", "numbertotext", "capitalize"};
+
+    @TempDir
+    Path spool;
+
+    private static String resultOf(TransformJobs.Job job) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        job.writeResultTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testJobsRunByPriorityThenSubmissionOrder() {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(8, 1 << 20, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        TransformJobs.Job low = jobs.submit(CHAIN, "a", 1);
+        TransformJobs.Job first = jobs.submit(CHAIN, "b", 7);
+        TransformJobs.Job second = jobs.submit(CHAIN, "c", 7);
+        List<TransformJobs.Job> order = new ArrayList<>();
+
+        // Act
+        while (jobs.runNext()) {
+            for (TransformJobs.Job job : List.of(low, first, second)) {
+                if (job.getState() == TransformJobs.State.DONE && !order.contains(job)) {
+                    order.add(job);
+                }
+            }
+        }
+
+        // Assert
+        assertEquals(List.of(first, second, low), order);
+        assertEquals(0, jobs.getQueuedCount());
+    }
+
+    @Test
+    void testBoundaryFreeTextLongerThanStreamingLimitIsTransformed() throws IOException {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(4, 1 << 20, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        String word = "ą".repeat(2 * StreamingPipeline.DEFAULT_MAX_PENDING);
+        String repeated = "a" + " a".repeat(StreamingPipeline.DEFAULT_MAX_PENDING);
+        TransformJobs.Job title = jobs.submit(new String[]{"title"}, word, 5);
+        TransformJobs.Job duplicates = jobs.submit(new String[]{"removeduplicates"}, repeated, 5);
+
+        // Act
+        while (jobs.runNext()) {
+        }
+
+        // Assert
+        assertEquals(TransformJobs.State.DONE, title.getState(), title.getError());
+        assertEquals(TransformerFactory.compile(new String[]{"title"}).transform(word), resultOf(title));
+        assertEquals(TransformJobs.State.DONE, duplicates.getState(), duplicates.getError());
+        assertEquals("a", resultOf(duplicates));
+    }
+
+    @Test
+    void testFullQueueRejectsSubmission() {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(2, 1 << 20, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        jobs.submit(CHAIN, "a", TransformJobs.DEFAULT_PRIORITY);
+        jobs.submit(CHAIN, "b", TransformJobs.DEFAULT_PRIORITY);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit(CHAIN, "c", TransformJobs.DEFAULT_PRIORITY));
+        assertEquals(1, jobs.getRejectedCount());
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit(new String[]{"nieznana"}, "d", 5));
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit(CHAIN, "d", 10));
+        jobs.runNext();
+        assertDoesNotThrow(() -> jobs.submit(CHAIN, "c", TransformJobs.DEFAULT_PRIORITY));
+    }
+
+    @Test
+    void testCancelledJobIsNotRunAndFinishedJobIsRemoved() throws IOException {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(4, 1 << 20, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        TransformJobs.Job cancelled = jobs.submit(CHAIN, "a", 9);
+        TransformJobs.Job done = jobs.submit(CHAIN, "mam 2 koty & psa", 1);
+
+        // Act
+        jobs.cancel(cancelled.getId());
+        jobs.runNext();
+        boolean more = jobs.runNext();
+
+        // Assert
+        assertEquals(TransformJobs.State.CANCELLED, cancelled.getState());
+        assertEquals(TransformJobs.State.DONE, done.getState());
+        assertEquals(1.0, done.getProgress());
+        assertEquals("Mam dwa koty \\& psa", resultOf(done));
+        assertFalse(more);
+        assertSame(done, jobs.cancel(done.getId()));
+        assertNull(jobs.get(done.getId()));
+        assertNull(jobs.cancel("nieznane"));
+    }
+
+    @Test
+    void testLargeResultIsSpooledToDisk() throws IOException {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(4, 1000, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("zażółć ").append(i % 100).append(" & ");
+        }
+        String expected = TransformerFactory.createTransformer(CHAIN).transform(text.toString());
+        TransformJobs.Job small = jobs.submit(CHAIN, "krótki", 5);
+        TransformJobs.Job large = jobs.submit(CHAIN, text.toString(), 5);
+
+        // Act
+        while (jobs.runNext()) {
+        }
+
+        // Assert
+        assertFalse(small.isSpooled());
+        assertTrue(large.isSpooled());
+        assertEquals(expected, resultOf(large));
+        try (var files = Files.list(spool)) {
+            assertEquals(1, files.count());
+        }
+        jobs.shutdown();
+        try (var files = Files.list(spool)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testOldestFinishedJobsAreEvictedAndMemoryLimitSpoolsResults() throws IOException {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(8, 1 << 20, spool, Duration.ofMinutes(1), 2, 10);
+        TransformJobs.Job first = jobs.submit(CHAIN, "pierwszy", 5);
+        TransformJobs.Job second = jobs.submit(CHAIN, "drugi", 5);
+        TransformJobs.Job third = jobs.submit(CHAIN, "trzeci", 5);
+
+        // Act
+        while (jobs.runNext()) {
+        }
+
+        // Assert
+        assertNull(jobs.get(first.getId()));
+        assertSame(second, jobs.get(second.getId()));
+        assertSame(third, jobs.get(third.getId()));
+        assertEquals(2, jobs.getFinishedCount());
+        // "Pierwszy" mieścił się w limicie pamięci, kolejne wyniki trafiły na dysk
+        assertTrue(second.isSpooled());
+        assertTrue(third.isSpooled());
+        assertEquals(0, jobs.getResultMemory());
+        assertEquals("Trzeci", resultOf(third));
+        assertThrows(IllegalStateException.class, () -> resultOf(first));
+    }
+
+    @Test
+    void testOpenResultSurvivesCancellationUntilClosed() throws IOException {
+        // Arrange
+        TransformJobs jobs = new TransformJobs(4, 1, spool, Duration.ofMinutes(1), 16, 1 << 20);
+        TransformJobs.Job job = jobs.submit(CHAIN, "mam 2 koty", 5);
+        jobs.runNext();
+
+        // Act
+        String result;
+        try (InputStream in = job.openResult()) {
+            jobs.cancel(job.getId());
+            result = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            try (var files = Files.list(spool)) {
+                assertEquals(1, files.count());
+            }
+        }
+
+        // Assert
+        assertEquals("Mam dwa koty", result);
+        try (var files = Files.list(spool)) {
+            assertEquals(0, files.count());
+        }
+        assertThrows(IllegalStateException.class, job::openResult);
+    }
+}
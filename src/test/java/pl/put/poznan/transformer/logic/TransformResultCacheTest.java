@@ -0,0 +1,110 @@
+package pl.put.poznan.transformer.logic;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformResultCacheTest {
+
+    private static final String[] UPPER = {"upper"};
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final UnaryOperator<String> upper = text -> {
+        calls.incrementAndGet();
+        return TransformerFactory.getTransformer(UPPER).transform(text);
+    };
+
+    @Test
+    void testRepeatedRequestIsServedFromCache() {
+        // Arrange
+        TransformResultCache cache = new TransformResultCache(1 << 20, Duration.ofMinutes(1), 1000);
+
+        // Act
+        String first = cache.get(UPPER, "ala ma kota", upper);
+        String second = cache.get(new String[]{"UPPER"}, "ala ma kota", upper);
+
+        // Assert
+        assertEquals("ALA MA KOTA", first);
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void testLongTextBypassesCache() {
+        // Arrange
+        TransformResultCache cache = new TransformResultCache(1 << 20, Duration.ofMinutes(1), 4);
+
+        // Act
+        cache.get(UPPER, "za długi", upper);
+        cache.get(UPPER, "za długi", upper);
+
+        // Assert
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getBypassCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testWeightLimitEvictsLeastRecentlyUsed() {
+        // Arrange
+        TransformResultCache cache = new TransformResultCache(1200, Duration.ofMinutes(1), 1000);
+        String a = "a".repeat(100);
+        String b = "b".repeat(100);
+        String c = "c".repeat(100);
+
+        // Act
+        cache.get(UPPER, a, upper);
+        cache.get(UPPER, b, upper);
+        cache.get(UPPER, a, upper);
+        cache.get(UPPER, c, upper);
+        cache.get(UPPER, a, upper);
+        cache.get(UPPER, b, upper);
+
+        // Assert
+        assertTrue(cache.getWeight() <= 1200);
+        assertEquals(4, calls.get());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    void testExpiredEntryIsRecomputed() {
+        // Arrange
+        TransformResultCache cache = new TransformResultCache(1 << 20, Duration.ofNanos(1), 1000);
+
+        // Act
+        cache.get(UPPER, "tekst", upper);
+        cache.get(UPPER, "tekst", upper);
+
+        // Assert
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void testDictionaryReloadInvalidatesResults() {
+        // Arrange
+        TransformResultCache cache = new TransformResultCache(1 << 20, Duration.ofMinutes(1), 1000);
+        UnaryOperator<String> abbreviate = text -> TransformerFactory.compile(new String[]{"abbreviate"}).transform(text);
+        cache.get(new String[]{"abbreviate"}, "ala ma kota", abbreviate);
+
+        try {
+            PhraseDictionaries.publishAbbreviations(AhoCorasickAutomaton.compile(Map.of("kota", "k.")));
+
+            // Act
+            String result = cache.get(new String[]{"abbreviate"}, "ala ma kota", abbreviate);
+
+            // Assert
+            assertEquals("ala ma k.", result);
+        } finally {
+            PhraseDictionaries.publishAbbreviations(null);
+        }
+    }
+}
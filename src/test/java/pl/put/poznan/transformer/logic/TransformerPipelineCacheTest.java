@@ -0,0 +1,85 @@
+package pl.put.poznan.transformer.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformerPipelineCacheTest {
+
+    @Test
+    void testSamePipelineReturnedForNormalizedNames() {
+        // Arrange
+        TransformerPipelineCache cache = new TransformerPipelineCache(4);
+
+        // Act
+        TextTransformerInterface first = cache.get(new String[]{"upper", "latex"});
+        TextTransformerInterface second = cache.get(new String[]{"UPPER", "Latex"});
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals("TOM\\&JERRY", second.transform("Tom&Jerry"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedPipelineIsEvicted() {
+        // Arrange
+        TransformerPipelineCache cache = new TransformerPipelineCache(2);
+        TextTransformerInterface upper = cache.get(new String[]{"upper"});
+        cache.get(new String[]{"lower"});
+
+        // Act
+        cache.get(new String[]{"upper"});
+        cache.get(new String[]{"inverse"});
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertSame(upper, cache.get(new String[]{"upper"}));
+        assertEquals(3, cache.getMissCount());
+        cache.get(new String[]{"lower"});
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void testPipelineBuiltDuringClearIsNotCached() {
+        // Arrange
+        TransformerPipelineCache[] holder = new TransformerPipelineCache[1];
+        TransformerPipelineCache cache = new TransformerPipelineCache(2, transforms -> {
+            // Zmiana ustawień w trakcie budowy, jak setStageMetrics w innym wątku
+            holder[0].clear();
+            return TransformerFactory.compile(transforms);
+        });
+        holder[0] = cache;
+
+        // Act
+        TextTransformerInterface stale = cache.get(new String[]{"upper"});
+
+        // Assert
+        assertEquals("ABC", stale.transform("abc"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testUnknownTransformIsNotCached() {
+        // Arrange
+        TransformerPipelineCache cache = new TransformerPipelineCache(2);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> cache.get(new String[]{"upper,lower"}));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEmptyTransformListReturnsInput() {
+        // Arrange
+        TransformerPipelineCache cache = new TransformerPipelineCache(2);
+
+        // Act
+        String result = cache.get(null).transform("bez zmian");
+
+        // Assert
+        assertEquals("bez zmian", result);
+        assertSame(cache.get(null), cache.get(new String[0]));
+    }
+}
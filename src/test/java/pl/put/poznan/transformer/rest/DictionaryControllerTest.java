@@ -0,0 +1,38 @@
+package pl.put.poznan.transformer.rest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class DictionaryControllerTest {
+
+    private static final String TOKEN = "tajny-token";
+
+    private static MockMvc mvc(String adminToken) {
+        return MockMvcBuilders.standaloneSetup(new DictionaryController("", "", adminToken)).build();
+    }
+
+    @Test
+    void testReloadRequiresAdminToken() throws Exception {
+        // Arrange
+        MockMvc mvc = mvc(TOKEN);
+
+        // Act
+        int missing = mvc.perform(post("/dictionaries/reload")).andReturn().getResponse().getStatus();
+        int wrong = mvc.perform(post("/dictionaries/reload").header(AdminToken.HEADER, "zgadywany"))
+                .andReturn().getResponse().getStatus();
+        int disabled = mvc("").perform(post("/dictionaries/reload").header(AdminToken.HEADER, ""))
+                .andReturn().getResponse().getStatus();
+        int authorized = mvc.perform(post("/dictionaries/reload").header(AdminToken.HEADER, TOKEN))
+                .andReturn().getResponse().getStatus();
+
+        // Assert
+        assertEquals(401, missing);
+        assertEquals(401, wrong);
+        assertEquals(403, disabled);
+        assertEquals(200, authorized);
+    }
+}
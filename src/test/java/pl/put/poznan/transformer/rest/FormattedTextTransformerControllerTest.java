@@ -0,0 +1,125 @@
+package pl.put.poznan.transformer.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.TransformResultCache;
+import pl.put.poznan.transformer.logic.TransformerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class FormattedTextTransformerControllerTest {
+
+    /** Cudzysłowy, ukośniki, znaki sterujące, separatory wierszy Unicode i znaki zmieniane przez LaTeX. */
+    private static final String SPECIAL = "\"cytat\" C:\\dir\\ \u0000\u0001\u001f\t\r\n\u007f\u2028\u2029 & 100% $ # _ {} ~ ^ 😀";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private TransformExecutor executor;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionControl admission = new AdmissionControl(100, 1 << 20, Long.MAX_VALUE, Long.MAX_VALUE, 0, 0,
+                Duration.ZERO, 1.0, 1.0);
+        executor = new TransformExecutor("inline", 1, 1, 16384, 1 << 20,
+                new DefaultListableBeanFactory().getBeanProvider(TransformResultCache.class), admission);
+        // Jak spring.jackson.default-property-inclusion=non_null w application.properties
+        ObjectMapper responseMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL).build();
+        mvc = MockMvcBuilders.standaloneSetup(new FormattedTextTransformerController(executor, admission, 1 << 20, 1 << 20))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(responseMapper)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testSpecialCharactersSerializeToValidJson() throws Exception {
+        // Arrange
+        String[] transforms = {"latex", "inverse"};
+        String body = mapper.writeValueAsString(Map.of("text", SPECIAL, "transforms", transforms));
+
+        // Act
+        MvcResult result = mvc.perform(post("/formated/transform").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn();
+
+        // Assert
+        assertEquals(200, result.getResponse().getStatus());
+        String json = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        JsonNode response = mapper.readTree(json);
+        String expected = TransformerFactory.getTransformer(transforms).transform(SPECIAL);
+        assertEquals(expected, response.get("transformedText").asText());
+        assertFalse(response.has("error"));
+        // Surowe znaki sterujące są niedozwolone w łańcuchach JSON (RFC 8259)
+        assertTrue(json.chars().noneMatch(c -> c < 0x20), json);
+    }
+
+    @Test
+    void testBatchResultsWithSpecialCharactersSerializeToValidJson() throws Exception {
+        // Arrange
+        List<String> texts = List.of(SPECIAL, "\\& \\\\ \"\"", "");
+        String body = mapper.writeValueAsString(Map.of("texts", texts, "transforms", new String[]{"latex"}));
+
+        // Act
+        MvcResult result = mvc.perform(post("/formated/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn();
+
+        // Assert
+        assertEquals(200, result.getResponse().getStatus());
+        String json = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        JsonNode results = mapper.readTree(json).get("results");
+        assertEquals(texts.size(), results.size());
+        for (int i = 0; i < texts.size(); i++) {
+            String expected = TransformerFactory.getTransformer(new String[]{"latex"}).transform(texts.get(i));
+            assertEquals(expected, results.get(i).get("transformedText").asText());
+        }
+        assertTrue(json.chars().noneMatch(c -> c < 0x20), json);
+    }
+
+    @Test
+    void testStreamLongerThanLimitIsRejected() throws Exception {
+        // Arrange
+        AdmissionControl admission = new AdmissionControl(100, 50, Long.MAX_VALUE, Long.MAX_VALUE, 0, 0,
+                Duration.ZERO, 1.0, 1.0);
+        MockMvc limited = MockMvcBuilders.standaloneSetup(new FormattedTextTransformerController(executor, admission, 100, 1 << 20))
+                .build();
+
+        // Act
+        MvcResult atLimit = stream(limited, "upper", "a".repeat(100));
+        MvcResult overLimit = stream(limited, "upper", "a".repeat(101));
+        // Odwracanie buforuje cały tekst, więc obowiązuje je limit długości zwykłych zapytań
+        MvcResult buffered = stream(limited, "inverse", "a".repeat(51));
+
+        // Assert
+        assertEquals(200, atLimit.getResponse().getStatus());
+        assertEquals("A".repeat(100), atLimit.getResponse().getContentAsString(StandardCharsets.UTF_8));
+        assertEquals(413, overLimit.getResponse().getStatus());
+        assertEquals(413, buffered.getResponse().getStatus());
+        assertEquals(2, admission.getRejectedCount(AdmissionControl.Reason.TEXT));
+    }
+
+    private static MvcResult stream(MockMvc mvc, String transform, String text) throws Exception {
+        return mvc.perform(post("/formated/stream").param("transforms", transform)
+                .contentType(MediaType.TEXT_PLAIN).characterEncoding(StandardCharsets.UTF_8).content(text)).andReturn();
+    }
+}
@@ -0,0 +1,70 @@
+package pl.put.poznan.transformer.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import pl.put.poznan.transformer.logic.RateLimiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+class RateLimitControllerTest {
+
+    private static final String TOKEN = "tajny-token";
+    private static final String KEY = "klucz-zespolu-a";
+
+    private static MockMvc mvc(RateLimiter limiter, String adminToken) {
+        return MockMvcBuilders.standaloneSetup(new RateLimitController(limiter, adminToken)).build();
+    }
+
+    @Test
+    void testChangesRequireAdminToken() throws Exception {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limits(10, 0), Duration.ofSeconds(1));
+        MockMvc mvc = mvc(limiter, TOKEN);
+        String unlimited = "{\"requestsPerSecond\":0,\"bytesPerSecond\":0}";
+
+        // Act
+        int missing = mvc.perform(put("/rate-limits/default").contentType(MediaType.APPLICATION_JSON).content(unlimited))
+                .andReturn().getResponse().getStatus();
+        int wrong = mvc.perform(put("/rate-limits/keys/" + KEY).header(RateLimitController.ADMIN_HEADER, "zgadywany")
+                .contentType(MediaType.APPLICATION_JSON).content(unlimited)).andReturn().getResponse().getStatus();
+        int disabled = mvc(limiter, "").perform(get("/rate-limits").header(RateLimitController.ADMIN_HEADER, ""))
+                .andReturn().getResponse().getStatus();
+        int authorized = mvc.perform(put("/rate-limits/keys/" + KEY).header(RateLimitController.ADMIN_HEADER, TOKEN)
+                .contentType(MediaType.APPLICATION_JSON).content(unlimited)).andReturn().getResponse().getStatus();
+
+        // Assert
+        assertEquals(401, missing);
+        assertEquals(401, wrong);
+        assertEquals(403, disabled);
+        assertEquals(200, authorized);
+        assertEquals(10, limiter.getDefaultLimits().getRequestsPerSecond());
+        assertTrue(limiter.hasKeyLimits(KEY));
+    }
+
+    @Test
+    void testListingDoesNotRevealKeys() throws Exception {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limits(10, 0), Duration.ofSeconds(1));
+        limiter.setKeyLimits(KEY, new RateLimiter.Limits(5, 1000));
+
+        // Act
+        MvcResult result = mvc(limiter, TOKEN).perform(get("/rate-limits").header(RateLimitController.ADMIN_HEADER, TOKEN))
+                .andReturn();
+
+        // Assert
+        assertEquals(200, result.getResponse().getStatus());
+        String json = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertFalse(json.contains(KEY), json);
+        assertTrue(json.contains(RateLimitController.fingerprint(KEY)), json);
+        assertEquals(16, RateLimitController.fingerprint(KEY).length());
+    }
+}
@@ -0,0 +1,55 @@
+package pl.put.poznan.transformer.rest;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import pl.put.poznan.transformer.logic.RateLimiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private static final String HEADER = "X-API-Key";
+
+    private static int send(RateLimitFilter filter, String key) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/classic/upper/tekst");
+        if (key != null) {
+            request.addHeader(HEADER, key);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    @Test
+    void testUnconfiguredKeysShareDefaultBucket() throws Exception {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limits(2, 0), Duration.ofSeconds(1));
+        limiter.setKeyLimits("zespol-a", new RateLimiter.Limits(1, 0));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(limiter, HEADER, registry);
+
+        // Act
+        int first = send(filter, "losowy-1");
+        int anonymous = send(filter, null);
+        int rotated = send(filter, "losowy-2");
+        int configured = send(filter, "zespol-a");
+
+        // Assert
+        assertEquals(200, first);
+        assertEquals(200, anonymous);
+        // Nowy klucz nie dostaje nowego kubełka
+        assertEquals(429, rotated);
+        assertEquals(200, configured);
+        assertEquals(429, send(filter, "zespol-a"));
+        assertEquals(2, limiter.getTrackedKeyCount());
+        assertNull(registry.find("transformer.ratelimit.allowed").tag("key", "losowy-1").counter());
+        assertEquals(2.0, registry.get("transformer.ratelimit.allowed").tag("key", RateLimitFilter.ANONYMOUS)
+                .counter().count());
+    }
+}
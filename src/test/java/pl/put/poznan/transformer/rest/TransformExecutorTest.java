@@ -0,0 +1,117 @@
+package pl.put.poznan.transformer.rest;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import pl.put.poznan.transformer.logic.AdmissionControl;
+import pl.put.poznan.transformer.logic.TextTransformerInterface;
+import pl.put.poznan.transformer.logic.TransformResultCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformExecutorTest {
+
+    private static final int INLINE_THRESHOLD = 100;
+
+    /** Zwraca nazwę wątku, w którym wykonano transformację. */
+    private static final TextTransformerInterface THREAD_NAME = text -> Thread.currentThread().getName();
+
+    private static TransformExecutor executor(String mode, int queueCapacity) {
+        AdmissionControl admission = new AdmissionControl(100, 1 << 20, Long.MAX_VALUE, Long.MAX_VALUE, 0, 0,
+                Duration.ZERO, 1.0, 1.0);
+        return new TransformExecutor(mode, 1, queueCapacity, INLINE_THRESHOLD, 1 << 20,
+                new DefaultListableBeanFactory().getBeanProvider(TransformResultCache.class), admission);
+    }
+
+    @Test
+    void testBoundedModeRunsOnlyLongTextsInPool() {
+        // Arrange
+        TransformExecutor executor = executor("bounded", 4);
+        String caller = Thread.currentThread().getName();
+
+        try {
+            // Act
+            String atThreshold = executor.transform(THREAD_NAME, "a".repeat(INLINE_THRESHOLD));
+            String aboveThreshold = executor.transform(THREAD_NAME, "a".repeat(INLINE_THRESHOLD + 1));
+
+            // Assert
+            assertEquals(caller, atThreshold);
+            assertTrue(aboveThreshold.startsWith("transform-cpu-"), aboveThreshold);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testInlineModeRunsEverythingInCallerThread() {
+        // Arrange
+        TransformExecutor executor = executor("inline", 4);
+        String caller = Thread.currentThread().getName();
+
+        try {
+            // Act
+            String result = executor.transform(THREAD_NAME, "a".repeat(INLINE_THRESHOLD * 10));
+
+            // Assert
+            assertEquals(caller, result);
+            assertThrows(IllegalArgumentException.class, () -> executor("async", 4));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFullQueueRejectsTransformation() throws Exception {
+        // Arrange
+        TransformExecutor executor = executor("bounded", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TextTransformerInterface blocking = text -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return text;
+        };
+        String longText = "a".repeat(INLINE_THRESHOLD + 1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable submit = () -> {
+            try {
+                executor.transform(blocking, longText);
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        };
+        Thread running = new Thread(submit);
+        Thread queued = new Thread(submit);
+
+        try {
+            running.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            queued.start();
+            // Wątek czeka na wynik dopiero po umieszczeniu zadania w kolejce
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (queued.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            // Act & Assert
+            assertThrows(RejectedExecutionException.class, () -> executor.transform(blocking, longText));
+            assertEquals(Thread.currentThread().getName(), executor.transform(THREAD_NAME, "a"));
+        } finally {
+            release.countDown();
+            running.join(5000);
+            queued.join(5000);
+            executor.shutdown();
+        }
+        assertNull(failure.get());
+    }
+}